@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.controller.ControllerService;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.registry.VariableRegistry;
+import org.apache.nifi.reporting.InitializationException;
+import org.apache.nifi.state.MockStateManager;
+import org.apache.nifi.util.MockComponentLog;
+import org.apache.nifi.util.MockConfigurationContext;
+import org.apache.nifi.util.MockReportingContext;
+import org.apache.nifi.util.MockReportingInitializationContext;
+
+/**
+ * Shared fixtures for the benchmarks and the load harness.
+ */
+final class Benchmarks {
+
+    static final String HOSTNAME = "nifi-benchmark.example.com";
+    static final String TOKEN = "benchmark-token";
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @return a check in Alerting mode for every metric, with thresholds that yield a mix of states
+     */
+    static MetricCheck[] alertingChecks() {
+        final GroupMetric[] metrics = GroupMetric.values();
+        final MetricCheck[] checks = new MetricCheck[metrics.length];
+
+        for (int i = 0; i < metrics.length; i++) {
+            final long warning = metrics[i].isDataSize() ? 512L * 1024 * 1024 : 5000L;
+            checks[i] = new MetricCheck(metrics[i], MetricCheck.Mode.ALERTING, warning, warning * 3);
+        }
+
+        return checks;
+    }
+
+    /**
+     * @return the properties of a reporter alerting on every metric and reporting every group to the url,
+     *         batched and posted asynchronously over pooled connections
+     */
+    static Map<PropertyDescriptor, String> allMetricsProperties(String url) {
+        final Map<PropertyDescriptor, String> properties = new HashMap<>();
+        properties.put(NagiosNRDPReporter.URL, url);
+        properties.put(NagiosNRDPReporter.TOKEN, TOKEN);
+        properties.put(NagiosNRDPReporter.HOSTNAME, HOSTNAME);
+        properties.put(NagiosNRDPReporter.SUBMISSION_MODE, NagiosNRDPReporter.BATCHED_VALUE);
+        properties.put(NagiosNRDPReporter.DELIVERY_MODE, NagiosNRDPReporter.ASYNCHRONOUS_VALUE);
+        properties.put(NagiosNRDPReporter.TRANSPORT, NagiosNRDPReporter.POOLED_HTTP_VALUE);
+
+        alert(properties, NagiosNRDPReporter.ACTIVE_THREAD_COUNT, NagiosNRDPReporter.ACTIVE_THREAD_COUNT_WARN, NagiosNRDPReporter.ACTIVE_THREAD_COUNT_CRIT, "8", "14");
+        alert(properties, NagiosNRDPReporter.FLOWFILES_QUEUED, NagiosNRDPReporter.FLOWFILES_QUEUED_WARN, NagiosNRDPReporter.FLOWFILES_QUEUED_CRIT, "5000", "15000");
+        alert(properties, NagiosNRDPReporter.BYTES_QUEUED, NagiosNRDPReporter.BYTES_QUEUED_WARN, NagiosNRDPReporter.BYTES_QUEUED_CRIT, "512 MB", "1536 MB");
+        alert(properties, NagiosNRDPReporter.BYTES_IN, NagiosNRDPReporter.BYTES_IN_WARN, NagiosNRDPReporter.BYTES_IN_CRIT, "512 MB", "1536 MB");
+        alert(properties, NagiosNRDPReporter.BYTES_OUT, NagiosNRDPReporter.BYTES_OUT_WARN, NagiosNRDPReporter.BYTES_OUT_CRIT, "512 MB", "1536 MB");
+        alert(properties, NagiosNRDPReporter.FLOWFILES_IN, NagiosNRDPReporter.FLOWFILES_IN_WARN, NagiosNRDPReporter.FLOWFILES_IN_CRIT, "50000", "90000");
+        alert(properties, NagiosNRDPReporter.FLOWFILES_OUT, NagiosNRDPReporter.FLOWFILES_OUT_WARN, NagiosNRDPReporter.FLOWFILES_OUT_CRIT, "50000", "90000");
+        alert(properties, NagiosNRDPReporter.BYTES_READ, NagiosNRDPReporter.BYTES_READ_WARN, NagiosNRDPReporter.BYTES_READ_CRIT, "512 MB", "1536 MB");
+        alert(properties, NagiosNRDPReporter.BYTES_WRITTEN, NagiosNRDPReporter.BYTES_WRITTEN_WARN, NagiosNRDPReporter.BYTES_WRITTEN_CRIT, "512 MB", "1536 MB");
+
+        return properties;
+    }
+
+    private static void alert(Map<PropertyDescriptor, String> properties, PropertyDescriptor mode,
+            PropertyDescriptor warning, PropertyDescriptor critical, String warningValue, String criticalValue) {
+        properties.put(mode, NagiosNRDPReporter.ALERTING_VALUE);
+        properties.put(warning, warningValue);
+        properties.put(critical, criticalValue);
+    }
+
+    /**
+     * Initializes and schedules a reporter, returning the mock context to trigger it with.
+     */
+    static MockReportingContext schedule(NagiosNRDPReporter reporter, Map<PropertyDescriptor, String> properties, ProcessGroupStatus root)
+            throws InitializationException, IOException {
+
+        reporter.initialize(new MockReportingInitializationContext("benchmark", "NagiosNRDPReporter", new MockComponentLog("benchmark", reporter)));
+
+        final MockReportingContext context = new MockReportingContext(Collections.<String, ControllerService>emptyMap(),
+            new MockStateManager(reporter), VariableRegistry.EMPTY_REGISTRY);
+        context.setProperties(properties);
+        context.getEventAccess().setProcessGroupStatus(root);
+
+        reporter.onScheduled(new MockConfigurationContext(properties, null));
+
+        return context;
+    }
+}
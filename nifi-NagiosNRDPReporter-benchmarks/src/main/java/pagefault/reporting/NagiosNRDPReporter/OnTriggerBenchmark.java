@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.util.MockReportingContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs onTrigger end to end, including the HTTP round trips, against a loopback NRDP endpoint.
+ * Delivery is synchronous so every submission is part of the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OnTriggerBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int groups;
+
+    @Param({"Pooled HTTP Client", "HTTP URL Connection"})
+    public String transport;
+
+    @Param({"XML", "JSON"})
+    public String format;
+
+    private LoopbackNrdpServer server;
+    private NagiosNRDPReporter reporter;
+    private MockReportingContext context;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new LoopbackNrdpServer();
+
+        final Map<PropertyDescriptor, String> properties = Benchmarks.allMetricsProperties(server.getUrl());
+        properties.put(NagiosNRDPReporter.DELIVERY_MODE, NagiosNRDPReporter.SYNCHRONOUS_VALUE);
+        properties.put(NagiosNRDPReporter.TRANSPORT, transport);
+        properties.put(NagiosNRDPReporter.PAYLOAD_FORMAT, format);
+
+        reporter = new NagiosNRDPReporter();
+        context = Benchmarks.schedule(reporter, properties, SyntheticFlow.tree(groups));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reporter.onStopped();
+        server.close();
+    }
+
+    @Benchmark
+    public void onTrigger() {
+        reporter.onTrigger(context);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes and URL-encodes pre-evaluated check results into a submission body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadEncodingBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    public int groups;
+
+    @Param({"XML", "JSON"})
+    public String format;
+
+    private final CheckResultPayload payload = new CheckResultPayload();
+
+    private CheckResultPayload.Format payloadFormat;
+
+    private String[] servicenames;
+    private NagiosNRDPReporter.nagiosResult[] results;
+
+    @Setup
+    public void setup() {
+        payloadFormat = CheckResultPayload.Format.valueOf(format);
+
+        final MetricCheck[] checks = Benchmarks.alertingChecks();
+        final List<String> names = new ArrayList<>();
+        final List<NagiosNRDPReporter.nagiosResult> evaluated = new ArrayList<>();
+
+        for (final ProcessGroupStatus group : ProcessGroupTraversal.flatten(SyntheticFlow.tree(groups), GroupFilter.ALL, null)) {
+            for (final MetricCheck check : checks) {
+                final long value = check.getMetric().value(group);
+                names.add(group.getName() + check.getMetric().getServiceSuffix());
+                evaluated.add(check.evaluate(value, check.state(value)));
+            }
+        }
+
+        servicenames = names.toArray(new String[names.size()]);
+        results = evaluated.toArray(new NagiosNRDPReporter.nagiosResult[evaluated.size()]);
+    }
+
+    @Benchmark
+    public int encode() {
+        payload.begin(Benchmarks.TOKEN, payloadFormat);
+        for (int i = 0; i < results.length; i++)
+            payload.addCheckResult(servicenames[i], Benchmarks.HOSTNAME, results[i].getState(), results[i].getOutput(), results[i].getPerformance());
+        payload.end();
+        return payload.length();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.nifi.controller.status.ConnectionStatus;
+import org.apache.nifi.controller.status.PortStatus;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.ProcessorStatus;
+import org.apache.nifi.controller.status.RemoteProcessGroupStatus;
+
+/**
+ * Builds deterministic synthetic process group trees for the benchmarks and the load harness.
+ */
+final class SyntheticFlow {
+
+    private static final String[] NAME_PARTS = {"Ingest", "Route & Filter", "Enrich <geo>", "Publish", "Archive", "Zürich Feed", "Retry"};
+
+    private SyntheticFlow() {
+    }
+
+    /**
+     * @param groups total number of process groups, including the root group
+     * @param fanOut number of child groups of every non-leaf group
+     */
+    static ProcessGroupStatus tree(int groups, int fanOut, long seed) {
+
+        final Random random = new Random(seed);
+        final List<ProcessGroupStatus> all = new ArrayList<>(groups);
+
+        final ProcessGroupStatus root = group("root", "NiFi Flow", random);
+        all.add(root);
+
+        for (int i = 1; i < groups; i++) {
+            final ProcessGroupStatus group = group(String.format("%08x-0000-4000-8000-%012x", seed, i),
+                NAME_PARTS[i % NAME_PARTS.length] + " " + i, random);
+            all.get((i - 1) / fanOut).getProcessGroupStatus().add(group);
+            all.add(group);
+        }
+
+        return root;
+    }
+
+    static ProcessGroupStatus tree(int groups) {
+        return tree(groups, 8, 42L);
+    }
+
+    private static ProcessGroupStatus group(String id, String name, Random random) {
+
+        final ProcessGroupStatus group = new ProcessGroupStatus();
+        group.setId(id);
+        group.setName(name);
+        group.setActiveThreadCount(random.nextInt(16));
+        group.setQueuedCount(random.nextInt(20000));
+        group.setQueuedContentSize((long) random.nextInt(Integer.MAX_VALUE));
+        group.setBytesReceived((long) random.nextInt(Integer.MAX_VALUE));
+        group.setFlowFilesReceived(random.nextInt(100000));
+        group.setBytesSent((long) random.nextInt(Integer.MAX_VALUE));
+        group.setFlowFilesSent(random.nextInt(100000));
+        group.setInputCount(random.nextInt(100000));
+        group.setInputContentSize((long) random.nextInt(Integer.MAX_VALUE));
+        group.setOutputCount(random.nextInt(100000));
+        group.setOutputContentSize((long) random.nextInt(Integer.MAX_VALUE));
+        group.setBytesRead((long) random.nextInt(Integer.MAX_VALUE));
+        group.setBytesWritten((long) random.nextInt(Integer.MAX_VALUE));
+        group.setProcessGroupStatus(new ArrayList<ProcessGroupStatus>());
+        group.setConnectionStatus(new ArrayList<ConnectionStatus>());
+        group.setProcessorStatus(new ArrayList<ProcessorStatus>());
+        group.setRemoteProcessGroupStatus(new ArrayList<RemoteProcessGroupStatus>());
+        group.setInputPortStatus(new ArrayList<PortStatus>());
+        group.setOutputPortStatus(new ArrayList<PortStatus>());
+        return group;
+    }
+}
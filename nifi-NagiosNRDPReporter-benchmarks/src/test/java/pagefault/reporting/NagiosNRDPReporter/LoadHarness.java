@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.util.MockReportingContext;
+
+/**
+ * Soak and load harness driving NagiosNRDPReporter.onTrigger against the NRDP simulator.
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=pagefault.reporting.NagiosNRDPReporter.LoadHarness \
+ *     -Dexec.args="--groups=50000 --duration=300 --latency=200 --error-rate=0.05 'Delivery Mode=Asynchronous'"
+ * </pre>
+ *
+ * Options starting with -- configure the harness and the simulator, every other name=value argument
+ * sets the reporter property with that name. Reports the sustained rate of check results accepted by
+ * the simulator and the distribution of the time spent in onTrigger.
+ */
+public final class LoadHarness {
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        final Map<String, String> options = new HashMap<>();
+        final Map<String, String> properties = new HashMap<>();
+
+        for (final String arg : args) {
+            final int separator = arg.indexOf('=');
+            if (separator < 0)
+                throw new IllegalArgumentException("Expected name=value but got " + arg);
+
+            if (arg.startsWith("--"))
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            else
+                properties.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        final int groups = intOption(options, "groups", 10000);
+        final int fanOut = intOption(options, "fan-out", 8);
+        final long durationMillis = TimeUnit.SECONDS.toMillis(intOption(options, "duration", 60));
+        final long intervalMillis = intOption(options, "interval", 0);
+        final long reportMillis = TimeUnit.SECONDS.toMillis(intOption(options, "report", 10));
+        final long outageStartMillis = TimeUnit.SECONDS.toMillis(intOption(options, "outage-start", -1));
+        final long outageMillis = TimeUnit.SECONDS.toMillis(intOption(options, "outage-length", 0));
+        final double errorRate = options.containsKey("error-rate") ? Double.parseDouble(options.get("error-rate")) : 0.0;
+
+        try (NrdpSimulator simulator = new NrdpSimulator(Benchmarks.TOKEN, intOption(options, "server-threads", 4))) {
+
+            simulator.setLatency(intOption(options, "latency", 0), TimeUnit.MILLISECONDS)
+                .setErrorRate(errorRate)
+                .setMaxPayloadBytes(intOption(options, "max-payload", Integer.MAX_VALUE));
+
+            final NagiosNRDPReporter reporter = new NagiosNRDPReporter();
+            final Map<PropertyDescriptor, String> reporterProperties = Benchmarks.allMetricsProperties(simulator.getUrl());
+
+            for (final Map.Entry<String, String> property : properties.entrySet()) {
+                final PropertyDescriptor descriptor = reporter.getPropertyDescriptor(property.getKey());
+                if (descriptor == null)
+                    throw new IllegalArgumentException("Unknown property " + property.getKey());
+                reporterProperties.put(descriptor, property.getValue());
+            }
+
+            final MockReportingContext context = Benchmarks.schedule(reporter, reporterProperties, SyntheticFlow.tree(groups, fanOut, 42L));
+
+            System.out.printf("Reporting %d process groups to %s for %d s%n", groups, simulator.getUrl(), TimeUnit.MILLISECONDS.toSeconds(durationMillis));
+
+            long[] triggerNanos = new long[1024];
+            int triggers = 0;
+
+            final long start = System.currentTimeMillis();
+            long nextReport = start + reportMillis;
+            long reportedChecks = 0L;
+            long now;
+
+            while ((now = System.currentTimeMillis()) - start < durationMillis) {
+
+                final long elapsed = now - start;
+                final boolean outage = outageStartMillis >= 0 && elapsed >= outageStartMillis && elapsed < outageStartMillis + outageMillis;
+                simulator.setErrorRate(outage ? 1.0 : errorRate);
+
+                final long triggerStart = System.nanoTime();
+                reporter.onTrigger(context);
+                final long triggerTime = System.nanoTime() - triggerStart;
+
+                if (triggers == triggerNanos.length)
+                    triggerNanos = Arrays.copyOf(triggerNanos, triggers << 1);
+                triggerNanos[triggers++] = triggerTime;
+
+                if (now >= nextReport) {
+                    final long checks = simulator.getChecks();
+                    System.out.printf("%6d s  triggers %7d  checks/s %10.0f  requests %7d  failed %6d  rejected %6d%s%n",
+                        TimeUnit.MILLISECONDS.toSeconds(elapsed), triggers,
+                        (checks - reportedChecks) * 1000.0 / reportMillis,
+                        simulator.getRequests(), simulator.getFailed(), simulator.getRejected(), outage ? "  (outage)" : "");
+                    reportedChecks = checks;
+                    nextReport += reportMillis;
+                }
+
+                if (intervalMillis > 0)
+                    Thread.sleep(intervalMillis);
+            }
+
+            final long runMillis = System.currentTimeMillis() - start;
+            reporter.onStopped();
+
+            final long[] sorted = Arrays.copyOf(triggerNanos, triggers);
+            Arrays.sort(sorted);
+
+            System.out.println();
+            System.out.printf("triggers          %d%n", triggers);
+            System.out.printf("checks accepted   %d (%.0f/s)%n", simulator.getChecks(), simulator.getChecks() * 1000.0 / runMillis);
+            System.out.printf("requests          %d, %d bytes%n", simulator.getRequests(), simulator.getBytes());
+            System.out.printf("requests failed   %d%n", simulator.getFailed());
+            System.out.printf("requests rejected %d%n", simulator.getRejected());
+            System.out.printf("onTrigger ms      p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+        }
+
+        System.exit(0);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0)
+            return 0.0;
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        final String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
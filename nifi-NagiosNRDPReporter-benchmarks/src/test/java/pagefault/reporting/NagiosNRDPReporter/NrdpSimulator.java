@@ -0,0 +1,283 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stand-in NRDP server on the loopback interface, built on the JDK HTTP server.
+ *
+ * Accepts form encoded cmd=submitcheck posts, optionally gzip compressed, parses the XMLDATA or
+ * JSONDATA document and answers with the
+ * result/status and result/message document NRDP returns. Latency, the share of requests failing
+ * with an HTTP 503 and the largest accepted request body can be configured to simulate a slow,
+ * failing or strict server.
+ */
+final class NrdpSimulator implements AutoCloseable {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String token;
+
+    private volatile long latencyMillis = 0L;
+    private volatile double errorRate = 0.0;
+    private volatile int maxPayloadBytes = Integer.MAX_VALUE;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    NrdpSimulator(String token, int threads) throws IOException {
+        this.token = token;
+
+        // the JDK server delays small responses by the Nagle timeout unless TCP_NODELAY is set
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        executor = Executors.newFixedThreadPool(threads);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    handleExchange(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/nrdp/";
+    }
+
+    NrdpSimulator setLatency(long latency, TimeUnit unit) {
+        this.latencyMillis = unit.toMillis(latency);
+        return this;
+    }
+
+    /**
+     * @param errorRate share of requests, between 0 and 1, answered with an HTTP 503
+     */
+    NrdpSimulator setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    NrdpSimulator setMaxPayloadBytes(int maxPayloadBytes) {
+        this.maxPayloadBytes = maxPayloadBytes;
+        return this;
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of check results accepted
+     */
+    long getChecks() {
+        return checks.get();
+    }
+
+    long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return the number of requests answered with a simulated HTTP error
+     */
+    long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return the number of requests rejected because they were too large or invalid
+     */
+    long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleExchange(HttpExchange exchange) throws IOException {
+
+        requests.incrementAndGet();
+
+        final boolean gzip = "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        final byte[] body = readBody(gzip ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody());
+        bytes.addAndGet(body.length);
+
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        if (errorRate > 0.0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            failed.incrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            return;
+        }
+
+        if (body.length > maxPayloadBytes) {
+            rejected.incrementAndGet();
+            exchange.sendResponseHeaders(413, -1);
+            return;
+        }
+
+        String cmd = null;
+        String submittedToken = null;
+        String xmlData = null;
+        String jsonData = null;
+
+        for (final String parameter : new String(body, StandardCharsets.US_ASCII).split("&")) {
+            final int separator = parameter.indexOf('=');
+            if (separator < 0)
+                continue;
+
+            final String name = parameter.substring(0, separator);
+            final String value = URLDecoder.decode(parameter.substring(separator + 1), "UTF-8");
+
+            if (name.equals("cmd"))
+                cmd = value;
+            else if (name.equals("token"))
+                submittedToken = value;
+            else if (name.equals("XMLDATA"))
+                xmlData = value;
+            else if (name.equals("JSONDATA"))
+                jsonData = value;
+        }
+
+        if (token != null && !token.equals(submittedToken)) {
+            rejected.incrementAndGet();
+            respond(exchange, -1, "BAD TOKEN", null);
+            return;
+        }
+
+        if (!"submitcheck".equals(cmd) || (xmlData == null && jsonData == null)) {
+            rejected.incrementAndGet();
+            respond(exchange, -1, "NO DATA", null);
+            return;
+        }
+
+        final int submitted;
+        try {
+            submitted = xmlData != null ? countCheckResults(xmlData) : countJsonCheckResults(jsonData);
+        } catch (XMLStreamException e) {
+            rejected.incrementAndGet();
+            respond(exchange, -1, xmlData != null ? "BAD XML" : "BAD JSON", null);
+            return;
+        }
+
+        checks.addAndGet(submitted);
+        respond(exchange, 0, "OK", submitted + " checks processed.");
+    }
+
+    private static int countJsonCheckResults(String jsonData) throws XMLStreamException {
+        if (!jsonData.startsWith("{\"checkresults\":[") || !jsonData.endsWith("]}"))
+            throw new XMLStreamException("Not a checkresults document");
+
+        int count = 0;
+        for (int i = jsonData.indexOf("\"checkresult\":"); i >= 0; i = jsonData.indexOf("\"checkresult\":", i + 1))
+            count++;
+        return count;
+    }
+
+    private static int countCheckResults(String xmlData) throws XMLStreamException {
+        final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(xmlData));
+        int count = 0;
+
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("checkresult"))
+                    count++;
+            }
+        } finally {
+            reader.close();
+        }
+
+        return count;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String message, String output) throws IOException {
+        final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?>\n<result>\n  <status>")
+            .append(status).append("</status>\n  <message>").append(message).append("</message>\n");
+
+        if (output != null)
+            xml.append("  <meta>\n    <output>").append(output).append("</output>\n  </meta>\n");
+
+        final byte[] response = xml.append("</result>\n").toString().getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+
+        try {
+            while ((read = in.read(buffer)) >= 0)
+                out.write(buffer, 0, read);
+        } finally {
+            in.close();
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.reporting.Bulletin;
+import org.apache.nifi.reporting.BulletinQuery;
+import org.apache.nifi.reporting.BulletinRepository;
+
+/**
+ * Counts the error and warning bulletins of every process group over a rolling window and alerts
+ * on the number of error bulletins, a group counting the bulletins of the groups below it.
+ *
+ * Only the bulletins after the last one seen are queried. A run without new bulletins, while no
+ * group has any left in its window, returns right after the query. Groups are reported while they
+ * have bulletins in the window, and once more when the last one expired so their service recovers.
+ * Not thread safe, only used from onTrigger.
+ */
+final class BulletinMonitor {
+
+    static final String SERVICE_SUFFIX = " - NiFi Bulletins";
+
+    private static final int MAX_BULLETINS = 10000;
+    private static final int ERROR = 0;
+    private static final int WARNING = 1;
+
+    private final MetricCheck.Mode mode;
+    private final String windowLabel;
+    private final double windowMinutes;
+    private final long warningErrors;
+    private final long criticalErrors;
+    private final RollingCounterTable counts;
+
+    private Long lastId = null;
+    private Set<String> active = new HashSet<>();
+
+    /**
+     * @param windowLabel the window as configured, for the check output
+     */
+    BulletinMonitor(MetricCheck.Mode mode, long windowMillis, String windowLabel, long warningErrors, long criticalErrors) {
+        this.mode = mode;
+        this.windowLabel = windowLabel;
+        this.windowMinutes = windowMillis / 60000.0;
+        this.warningErrors = warningErrors;
+        this.criticalErrors = criticalErrors;
+        this.counts = new RollingCounterTable(windowMillis);
+    }
+
+    /**
+     * Counts the bulletins created since the previous run and reports the groups that had any in the window.
+     *
+     * @param index the whole flow, to count bulletins towards the groups above their own
+     * @param groups the groups to report
+     * @return the number of check results reported
+     */
+    int report(BulletinRepository repository, FlowIndex index, List<ProcessGroupStatus> groups, CheckResultSink sink, long nowMillis) {
+
+        final List<Bulletin> bulletins = repository.findBulletins(new BulletinQuery.Builder().after(lastId).limit(MAX_BULLETINS).build());
+        final boolean fresh = bulletins != null && !bulletins.isEmpty();
+
+        if (!fresh && active.isEmpty())
+            return 0;
+
+        if (fresh)
+            count(bulletins, index, nowMillis);
+
+        final Set<String> stillActive = new HashSet<>();
+        int reported = 0;
+
+        for (final ProcessGroupStatus group : groups) {
+            final long hash = SuppressionTable.hash(group.getId());
+            final long errors = counts.sum(SuppressionTable.key(hash, ERROR), nowMillis);
+            final long warnings = counts.sum(SuppressionTable.key(hash, WARNING), nowMillis);
+
+            if (errors + warnings > 0L)
+                stillActive.add(group.getId());
+            else if (!active.contains(group.getId()))
+                continue;
+
+            sink.accept(group.getName() + SERVICE_SUFFIX, result(errors, warnings));
+            reported++;
+        }
+
+        active = stillActive;
+        counts.sweep(nowMillis);
+
+        return reported;
+    }
+
+    private void count(List<Bulletin> bulletins, FlowIndex index, long nowMillis) {
+
+        for (final Bulletin bulletin : bulletins) {
+
+            if (lastId != null && bulletin.getId() <= lastId)
+                continue;
+
+            final int severity = "ERROR".equals(bulletin.getLevel()) ? ERROR : "WARNING".equals(bulletin.getLevel()) ? WARNING : -1;
+            final long timeMillis = bulletin.getTimestamp() == null ? nowMillis : bulletin.getTimestamp().getTime();
+
+            if (severity < 0 || bulletin.getGroupId() == null)
+                continue;
+
+            final int group = index.indexOf(bulletin.getGroupId());
+
+            if (group < 0)
+                counts.add(SuppressionTable.key(SuppressionTable.hash(bulletin.getGroupId()), severity), timeMillis, nowMillis);
+
+            for (int g = group; g >= 0; g = index.getParent(g))
+                counts.add(SuppressionTable.key(SuppressionTable.hash(index.getId(g)), severity), timeMillis, nowMillis);
+        }
+
+        // a separate pass, the repository does not promise any order
+        long maxId = lastId == null ? -1L : lastId;
+        for (final Bulletin bulletin : bulletins)
+            maxId = Math.max(maxId, bulletin.getId());
+        lastId = maxId;
+    }
+
+    private NagiosNRDPReporter.nagiosResult result(long errors, long warnings) {
+
+        int state = MetricCheck.STATE_OK;
+        if (mode == MetricCheck.Mode.ALERTING) {
+            if (errors >= criticalErrors)
+                state = MetricCheck.STATE_CRITICAL;
+            else if (errors >= warningErrors)
+                state = MetricCheck.STATE_WARNING;
+        }
+
+        final String output = "BULLETINS" + MetricCheck.stateLabel(state) + errors + " error and " + warnings
+            + " warning bulletins in the last " + windowLabel;
+        final String performance = "error_bulletins=" + errors + " warning_bulletins=" + warnings
+            + " error_bulletins_per_minute=" + String.format(Locale.ROOT, "%.2f", errors / windowMinutes);
+
+        return new NagiosNRDPReporter.nagiosResult(state, output, performance);
+    }
+}
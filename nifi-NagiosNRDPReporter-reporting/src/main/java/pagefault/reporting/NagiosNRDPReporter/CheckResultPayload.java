@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable, form-urlencoded NRDP submitcheck request body.
+ *
+ * The checkresults document, either XMLDATA or JSONDATA, is written straight into a growable byte
+ * buffer, escaping and application/x-www-form-urlencoded encoding are applied on the fly,
+ * so no DOM, Transformer or intermediate String copies are needed.
+ */
+final class CheckResultPayload {
+
+    enum Format {
+        XML(new Markup("&cmd=submitcheck&XMLDATA=",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?><checkresults>",
+            "</checkresults>",
+            "",
+            "<checkresult checktype=\"1\" type=\"service\"><servicename>",
+            "</servicename><hostname>",
+            "</hostname><state>",
+            "</state><output>",
+            "</output></checkresult>")),
+        JSON(new Markup("&cmd=submitcheck&JSONDATA=",
+            "{\"checkresults\":[",
+            "]}",
+            ",",
+            "{\"checkresult\":{\"type\":\"service\",\"checktype\":\"1\"},\"servicename\":\"",
+            "\",\"hostname\":\"",
+            "\",\"state\":\"",
+            "\",\"output\":\"",
+            "\"}"));
+
+        private final Markup markup;
+
+        Format(Markup markup) {
+            this.markup = markup;
+        }
+    }
+
+    private static final class Markup {
+
+        private final byte[] dataParam;
+        private final byte[] checkresultsOpen;
+        private final byte[] checkresultsClose;
+        private final byte[] separator;
+        private final byte[] checkresultOpen;
+        private final byte[] hostnameOpen;
+        private final byte[] stateOpen;
+        private final byte[] outputOpen;
+        private final byte[] checkresultClose;
+
+        Markup(String dataParam, String checkresultsOpen, String checkresultsClose, String separator,
+                String checkresultOpen, String hostnameOpen, String stateOpen, String outputOpen, String checkresultClose) {
+            this.dataParam = dataParam.getBytes(StandardCharsets.US_ASCII);
+            this.checkresultsOpen = encodeMarkup(checkresultsOpen);
+            this.checkresultsClose = encodeMarkup(checkresultsClose);
+            this.separator = encodeMarkup(separator);
+            this.checkresultOpen = encodeMarkup(checkresultOpen);
+            this.hostnameOpen = encodeMarkup(hostnameOpen);
+            this.stateOpen = encodeMarkup(stateOpen);
+            this.outputOpen = encodeMarkup(outputOpen);
+            this.checkresultClose = encodeMarkup(checkresultClose);
+        }
+    }
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] TOKEN_PARAM = "token=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PERFORMANCE_SEPARATOR = encodeMarkup(" | ");
+
+    private static final int ESCAPE_NONE = 0;
+    private static final int ESCAPE_XML = 1;
+    private static final int ESCAPE_JSON = 2;
+
+    private byte[] buf;
+    private int count = 0;
+    private int checks = 0;
+    private Format format = Format.XML;
+    private boolean fragment = false;
+
+    CheckResultPayload() {
+        this(8192);
+    }
+
+    CheckResultPayload(int initialCapacity) {
+        this.buf = new byte[initialCapacity];
+    }
+
+    void begin(String token, Format format) {
+        count = 0;
+        checks = 0;
+        this.format = format;
+        this.fragment = false;
+        write(TOKEN_PARAM);
+        writeEncoded(token, ESCAPE_NONE);
+        write(format.markup.dataParam);
+        write(format.markup.checkresultsOpen);
+    }
+
+    /**
+     * Starts a fragment holding only checkresult elements, to be appended to a submission later.
+     * Every checkresult of a fragment starts with the separator, which append drops when needed.
+     */
+    void beginFragment(Format format) {
+        count = 0;
+        checks = 0;
+        this.format = format;
+        this.fragment = true;
+    }
+
+    /**
+     * Appends the encoded checkresult elements between two offsets of a fragment.
+     */
+    void append(CheckResultPayload fragment, int from, int to, int fragmentChecks) {
+        if (checks == 0 && fragmentChecks > 0)
+            from += format.markup.separator.length;
+
+        final int length = to - from;
+        ensureCapacity(length);
+        System.arraycopy(fragment.buf, from, buf, count, length);
+        count += length;
+        checks += fragmentChecks;
+    }
+
+    void addCheckResult(String servicename, String hostname, int state, String output, String performance) {
+        final Markup markup = format.markup;
+        final int escape = format == Format.JSON ? ESCAPE_JSON : ESCAPE_XML;
+
+        if (fragment || checks > 0)
+            write(markup.separator);
+
+        write(markup.checkresultOpen);
+        writeEncoded(servicename, escape);
+        write(markup.hostnameOpen);
+        writeEncoded(hostname, escape);
+        write(markup.stateOpen);
+        if (state >= 0 && state <= 9)
+            writeEncodedByte('0' + state);
+        else
+            writeEncoded(Integer.toString(state), ESCAPE_NONE);
+        write(markup.outputOpen);
+        writeEncoded(output, escape);
+
+        if (performance != null) {
+            write(PERFORMANCE_SEPARATOR);
+            writeEncoded(performance, escape);
+        }
+
+        write(markup.checkresultClose);
+        checks++;
+    }
+
+    void end() {
+        write(format.markup.checkresultsClose);
+    }
+
+    int getChecks() {
+        return checks;
+    }
+
+    int length() {
+        return count;
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    /**
+     * @return a copy of a request body built by this class, with its token replaced
+     */
+    static byte[] withToken(byte[] body, int length, String token) {
+
+        int tokenEnd = TOKEN_PARAM.length;
+        while (tokenEnd < length && body[tokenEnd] != '&')
+            tokenEnd++;
+
+        final CheckResultPayload copy = new CheckResultPayload(length + token.length() * 3);
+        copy.write(TOKEN_PARAM);
+        copy.writeEncoded(token, ESCAPE_NONE);
+        copy.ensureCapacity(length - tokenEnd);
+        System.arraycopy(body, tokenEnd, copy.buf, copy.count, length - tokenEnd);
+        copy.count += length - tokenEnd;
+
+        return copy.count == copy.buf.length ? copy.buf : Arrays.copyOf(copy.buf, copy.count);
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void writeEncoded(CharSequence value, int escape) {
+        final int len = value.length();
+
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+
+            if (escape == ESCAPE_XML) {
+                switch (c) {
+                    case '&':  writeEncodedAscii("&amp;");  continue;
+                    case '<':  writeEncodedAscii("&lt;");   continue;
+                    case '>':  writeEncodedAscii("&gt;");   continue;
+                    case '"':  writeEncodedAscii("&quot;"); continue;
+                    case '\'': writeEncodedAscii("&apos;"); continue;
+                    default:
+                }
+            } else if (escape == ESCAPE_JSON && (c == '"' || c == '\\' || c < 0x20)) {
+                writeEncodedByte('\\');
+                switch (c) {
+                    case '"':  writeEncodedByte('"');  continue;
+                    case '\\': writeEncodedByte('\\'); continue;
+                    case '\n': writeEncodedByte('n');  continue;
+                    case '\r': writeEncodedByte('r');  continue;
+                    case '\t': writeEncodedByte('t');  continue;
+                    default:
+                        writeEncodedAscii("u00");
+                        writeEncodedByte(HEX[(c >> 4) & 0x0F]);
+                        writeEncodedByte(HEX[c & 0x0F]);
+                        continue;
+                }
+            }
+
+            if (c < 0x80) {
+                writeEncodedByte(c);
+            } else if (c < 0x800) {
+                writeEncodedByte(0xC0 | (c >> 6));
+                writeEncodedByte(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                writeEncodedByte(0xF0 | (cp >> 18));
+                writeEncodedByte(0x80 | ((cp >> 12) & 0x3F));
+                writeEncodedByte(0x80 | ((cp >> 6) & 0x3F));
+                writeEncodedByte(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                writeEncodedByte('?');
+            } else {
+                writeEncodedByte(0xE0 | (c >> 12));
+                writeEncodedByte(0x80 | ((c >> 6) & 0x3F));
+                writeEncodedByte(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeEncodedAscii(String value) {
+        for (int i = 0; i < value.length(); i++)
+            writeEncodedByte(value.charAt(i));
+    }
+
+    private void writeEncodedByte(int b) {
+        ensureCapacity(3);
+
+        if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '.' || b == '-' || b == '*' || b == '_') {
+            buf[count++] = (byte) b;
+        } else if (b == ' ') {
+            buf[count++] = (byte) '+';
+        } else {
+            buf[count++] = (byte) '%';
+            buf[count++] = HEX[(b >> 4) & 0x0F];
+            buf[count++] = HEX[b & 0x0F];
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buf.length)
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + extra));
+    }
+
+    private static byte[] encodeMarkup(String markup) {
+        CheckResultPayload encoder = new CheckResultPayload(markup.length() * 3);
+        encoder.writeEncoded(markup, ESCAPE_NONE);
+        return Arrays.copyOf(encoder.buf, encoder.count);
+    }
+}
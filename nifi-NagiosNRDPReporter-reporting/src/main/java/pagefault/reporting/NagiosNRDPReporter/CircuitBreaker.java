@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Circuit breaker around the submissions to an NRDP endpoint.
+ *
+ * Closed, submissions go through. After the failure threshold of consecutive failures it opens and
+ * rejects submissions without touching the network until its backoff expired, then lets a single
+ * probe submission through (half open). A successful probe closes it, a failed one opens it again
+ * with twice the backoff, up to the maximum. Backoffs are jittered so several reporters do not probe
+ * a recovering NRDP server in lockstep.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long backoffNanos;
+    private long openUntilNanos = 0L;
+    private long probeDeadlineNanos = 0L;
+    private long rejected = 0L;
+
+    CircuitBreaker(int failureThreshold, long initialBackoffNanos, long maxBackoffNanos) {
+        this.failureThreshold = failureThreshold;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = Math.max(initialBackoffNanos, maxBackoffNanos);
+        this.backoffNanos = initialBackoffNanos;
+    }
+
+    /**
+     * @return true when a submission may be sent; in the open state this reserves the single probe
+     */
+    synchronized boolean tryAcquire(long nowNanos) {
+
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nowNanos - openUntilNanos >= 0L) {
+                    state = State.HALF_OPEN;
+                    probeDeadlineNanos = nowNanos + maxBackoffNanos;
+                    return true;
+                }
+                break;
+            default:
+                // a probe that never reported back must not keep the breaker half open forever
+                if (nowNanos - probeDeadlineNanos >= 0L) {
+                    probeDeadlineNanos = nowNanos + maxBackoffNanos;
+                    return true;
+                }
+        }
+
+        rejected++;
+        return false;
+    }
+
+    /**
+     * @return the new state when the submission changed it, null otherwise
+     */
+    synchronized State onSuccess() {
+
+        consecutiveFailures = 0;
+
+        if (state == State.CLOSED)
+            return null;
+
+        state = State.CLOSED;
+        backoffNanos = initialBackoffNanos;
+        return state;
+    }
+
+    /**
+     * @return the new state when the submission changed it, null otherwise
+     */
+    synchronized State onFailure(long nowNanos) {
+
+        consecutiveFailures++;
+
+        if (state == State.CLOSED && consecutiveFailures < failureThreshold)
+            return null;
+
+        if (state == State.HALF_OPEN)
+            backoffNanos = Math.min(maxBackoffNanos, backoffNanos << 1);
+
+        final boolean changed = state != State.OPEN;
+        state = State.OPEN;
+
+        // equal jitter: between half and all of the backoff
+        final long half = backoffNanos >>> 1;
+        openUntilNanos = nowNanos + half + ThreadLocalRandom.current().nextLong(half + 1);
+
+        return changed ? state : null;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return the time until the next probe, 0 when the breaker is not open
+     */
+    synchronized long remainingOpenNanos(long nowNanos) {
+        return state == State.OPEN ? Math.max(0L, openUntilNanos - nowNanos) : 0L;
+    }
+
+    /**
+     * @return the number of submissions rejected since the previous call
+     */
+    synchronized long getAndResetRejected() {
+        final long count = rejected;
+        rejected = 0L;
+        return count;
+    }
+}
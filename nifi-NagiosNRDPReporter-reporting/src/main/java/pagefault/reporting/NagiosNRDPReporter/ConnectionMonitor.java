@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.nifi.controller.status.ConnectionStatus;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.processor.DataUnit;
+import org.apache.nifi.util.FormatUtils;
+
+/**
+ * Checks how full every connection is relative to its backpressure thresholds, the larger of the
+ * flowfile count and the data size fill, and reports the fullest connections.
+ *
+ * Only the top connections of a run are reported, picked with a bounded heap. A connection that was
+ * last reported in a warning or critical state keeps being reported until it recovers, even after it
+ * dropped out of the top, so its Nagios service does not stay in alarm. Not thread safe, only used
+ * from onTrigger.
+ */
+final class ConnectionMonitor implements GroupMonitor {
+
+    static final String SERVICE_SUFFIX = " - NiFi Connection Backpressure";
+
+    private static final class Candidate {
+
+        private final String groupName;
+        private final ConnectionStatus connection;
+
+        Candidate(String groupName, ConnectionStatus connection) {
+            this.groupName = groupName;
+            this.connection = connection;
+        }
+    }
+
+    private final MetricCheck.Mode mode;
+    private final long warningPercent;
+    private final long criticalPercent;
+    private final TopN<Candidate> fullest;
+    private final List<Candidate> recovering = new ArrayList<>();
+    private final Map<String, Long> dataSizeThresholds = new HashMap<>();
+
+    private Set<String> alerting = new HashSet<>();
+
+    /**
+     * @param topN number of connections reported per run, 0 reports all
+     */
+    ConnectionMonitor(MetricCheck.Mode mode, long warningPercent, long criticalPercent, int topN) {
+        this.mode = mode;
+        this.warningPercent = warningPercent;
+        this.criticalPercent = criticalPercent;
+        this.fullest = new TopN<>(topN);
+    }
+
+    @Override
+    public void collect(ProcessGroupStatus group) {
+
+        final Collection<ConnectionStatus> connections = group.getConnectionStatus();
+        if (connections == null)
+            return;
+
+        for (final ConnectionStatus connection : connections) {
+            final long fill = fillBasisPoints(connection);
+
+            if (fullest.accepts(fill))
+                fullest.offer(fill, new Candidate(group.getName(), connection));
+
+            if (alerting.contains(connection.getId()))
+                recovering.add(new Candidate(group.getName(), connection));
+        }
+    }
+
+    /**
+     * Reports the fullest connections of the collected groups.
+     */
+    @Override
+    public int report(CheckResultSink sink) {
+
+        fullest.sortDescending();
+
+        final Set<String> stillAlerting = new HashSet<>();
+        final Set<String> reported = new HashSet<>();
+
+        for (int i = 0; i < fullest.size(); i++) {
+            report(fullest.item(i), fullest.score(i), sink, stillAlerting);
+            reported.add(fullest.item(i).connection.getId());
+        }
+
+        // connections in alarm that dropped out of the top must still be reported to recover
+        for (final Candidate candidate : recovering) {
+            if (reported.add(candidate.connection.getId()))
+                report(candidate, fillBasisPoints(candidate.connection), sink, stillAlerting);
+        }
+
+        alerting = stillAlerting;
+        fullest.clear();
+        recovering.clear();
+
+        return reported.size();
+    }
+
+    private void report(Candidate candidate, long fillBasisPoints, CheckResultSink sink, Set<String> stillAlerting) {
+
+        final ConnectionStatus connection = candidate.connection;
+        final long percent = fillBasisPoints / 100;
+        final int state = state(percent);
+
+        if (state != MetricCheck.STATE_OK)
+            stillAlerting.add(connection.getId());
+
+        final String output = "CONNECTION BACKPRESSURE" + MetricCheck.stateLabel(state) + percent + "% of backpressure threshold, "
+            + connection.getQueuedCount() + " flowfiles / " + FormatUtils.formatDataSize(connection.getQueuedBytes()) + " queued";
+        final String performance = "backpressure_fill=" + percent + "% flowfiles_queued=" + connection.getQueuedCount() + " bytes_queued=" + connection.getQueuedBytes() + "B";
+
+        sink.accept(serviceName(candidate.groupName, connection), new NagiosNRDPReporter.nagiosResult(state, output, performance));
+    }
+
+    private int state(long percent) {
+        if (mode != MetricCheck.Mode.ALERTING)
+            return MetricCheck.STATE_OK;
+        if (percent >= criticalPercent)
+            return MetricCheck.STATE_CRITICAL;
+        if (percent >= warningPercent)
+            return MetricCheck.STATE_WARNING;
+        return MetricCheck.STATE_OK;
+    }
+
+    /**
+     * @return the fill of the fuller of the two backpressure thresholds, in hundredths of a percent
+     */
+    long fillBasisPoints(ConnectionStatus connection) {
+
+        long fill = 0L;
+
+        final long objectThreshold = connection.getBackPressureObjectThreshold();
+        if (objectThreshold > 0L)
+            fill = connection.getQueuedCount() * 10000L / objectThreshold;
+
+        final long dataSizeThreshold = dataSizeThreshold(connection.getBackPressureDataSizeThreshold());
+        if (dataSizeThreshold > 0L)
+            fill = Math.max(fill, (long) (connection.getQueuedBytes() * 10000.0 / dataSizeThreshold));
+
+        return fill;
+    }
+
+    /**
+     * Flows use a handful of distinct thresholds, so parsed values are cached instead of parsing every connection's.
+     */
+    private long dataSizeThreshold(String threshold) {
+
+        if (threshold == null)
+            return 0L;
+
+        Long bytes = dataSizeThresholds.get(threshold);
+
+        if (bytes == null) {
+            try {
+                final Double parsed = DataUnit.parseDataSize(threshold, DataUnit.B);
+                bytes = parsed == null ? 0L : parsed.longValue();
+            } catch (IllegalArgumentException e) {
+                bytes = 0L;
+            }
+            dataSizeThresholds.put(threshold, bytes);
+        }
+
+        return bytes;
+    }
+
+    private static String serviceName(String groupName, ConnectionStatus connection) {
+
+        final StringBuilder name = new StringBuilder(groupName).append(" / ")
+            .append(connection.getSourceName()).append(" -> ").append(connection.getDestinationName());
+
+        if (connection.getName() != null && !connection.getName().isEmpty())
+            name.append(" [").append(connection.getName()).append(']');
+
+        return name.append(SERVICE_SUFFIX).toString();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes submissions to one or more NRDP endpoints.
+ * <ul>
+ * <li>Failover sends to the first endpoint that accepts, in the configured order.</li>
+ * <li>Round robin spreads submissions over the endpoints, falling back to the next on failure.</li>
+ * <li>Broadcast sends to every endpoint.</li>
+ * </ul>
+ * Endpoints whose circuit breaker is open are skipped without touching the network, so when every
+ * endpoint is down a submission fails immediately, and slow or failing endpoints are only tried after
+ * the healthy ones, apart from their periodic trials, see {@link NrdpEndpoint#isDegraded(long)}. Thread safe.
+ */
+final class EndpointRouter {
+
+    enum Mode {
+        FAILOVER,
+        ROUND_ROBIN,
+        BROADCAST
+    }
+
+    interface Poster {
+        /**
+         * @return true when the endpoint received the submission
+         */
+        boolean post(NrdpEndpoint endpoint);
+    }
+
+    private final NrdpEndpoint[] endpoints;
+    private final Mode mode;
+    private final AtomicInteger next = new AtomicInteger();
+
+    EndpointRouter(NrdpEndpoint[] endpoints, Mode mode) {
+        this.endpoints = endpoints;
+        this.mode = mode;
+    }
+
+    NrdpEndpoint[] getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return true when at least one endpoint received the submission
+     */
+    boolean route(Poster poster) {
+
+        final long nowNanos = System.nanoTime();
+        final int count = endpoints.length;
+        final int first = mode == Mode.ROUND_ROBIN ? Math.floorMod(next.getAndIncrement(), count) : 0;
+        final boolean[] degraded = new boolean[count];
+        boolean delivered = false;
+
+        // healthy endpoints first, then the degraded ones
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < count; i++) {
+                final int index = (first + i) % count;
+                final NrdpEndpoint endpoint = endpoints[index];
+
+                // asked once per submission, the answer may hand out the endpoint's trial
+                if (pass == 0)
+                    degraded[index] = endpoint.isDegraded(nowNanos);
+
+                if (degraded[index] != (pass == 1) || !endpoint.tryAcquire(nowNanos))
+                    continue;
+
+                if (poster.post(endpoint)) {
+                    if (mode != Mode.BROADCAST)
+                        return true;
+                    delivered = true;
+                }
+            }
+        }
+
+        return delivered;
+    }
+
+    void close() {
+        for (final NrdpEndpoint endpoint : endpoints)
+            endpoint.close();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends the metrics of every run to a local file, as CSV or InfluxDB line protocol.
+ *
+ * The file is opened for every run and closed afterwards, so it can be rotated by moving it away.
+ * Growth metrics are left out, their raw values are the queued counters already exported.
+ */
+final class FileMetricExporter implements MetricExporter {
+
+    enum Format {
+        CSV, LINE_PROTOCOL
+    }
+
+    static final String CSV_HEADER = "timestamp,group_id,group_name,metric,value\n";
+    static final String MEASUREMENT = "nifi_process_group";
+
+    private final Path file;
+    private final Format format;
+    private final StringBuilder text = new StringBuilder(8192);
+
+    FileMetricExporter(Path file, Format format) {
+        this.file = file;
+        this.format = format;
+    }
+
+    @Override
+    public void export(MetricSnapshot snapshot) throws IOException {
+
+        text.setLength(0);
+
+        if (format == Format.CSV) {
+            if (!Files.exists(file) || Files.size(file) == 0L)
+                text.append(CSV_HEADER);
+            appendCsv(snapshot);
+        } else {
+            appendLineProtocol(snapshot);
+        }
+
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void appendCsv(MetricSnapshot snapshot) {
+
+        final long timestamp = snapshot.getTimestampMillis();
+
+        for (int g = 0; g < snapshot.getGroupCount(); g++) {
+            for (int m = 0; m < snapshot.getMetricCount(); m++) {
+                final GroupMetric metric = snapshot.getMetric(m);
+                if (metric.isGrowth())
+                    continue;
+
+                text.append(timestamp).append(',');
+                appendCsvField(snapshot.getGroupId(g));
+                text.append(',');
+                appendCsvField(snapshot.getGroupName(g));
+                text.append(',').append(metric.getPerformanceLabel()).append(',').append(snapshot.value(g, m)).append('\n');
+            }
+        }
+    }
+
+    private void appendCsvField(String value) {
+
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            text.append(value);
+            return;
+        }
+
+        text.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"')
+                text.append('"');
+            text.append(c);
+        }
+        text.append('"');
+    }
+
+    private void appendLineProtocol(MetricSnapshot snapshot) {
+
+        final long timestampNanos = snapshot.getTimestampMillis() * 1000000L;
+
+        for (int g = 0; g < snapshot.getGroupCount(); g++) {
+            final int lineStart = text.length();
+
+            text.append(MEASUREMENT).append(",group_id=");
+            appendTagValue(snapshot.getGroupId(g));
+            if (!snapshot.getGroupName(g).isEmpty()) {
+                text.append(",group_name=");
+                appendTagValue(snapshot.getGroupName(g));
+            }
+
+            char separator = ' ';
+            for (int m = 0; m < snapshot.getMetricCount(); m++) {
+                final GroupMetric metric = snapshot.getMetric(m);
+                if (metric.isGrowth())
+                    continue;
+
+                text.append(separator).append(metric.getPerformanceLabel()).append('=').append(snapshot.value(g, m)).append('i');
+                separator = ',';
+            }
+
+            // a line needs at least one field
+            if (separator == ' ')
+                text.setLength(lineStart);
+            else
+                text.append(' ').append(timestampNanos).append('\n');
+        }
+    }
+
+    private void appendTagValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == ',' || c == '=' || c == ' ' || c == '\\')
+                text.append('\\');
+            // line protocol has no escape for line breaks
+            text.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
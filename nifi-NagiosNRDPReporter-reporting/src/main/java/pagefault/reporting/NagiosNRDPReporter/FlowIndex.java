@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.nifi.controller.status.PortStatus;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.ProcessorStatus;
+import org.apache.nifi.controller.status.RemoteProcessGroupStatus;
+
+/**
+ * Index of the whole process group tree, filled by the traversal of a run for the checks that
+ * attribute data to groups: the parent of every group and, when requested, the group of every
+ * processor, port and remote process group.
+ *
+ * Groups are numbered in the depth first order of the traversal, so a parent always comes before its
+ * children. Cleared and refilled on every run, not thread safe.
+ */
+final class FlowIndex {
+
+    private final Map<String, Integer> groups = new HashMap<>();
+    private final Map<String, Integer> components = new HashMap<>();
+
+    private boolean indexComponents = false;
+    private String[] ids = new String[64];
+    private int[] parents = new int[64];
+    private int size = 0;
+
+    /**
+     * Empties the index for the next traversal.
+     *
+     * @param indexComponents true to map the components of every group as well
+     */
+    void clear(boolean indexComponents) {
+        this.indexComponents = indexComponents;
+        groups.clear();
+        components.clear();
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @param parent the index of the parent group, -1 for the root
+     * @return the index of the group
+     */
+    int add(ProcessGroupStatus group, int parent) {
+
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size << 1);
+            parents = Arrays.copyOf(parents, size << 1);
+        }
+
+        final int index = size++;
+        ids[index] = group.getId();
+        parents[index] = parent;
+        groups.put(group.getId(), index);
+
+        if (indexComponents) {
+            if (group.getProcessorStatus() != null)
+                for (final ProcessorStatus processor : group.getProcessorStatus())
+                    components.put(processor.getId(), index);
+            addPorts(group.getInputPortStatus(), index);
+            addPorts(group.getOutputPortStatus(), index);
+            if (group.getRemoteProcessGroupStatus() != null)
+                for (final RemoteProcessGroupStatus remote : group.getRemoteProcessGroupStatus())
+                    components.put(remote.getId(), index);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return the number of groups in the tree
+     */
+    int size() {
+        return size;
+    }
+
+    String getId(int group) {
+        return ids[group];
+    }
+
+    /**
+     * @return the index of the parent group, -1 for the root
+     */
+    int getParent(int group) {
+        return parents[group];
+    }
+
+    /**
+     * @return the index of the group, -1 when it is not in the tree
+     */
+    int indexOf(String groupId) {
+        final Integer index = groups.get(groupId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the index of the group of a processor, port or remote process group, -1 when it is not
+     *         in the tree or components are not indexed
+     */
+    int groupOf(String componentId) {
+        final Integer index = components.get(componentId);
+        return index == null ? -1 : index;
+    }
+
+    private void addPorts(Collection<PortStatus> ports, int index) {
+        if (ports != null)
+            for (final PortStatus port : ports)
+                components.put(port.getId(), index);
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+
+/**
+ * Compiled include and exclude rules deciding which process groups are reported.
+ *
+ * Rules are separated by commas or new lines and take one of the forms
+ * <ul>
+ * <li>{@code path:root/ingest/**} or just {@code root/ingest/**}, a glob over the group names from the root
+ * group, which is always called {@code root}. {@code *} and {@code ?} match within a segment, {@code **}
+ * matches any number of segments.</li>
+ * <li>{@code name:<regex>}, a regular expression matching the whole group name.</li>
+ * <li>{@code id:<id>}, a group id.</li>
+ * </ul>
+ * Name and id rules apply to the matching group and everything below it, path rules apply exactly as written.
+ * A group is reported when it is not deeper than the maximum depth, matches an include rule or there are none,
+ * and matches no exclude rule.
+ *
+ * Path rules are compiled into a trie of segments that is walked alongside the process group tree, so
+ * subtrees that can no longer match an include rule, or that are excluded as a whole, are never visited.
+ */
+final class GroupFilter {
+
+    static final String ROOT_SEGMENT = "root";
+
+    static final GroupFilter ALL = new GroupFilter(new PathTrie(), new PathTrie(), new Pattern[0], new Pattern[0],
+        new HashSet<String>(), new HashSet<String>(), Integer.MAX_VALUE);
+
+    /**
+     * Where the traversal currently is, relative to the rules.
+     */
+    static final class Position {
+
+        private final ProcessGroupStatus group;
+        private final int depth;
+        private final Node[] include;
+        private final Node[] exclude;
+        private final boolean included;
+        private final boolean accepted;
+
+        private Position(ProcessGroupStatus group, int depth, Node[] include, Node[] exclude, boolean included, boolean accepted) {
+            this.group = group;
+            this.depth = depth;
+            this.include = include;
+            this.exclude = exclude;
+            this.included = included;
+            this.accepted = accepted;
+        }
+
+        ProcessGroupStatus getGroup() {
+            return group;
+        }
+
+        /**
+         * @return true when the group itself is reported
+         */
+        boolean isAccepted() {
+            return accepted;
+        }
+    }
+
+    private final PathTrie includePaths;
+    private final PathTrie excludePaths;
+    private final Pattern[] includeNames;
+    private final Pattern[] excludeNames;
+    private final Set<String> includeIds;
+    private final Set<String> excludeIds;
+    private final int maxDepth;
+    private final boolean hasIncludes;
+    private final boolean pathIncludesOnly;
+
+    private GroupFilter(PathTrie includePaths, PathTrie excludePaths, Pattern[] includeNames, Pattern[] excludeNames,
+            Set<String> includeIds, Set<String> excludeIds, int maxDepth) {
+        this.includePaths = includePaths;
+        this.excludePaths = excludePaths;
+        this.includeNames = includeNames;
+        this.excludeNames = excludeNames;
+        this.includeIds = includeIds;
+        this.excludeIds = excludeIds;
+        this.maxDepth = maxDepth;
+        this.pathIncludesOnly = includeNames.length == 0 && includeIds.isEmpty();
+        this.hasIncludes = !includePaths.isEmpty() || !pathIncludesOnly;
+    }
+
+    /**
+     * @param include include rules, may be null
+     * @param exclude exclude rules, may be null
+     * @param maxDepth maximum depth of a reported group, the root group is at depth 0
+     * @throws IllegalArgumentException when a rule is invalid
+     */
+    static GroupFilter compile(String include, String exclude, int maxDepth) {
+
+        final PathTrie includePaths = new PathTrie();
+        final PathTrie excludePaths = new PathTrie();
+        final List<Pattern> includeNames = new ArrayList<>();
+        final List<Pattern> excludeNames = new ArrayList<>();
+        final Set<String> includeIds = new HashSet<>();
+        final Set<String> excludeIds = new HashSet<>();
+
+        parseRules(include, includePaths, includeNames, includeIds);
+        parseRules(exclude, excludePaths, excludeNames, excludeIds);
+
+        return new GroupFilter(includePaths, excludePaths,
+            includeNames.toArray(new Pattern[includeNames.size()]),
+            excludeNames.toArray(new Pattern[excludeNames.size()]),
+            includeIds, excludeIds, maxDepth);
+    }
+
+    private static void parseRules(String rules, PathTrie paths, List<Pattern> names, Set<String> ids) {
+
+        if (rules == null)
+            return;
+
+        for (String rule : rules.split("[,\\n]")) {
+            rule = rule.trim();
+
+            if (rule.isEmpty())
+                continue;
+
+            if (rule.startsWith("name:"))
+                names.add(Pattern.compile(rule.substring(5).trim()));
+            else if (rule.startsWith("id:"))
+                ids.add(rule.substring(3).trim());
+            else if (rule.startsWith("path:"))
+                paths.add(rule.substring(5).trim());
+            else
+                paths.add(rule);
+        }
+    }
+
+    /**
+     * @return the position of the root group, or null when nothing in the tree can be reported
+     */
+    Position root(ProcessGroupStatus root) {
+        return position(root, 0, includePaths.start(), excludePaths.start(), false, ROOT_SEGMENT);
+    }
+
+    /**
+     * @return the position of a child group, or null when the child and all its descendants are filtered out
+     */
+    Position child(Position parent, ProcessGroupStatus child) {
+
+        if (parent.depth >= maxDepth)
+            return null;
+
+        return position(child, parent.depth + 1, parent.include, parent.exclude, parent.included, child.getName());
+    }
+
+    private Position position(ProcessGroupStatus group, int depth, Node[] parentInclude, Node[] parentExclude, boolean parentIncluded, String segment) {
+
+        final Node[] exclude = excludePaths.step(parentExclude, segment);
+
+        if (PathTrie.matchesSubtree(exclude) || excludeIds.contains(group.getId()) || matchesAny(excludeNames, group.getName()))
+            return null;
+
+        final boolean included = parentIncluded || includeIds.contains(group.getId()) || matchesAny(includeNames, group.getName());
+        final Node[] include = included ? PathTrie.NONE : includePaths.step(parentInclude, segment);
+
+        if (hasIncludes && !included && pathIncludesOnly && include.length == 0)
+            return null;
+
+        final boolean accepted = (!hasIncludes || included || PathTrie.matches(include)) && !PathTrie.matches(exclude);
+
+        return new Position(group, depth, include, exclude, included, accepted);
+    }
+
+    private static boolean matchesAny(Pattern[] patterns, String value) {
+        for (final Pattern pattern : patterns) {
+            if (pattern.matcher(value).matches())
+                return true;
+        }
+        return false;
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> literals = new HashMap<>();
+        private final List<Pattern> wildcardPatterns = new ArrayList<>();
+        private final List<Node> wildcardChildren = new ArrayList<>();
+        private Node anySegments = null;
+        private boolean recursive = false;
+        private boolean terminal = false;
+    }
+
+    /**
+     * Trie over path segments, matched as an NFA so {@code **} costs no backtracking.
+     */
+    private static final class PathTrie {
+
+        private static final Node[] NONE = new Node[0];
+
+        private final Node root = new Node();
+        private boolean empty = true;
+
+        boolean isEmpty() {
+            return empty;
+        }
+
+        void add(String glob) {
+
+            Node node = root;
+
+            for (final String segment : glob.split("/")) {
+
+                if (segment.isEmpty())
+                    continue;
+
+                if (segment.equals("**")) {
+                    if (node.anySegments == null) {
+                        node.anySegments = new Node();
+                        node.anySegments.recursive = true;
+                    }
+                    node = node.anySegments;
+                } else if (segment.indexOf('*') >= 0 || segment.indexOf('?') >= 0) {
+                    final String regex = globToRegex(segment);
+                    Node child = null;
+                    for (int i = 0; i < node.wildcardPatterns.size() && child == null; i++) {
+                        if (node.wildcardPatterns.get(i).pattern().equals(regex))
+                            child = node.wildcardChildren.get(i);
+                    }
+                    if (child == null) {
+                        child = new Node();
+                        node.wildcardPatterns.add(Pattern.compile(regex));
+                        node.wildcardChildren.add(child);
+                    }
+                    node = child;
+                } else {
+                    Node child = node.literals.get(segment);
+                    if (child == null) {
+                        child = new Node();
+                        node.literals.put(segment, child);
+                    }
+                    node = child;
+                }
+            }
+
+            if (node == root)
+                throw new IllegalArgumentException("Empty path rule '" + glob + "'");
+
+            node.terminal = true;
+            empty = false;
+        }
+
+        Node[] start() {
+            return empty ? NONE : closure(new Node[] {root}, 1);
+        }
+
+        Node[] step(Node[] states, String segment) {
+
+            if (states.length == 0)
+                return NONE;
+
+            Node[] next = new Node[states.length + 2];
+            int count = 0;
+
+            for (final Node state : states) {
+                if (state.recursive)
+                    count = add(next, count, state);
+
+                final Node literal = state.literals.get(segment);
+                if (literal != null) {
+                    next = ensureCapacity(next, count);
+                    count = add(next, count, literal);
+                }
+
+                for (int i = 0; i < state.wildcardPatterns.size(); i++) {
+                    if (state.wildcardPatterns.get(i).matcher(segment).matches()) {
+                        next = ensureCapacity(next, count);
+                        count = add(next, count, state.wildcardChildren.get(i));
+                    }
+                }
+
+                next = ensureCapacity(next, count);
+            }
+
+            return count == 0 ? NONE : closure(next, count);
+        }
+
+        static boolean matches(Node[] states) {
+            for (final Node state : states) {
+                if (state.terminal)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return true when every descendant of the current path matches, i.e. the path ended in {@code /**}
+         */
+        static boolean matchesSubtree(Node[] states) {
+            for (final Node state : states) {
+                if (state.recursive && state.terminal)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Adds the {@code **} children reachable without consuming a segment.
+         */
+        private static Node[] closure(Node[] states, int count) {
+            for (int i = 0; i < count; i++) {
+                final Node anySegments = states[i].anySegments;
+                if (anySegments != null) {
+                    states = ensureCapacity(states, count);
+                    count = add(states, count, anySegments);
+                }
+            }
+            return count == states.length ? states : Arrays.copyOf(states, count);
+        }
+
+        private static int add(Node[] states, int count, Node node) {
+            for (int i = 0; i < count; i++) {
+                if (states[i] == node)
+                    return count;
+            }
+            states[count] = node;
+            return count + 1;
+        }
+
+        private static Node[] ensureCapacity(Node[] states, int count) {
+            return count + 1 < states.length ? states : Arrays.copyOf(states, states.length << 1);
+        }
+
+        private static String globToRegex(String glob) {
+            final StringBuilder regex = new StringBuilder();
+            int literalStart = 0;
+
+            for (int i = 0; i < glob.length(); i++) {
+                final char c = glob.charAt(i);
+                if (c == '*' || c == '?') {
+                    if (i > literalStart)
+                        regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                    regex.append(c == '*' ? ".*" : ".");
+                    literalStart = i + 1;
+                }
+            }
+
+            if (literalStart < glob.length())
+                regex.append(Pattern.quote(glob.substring(literalStart)));
+
+            return regex.toString();
+        }
+    }
+}
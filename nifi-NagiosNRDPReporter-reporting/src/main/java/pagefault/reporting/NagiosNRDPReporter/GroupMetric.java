@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+
+/**
+ * The process group metrics that can be checked, with the labels used for the
+ * Nagios service name, plugin output and performance data.
+ */
+enum GroupMetric {
+
+    ACTIVE_THREAD_COUNT("ACTIVE THREAD COUNT", "active threads", " - NiFi Active Thread Count", "active_thread_count", false) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getActiveThreadCount();
+        }
+    },
+    FLOWFILES_QUEUED("FLOWFILES QUEUED", "flowfiles queued", " - NiFi Flowfiles Queued", "flowfiles_queued", false) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getQueuedCount();
+        }
+    },
+    BYTES_QUEUED("BYTES QUEUED", "queued", " - NiFi Data Queued", "bytes_queued", true) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getQueuedContentSize();
+        }
+    },
+    BYTES_IN("BYTES IN", "in", " - NiFi Data In", "bytes_in", true) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getBytesReceived();
+        }
+    },
+    BYTES_OUT("BYTES OUT", "out", " - NiFi Data Out", "bytes_out", true) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getBytesSent();
+        }
+    },
+    FLOWFILES_IN("FLOWFILES IN", "flowfiles in", " - NiFi Flowfiles In", "flowfiles_in", false) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getFlowFilesReceived();
+        }
+    },
+    FLOWFILES_OUT("FLOWFILES OUT", "flowfiles out", " - NiFi Flowfiles Out", "flowfiles_out", false) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getFlowFilesSent();
+        }
+    },
+    BYTES_READ("BYTES READ", "data read", " - NiFi Data Read", "data_read", true) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getBytesRead();
+        }
+    },
+    BYTES_WRITTEN("BYTES WRITTEN", "data written", " - NiFi Data Written", "data_written", true) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getBytesWritten();
+        }
+    },
+    FLOWFILES_QUEUED_GROWTH("QUEUE GROWTH", "flowfiles queued per minute", " - NiFi Queue Growth", "queue_growth", false) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getQueuedCount();
+        }
+
+        @Override
+        boolean isGrowth() {
+            return true;
+        }
+    },
+    BYTES_QUEUED_GROWTH("DATA QUEUED GROWTH", "queued per minute", " - NiFi Data Queued Growth", "bytes_queued_growth", true) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return status.getQueuedContentSize();
+        }
+
+        @Override
+        boolean isGrowth() {
+            return true;
+        }
+    },
+    FLOWFILES_IN_RATE("FLOWFILES IN RATE", "flowfiles in per second", " - NiFi Flowfiles In Rate", "flowfiles_in_rate", false) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return perSecond(status.getFlowFilesReceived());
+        }
+    },
+    FLOWFILES_OUT_RATE("FLOWFILES OUT RATE", "flowfiles out per second", " - NiFi Flowfiles Out Rate", "flowfiles_out_rate", false) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return perSecond(status.getFlowFilesSent());
+        }
+    },
+    BYTES_IN_RATE("BYTES IN RATE", "in per second", " - NiFi Data In Rate", "bytes_in_rate", true) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return perSecond(status.getBytesReceived());
+        }
+    },
+    BYTES_OUT_RATE("BYTES OUT RATE", "out per second", " - NiFi Data Out Rate", "bytes_out_rate", true) {
+        @Override
+        long value(ProcessGroupStatus status) {
+            return perSecond(status.getBytesSent());
+        }
+    };
+
+    /**
+     * Length of the rolling window NiFi computes the group totals over.
+     */
+    static final long STATUS_WINDOW_SECONDS = 300L;
+
+    private final String label;
+    private final String comment;
+    private final String serviceSuffix;
+    private final String performanceLabel;
+    private final boolean dataSize;
+
+    GroupMetric(String label, String comment, String serviceSuffix, String performanceLabel, boolean dataSize) {
+        this.label = label;
+        this.comment = comment;
+        this.serviceSuffix = serviceSuffix;
+        this.performanceLabel = performanceLabel;
+        this.dataSize = dataSize;
+    }
+
+    /**
+     * @return the current value, or for growth metrics the sample whose change per minute is checked
+     */
+    abstract long value(ProcessGroupStatus status);
+
+    /**
+     * @return true when the change per minute of the value between two runs is checked rather than the value itself
+     */
+    boolean isGrowth() {
+        return false;
+    }
+
+    private static long perSecond(long windowTotal) {
+        return (windowTotal + STATUS_WINDOW_SECONDS / 2) / STATUS_WINDOW_SECONDS;
+    }
+
+    String getLabel() {
+        return label;
+    }
+
+    String getComment() {
+        return comment;
+    }
+
+    String getServiceSuffix() {
+        return serviceSuffix;
+    }
+
+    String getPerformanceLabel() {
+        return performanceLabel;
+    }
+
+    boolean isDataSize() {
+        return dataSize;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+
+/**
+ * A check over the components of the reported process groups, such as their connections. Every run
+ * the groups are passed to all monitors in a single pass, then each monitor reports its results.
+ */
+interface GroupMonitor {
+
+    /**
+     * Collects what the monitor needs from one group.
+     */
+    void collect(ProcessGroupStatus group);
+
+    /**
+     * Reports the results of the groups collected since the previous report.
+     *
+     * @return the number of check results reported
+     */
+    int report(CheckResultSink sink);
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+/**
+ * Remembers the previous sample of every (process group, metric) series to turn point in time
+ * values, such as the queued flowfiles of a group, into their growth per minute between two runs.
+ *
+ * Series are keyed like the SuppressionTable and stored in striped open addressing tables of
+ * primitive arrays, 24 bytes per series, so 50,000 groups cost a few megabytes at most.
+ */
+final class GrowthTable {
+
+    /**
+     * Returned for the first sample of a series, when there is nothing to compare with yet.
+     */
+    static final long NO_SAMPLE = Long.MIN_VALUE;
+
+    private static final long EMPTY = 0L;
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    GrowthTable() {
+        this(1024);
+    }
+
+    GrowthTable(int initialCapacity) {
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe(Integer.highestOneBit(Math.max(16, initialCapacity / STRIPES - 1) << 1));
+    }
+
+    /**
+     * Records the sample and returns the change per minute since the previous sample of the series.
+     *
+     * @param key a key from {@link SuppressionTable#key(long, int)}
+     * @param nowMillis the time of the run, the same for every sample of a run
+     * @return the growth per minute, or {@link #NO_SAMPLE} for the first sample of the series
+     */
+    long perMinute(long key, long value, long nowMillis) {
+        return stripes[(int) (key >>> 60)].perMinute(key, value, nowMillis);
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    /**
+     * Drops the series that were not sampled in the run at the given time, when they make up most of a stripe.
+     */
+    void sweep(long nowMillis) {
+        for (Stripe stripe : stripes)
+            stripe.sweep(nowMillis);
+    }
+
+    private static final class Stripe {
+
+        private long[] keys;
+        private long[] values;
+        private long[] sampledMillis;
+        private int size = 0;
+
+        Stripe(int capacity) {
+            allocate(capacity);
+        }
+
+        synchronized long perMinute(long key, long value, long nowMillis) {
+
+            int slot = slot(key);
+
+            if (keys[slot] == EMPTY) {
+                if ((size + 1) << 1 > keys.length) {
+                    rehash(keys.length << 1, -1L);
+                    slot = slot(key);
+                }
+                keys[slot] = key;
+                values[slot] = value;
+                sampledMillis[slot] = nowMillis;
+                size++;
+                return NO_SAMPLE;
+            }
+
+            final long elapsed = nowMillis - sampledMillis[slot];
+            final long delta = value - values[slot];
+
+            // a second sample within the same run gives no new information
+            if (elapsed <= 0L)
+                return NO_SAMPLE;
+
+            values[slot] = value;
+            sampledMillis[slot] = nowMillis;
+
+            return Math.round(delta * 60000.0 / elapsed);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void sweep(long nowMillis) {
+
+            int seen = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY && sampledMillis[i] == nowMillis)
+                    seen++;
+            }
+
+            if (seen << 1 < size)
+                rehash(Math.max(16, Integer.highestOneBit(Math.max(1, seen) << 2)), nowMillis);
+        }
+
+        private int slot(long key) {
+            final int mask = keys.length - 1;
+            int slot = (int) key & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        /**
+         * Rebuilds the stripe with a new capacity, keeping only the series sampled at the given time
+         * or every series when it is negative.
+         */
+        private void rehash(int capacity, long nowMillis) {
+            final long[] oldKeys = keys;
+            final long[] oldValues = values;
+            final long[] oldSampled = sampledMillis;
+
+            allocate(capacity);
+            size = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY || (nowMillis >= 0 && oldSampled[i] != nowMillis))
+                    continue;
+
+                final int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                sampledMillis[slot] = oldSampled[i];
+                size++;
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            sampledMillis = new long[capacity];
+        }
+    }
+}
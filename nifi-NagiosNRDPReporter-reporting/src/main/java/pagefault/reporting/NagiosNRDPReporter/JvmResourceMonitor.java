@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.nifi.util.FormatUtils;
+
+/**
+ * Checks the resources of the NiFi node itself, the usual cause when flow throughput drops: heap
+ * usage, the share of time spent in garbage collection since the previous run, thread counts, and
+ * the free space of the repository directories.
+ *
+ * The MXBeans and file stores are looked up once, a run only reads their counters, so sampling costs
+ * a few microseconds and the MemoryUsage objects of the heap. Not thread safe, only used from onTrigger.
+ */
+final class JvmResourceMonitor {
+
+    static final String HEAP_SERVICE = "NiFi JVM Heap";
+    static final String GC_SERVICE = "NiFi JVM Garbage Collection";
+    static final String THREADS_SERVICE = "NiFi JVM Threads";
+    static final String REPOSITORY_SERVICE_PREFIX = "NiFi Repository ";
+
+    private final MetricCheck.Mode mode;
+    private final long heapWarningPercent;
+    private final long heapCriticalPercent;
+    private final long gcWarningPercent;
+    private final long gcCriticalPercent;
+    private final long threadsWarning;
+    private final long threadsCritical;
+    private final long freeWarningPercent;
+    private final long freeCriticalPercent;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final GarbageCollectorMXBean[] collectors;
+    private final Path[] directories;
+    private final String[] repositoryServices;
+    private final FileStore[] stores;
+
+    private long lastSampleNanos;
+    private long lastGcCount;
+    private long lastGcMillis;
+
+    /**
+     * The thread thresholds are optional and passed as Long.MAX_VALUE when not set. The free space thresholds alert
+     * when the free space of a repository falls to or below them, in percent.
+     */
+    JvmResourceMonitor(MetricCheck.Mode mode, long heapWarningPercent, long heapCriticalPercent, long gcWarningPercent, long gcCriticalPercent,
+            long threadsWarning, long threadsCritical, List<Path> directories, long freeWarningPercent, long freeCriticalPercent) {
+        this.mode = mode;
+        this.heapWarningPercent = heapWarningPercent;
+        this.heapCriticalPercent = heapCriticalPercent;
+        this.gcWarningPercent = gcWarningPercent;
+        this.gcCriticalPercent = gcCriticalPercent;
+        this.threadsWarning = threadsWarning;
+        this.threadsCritical = threadsCritical;
+        this.freeWarningPercent = freeWarningPercent;
+        this.freeCriticalPercent = freeCriticalPercent;
+
+        final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+        this.collectors = gcBeans.toArray(new GarbageCollectorMXBean[gcBeans.size()]);
+
+        this.directories = directories.toArray(new Path[directories.size()]);
+        this.repositoryServices = new String[this.directories.length];
+        this.stores = new FileStore[this.directories.length];
+        for (int i = 0; i < this.directories.length; i++)
+            repositoryServices[i] = REPOSITORY_SERVICE_PREFIX + this.directories[i];
+
+        this.lastSampleNanos = System.nanoTime();
+        this.lastGcCount = gcCount();
+        this.lastGcMillis = gcMillis();
+    }
+
+    /**
+     * @return the number of check results reported
+     */
+    int report(CheckResultSink sink) {
+
+        reportHeap(sink);
+        reportGarbageCollection(sink);
+        reportThreads(sink);
+
+        for (int i = 0; i < directories.length; i++)
+            reportRepository(i, sink);
+
+        return 3 + directories.length;
+    }
+
+    private void reportHeap(CheckResultSink sink) {
+
+        final MemoryUsage heap = memory.getHeapMemoryUsage();
+        final MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+        final long limit = heap.getMax() > 0L ? heap.getMax() : heap.getCommitted();
+        final long percent = limit > 0L ? heap.getUsed() * 100L / limit : 0L;
+        final int state = state(percent, heapWarningPercent, heapCriticalPercent);
+
+        final String output = "JVM HEAP" + MetricCheck.stateLabel(state) + percent + "% used, "
+            + FormatUtils.formatDataSize(heap.getUsed()) + " of " + FormatUtils.formatDataSize(limit) + ", "
+            + FormatUtils.formatDataSize(nonHeap.getUsed()) + " non-heap";
+        final String performance = "heap_used=" + heap.getUsed() + "B;;;0;" + limit + " heap_committed=" + heap.getCommitted()
+            + "B non_heap_used=" + nonHeap.getUsed() + "B non_heap_committed=" + nonHeap.getCommitted() + "B heap_used_percent=" + percent + "%";
+
+        sink.accept(HEAP_SERVICE, new NagiosNRDPReporter.nagiosResult(state, output, performance));
+    }
+
+    private void reportGarbageCollection(CheckResultSink sink) {
+
+        final long now = System.nanoTime();
+        final long count = gcCount();
+        final long millis = gcMillis();
+        final long elapsedMillis = Math.max(1L, (now - lastSampleNanos) / 1000000L);
+        final long deltaCount = Math.max(0L, count - lastGcCount);
+        final long deltaMillis = Math.max(0L, millis - lastGcMillis);
+        final long percent = Math.min(100L, deltaMillis * 100L / elapsedMillis);
+
+        lastSampleNanos = now;
+        lastGcCount = count;
+        lastGcMillis = millis;
+
+        final int state = state(percent, gcWarningPercent, gcCriticalPercent);
+
+        final String output = "JVM GARBAGE COLLECTION" + MetricCheck.stateLabel(state) + percent + "% of the time in "
+            + deltaCount + " collections taking " + deltaMillis + " ms since the last run";
+        final String performance = "gc_time_percent=" + percent + "% gc_count=" + deltaCount + " gc_time=" + deltaMillis + "ms";
+
+        sink.accept(GC_SERVICE, new NagiosNRDPReporter.nagiosResult(state, output, performance));
+    }
+
+    private void reportThreads(CheckResultSink sink) {
+
+        final int count = threads.getThreadCount();
+        final int state = state(count, threadsWarning, threadsCritical);
+
+        final String output = "JVM THREADS" + MetricCheck.stateLabel(state) + count + " live threads, "
+            + threads.getDaemonThreadCount() + " daemon, " + threads.getPeakThreadCount() + " peak";
+        final String performance = "threads=" + count + " daemon_threads=" + threads.getDaemonThreadCount() + " peak_threads=" + threads.getPeakThreadCount();
+
+        sink.accept(THREADS_SERVICE, new NagiosNRDPReporter.nagiosResult(state, output, performance));
+    }
+
+    private void reportRepository(int i, CheckResultSink sink) {
+
+        final long usable;
+        final long total;
+
+        try {
+            if (stores[i] == null)
+                stores[i] = Files.getFileStore(directories[i]);
+            usable = stores[i].getUsableSpace();
+            total = stores[i].getTotalSpace();
+        } catch (IOException | SecurityException e) {
+            stores[i] = null;
+            sink.accept(repositoryServices[i], new NagiosNRDPReporter.nagiosResult(MetricCheck.STATE_UNKNOWN,
+                "REPOSITORY" + MetricCheck.stateLabel(MetricCheck.STATE_UNKNOWN) + "cannot read the free space of " + directories[i] + ": " + e, null));
+            return;
+        }
+
+        final long freePercent = total > 0L ? usable * 100L / total : 0L;
+
+        int state = MetricCheck.STATE_OK;
+        if (mode == MetricCheck.Mode.ALERTING) {
+            if (freePercent <= freeCriticalPercent)
+                state = MetricCheck.STATE_CRITICAL;
+            else if (freePercent <= freeWarningPercent)
+                state = MetricCheck.STATE_WARNING;
+        }
+
+        final String output = "REPOSITORY" + MetricCheck.stateLabel(state) + freePercent + "% free, "
+            + FormatUtils.formatDataSize(usable) + " of " + FormatUtils.formatDataSize(total) + " on " + stores[i].name();
+        final String performance = "free=" + usable + "B;;;0;" + total + " free_percent=" + freePercent + "%";
+
+        sink.accept(repositoryServices[i], new NagiosNRDPReporter.nagiosResult(state, output, performance));
+    }
+
+    private int state(long value, long warning, long critical) {
+        if (mode != MetricCheck.Mode.ALERTING)
+            return MetricCheck.STATE_OK;
+        if (value >= critical)
+            return MetricCheck.STATE_CRITICAL;
+        if (value >= warning)
+            return MetricCheck.STATE_WARNING;
+        return MetricCheck.STATE_OK;
+    }
+
+    private long gcCount() {
+        long count = 0L;
+        for (final GarbageCollectorMXBean collector : collectors)
+            count += Math.max(0L, collector.getCollectionCount());
+        return count;
+    }
+
+    private long gcMillis() {
+        long millis = 0L;
+        for (final GarbageCollectorMXBean collector : collectors)
+            millis += Math.max(0L, collector.getCollectionTime());
+        return millis;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in power of two buckets of microseconds, bucket i counting
+ * latencies in [2^i, 2^(i+1)) us. Quantiles are reported as the upper bound of their bucket,
+ * so they are accurate within a factor of two, which is plenty to spot a slow NRDP server.
+ */
+final class LatencyHistogram {
+
+    static final int BUCKETS = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        final long micros = nanos / 1000L;
+        final int bucket = micros <= 0L ? 0 : Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+    }
+
+    /**
+     * Copies the current counts into the given array.
+     */
+    void snapshot(long[] into) {
+        for (int i = 0; i < BUCKETS; i++)
+            into[i] = counts.get(i);
+    }
+
+    static long count(long[] counts) {
+        long total = 0L;
+        for (final long count : counts)
+            total += count;
+        return total;
+    }
+
+    /**
+     * @return the upper bound, in milliseconds, of the bucket holding the quantile, 0 when empty
+     */
+    static double quantileMillis(long[] counts, double quantile) {
+        final long total = count(counts);
+
+        if (total == 0L)
+            return 0.0;
+
+        final long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long seen = 0L;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return (1L << (i + 1)) / 1000.0;
+        }
+
+        return (1L << counts.length) / 1000.0;
+    }
+}
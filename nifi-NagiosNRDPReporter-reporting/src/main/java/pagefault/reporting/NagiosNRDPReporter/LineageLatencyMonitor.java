@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.components.state.Scope;
+import org.apache.nifi.components.state.StateManager;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.apache.nifi.provenance.ProvenanceEventType;
+import org.apache.nifi.reporting.EventAccess;
+import org.apache.nifi.util.FormatUtils;
+
+/**
+ * Measures end-to-end data latency from provenance: the age of a flowfile's lineage, from the time it
+ * entered the flow, whenever one of the components of a process group records an event for it.
+ *
+ * Provenance is read incrementally from a cursor kept in the LOCAL state of the reporting task, so
+ * events are read once and never rescanned, starting from the newest event the first time. Every run
+ * reads batches of at most the batch size until it caught up or used its time budget, the rest is left
+ * for the next runs. The latencies of a run are aggregated per process group into quantile sketches,
+ * which are merged up the tree so a group covers everything below it. Not thread safe, only used from
+ * onTrigger.
+ */
+final class LineageLatencyMonitor {
+
+    static final String SERVICE_SUFFIX = " - NiFi Lineage Latency";
+    static final String CURSOR_KEY = "provenance.cursor";
+
+    private final MetricCheck.Mode mode;
+    private final double alertQuantile;
+    private final long warningMillis;
+    private final long criticalMillis;
+    private final int batchSize;
+    private final long timeBudgetNanos;
+
+    private final List<QuantileSketch> sketches = new ArrayList<>();
+
+    private Set<String> alerting = new HashSet<>();
+    private long cursor = -1L;
+    private long lastEvents = 0L;
+    private boolean caughtUp = true;
+
+    /**
+     * @param alertQuantile the quantile compared against the thresholds
+     * @param warningNanos Long.MAX_VALUE to never warn
+     * @param criticalNanos Long.MAX_VALUE to never alert
+     */
+    LineageLatencyMonitor(MetricCheck.Mode mode, double alertQuantile, long warningNanos, long criticalNanos, int batchSize, long timeBudgetNanos) {
+        this.mode = mode;
+        this.alertQuantile = alertQuantile;
+        this.warningMillis = warningNanos == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(warningNanos);
+        this.criticalMillis = criticalNanos == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(criticalNanos);
+        this.batchSize = batchSize;
+        this.timeBudgetNanos = timeBudgetNanos;
+    }
+
+    /**
+     * @return the number of provenance events read by the last run
+     */
+    long getLastEvents() {
+        return lastEvents;
+    }
+
+    /**
+     * @return false when the last run ran out of its time budget before reading the newest event
+     */
+    boolean isCaughtUp() {
+        return caughtUp;
+    }
+
+    /**
+     * Reads the provenance events recorded since the previous run and reports the lineage latency
+     * of the groups that had any.
+     *
+     * @param index the whole flow including its components, to attribute events to groups
+     * @param groups the groups to report
+     * @return the number of check results reported
+     */
+    int report(EventAccess events, StateManager state, FlowIndex index, List<ProcessGroupStatus> groups, CheckResultSink sink) throws IOException {
+
+        for (int i = 0; i < index.size(); i++) {
+            if (sketches.size() <= i)
+                sketches.add(new QuantileSketch());
+            else
+                sketches.get(i).clear();
+        }
+
+        if (cursor < 0L)
+            cursor = restoreCursor(events, state);
+
+        final long start = System.nanoTime();
+        final long previousCursor = cursor;
+        lastEvents = 0L;
+        caughtUp = false;
+
+        // at least one batch per run, so even a tiny budget makes progress
+        do {
+            final List<ProvenanceEventRecord> batch = events.getProvenanceEvents(cursor, batchSize);
+
+            if (batch == null || batch.isEmpty()) {
+                caughtUp = true;
+                break;
+            }
+
+            for (final ProvenanceEventRecord event : batch) {
+                record(event, index);
+                cursor = Math.max(cursor, event.getEventId() + 1L);
+            }
+
+            lastEvents += batch.size();
+
+            if (batch.size() < batchSize) {
+                caughtUp = true;
+                break;
+            }
+        } while (System.nanoTime() - start < timeBudgetNanos);
+
+        if (cursor != previousCursor)
+            state.setState(Collections.singletonMap(CURSOR_KEY, Long.toString(cursor)), Scope.LOCAL);
+
+        // children come after their parents, so walking backwards merges every subtree bottom up
+        for (int i = index.size() - 1; i > 0; i--)
+            sketches.get(index.getParent(i)).merge(sketches.get(i));
+
+        final Set<String> stillAlerting = new HashSet<>();
+        int reported = 0;
+
+        for (final ProcessGroupStatus group : groups) {
+            final int groupIndex = index.indexOf(group.getId());
+            final QuantileSketch sketch = groupIndex < 0 ? null : sketches.get(groupIndex);
+
+            if (sketch != null && sketch.count() > 0L) {
+                sink.accept(group.getName() + SERVICE_SUFFIX, result(sketch, group.getId(), stillAlerting));
+                reported++;
+            } else if (alerting.contains(group.getId())) {
+                // no data moved, there is no latency to alert on any more
+                sink.accept(group.getName() + SERVICE_SUFFIX, new NagiosNRDPReporter.nagiosResult(MetricCheck.STATE_OK,
+                    "LINEAGE LATENCY" + MetricCheck.stateLabel(MetricCheck.STATE_OK) + "no provenance events since the last run", "events=0"));
+                reported++;
+            }
+        }
+
+        alerting = stillAlerting;
+
+        return reported;
+    }
+
+    private NagiosNRDPReporter.nagiosResult result(QuantileSketch sketch, String groupId, Set<String> stillAlerting) {
+
+        final long p50 = sketch.quantile(0.50);
+        final long p95 = sketch.quantile(0.95);
+        final long p99 = sketch.quantile(0.99);
+        final long alertValue = sketch.quantile(alertQuantile);
+
+        int state = MetricCheck.STATE_OK;
+        if (mode == MetricCheck.Mode.ALERTING) {
+            if (alertValue >= criticalMillis)
+                state = MetricCheck.STATE_CRITICAL;
+            else if (alertValue >= warningMillis)
+                state = MetricCheck.STATE_WARNING;
+        }
+
+        if (state != MetricCheck.STATE_OK)
+            stillAlerting.add(groupId);
+
+        final String output = "LINEAGE LATENCY" + MetricCheck.stateLabel(state)
+            + "p" + Math.round(alertQuantile * 100) + " " + FormatUtils.formatHoursMinutesSeconds(alertValue, TimeUnit.MILLISECONDS)
+            + " over " + sketch.count() + " provenance events";
+        final String performance = "p50=" + p50 + "ms p95=" + p95 + "ms p99=" + p99 + "ms events=" + sketch.count();
+
+        return new NagiosNRDPReporter.nagiosResult(state, output, performance);
+    }
+
+    private void record(ProvenanceEventRecord event, FlowIndex index) {
+
+        // events starting a lineage have no latency to speak of
+        final ProvenanceEventType type = event.getEventType();
+        if (type == ProvenanceEventType.CREATE || type == ProvenanceEventType.RECEIVE || event.getLineageStartDate() <= 0L)
+            return;
+
+        final int group = index.groupOf(event.getComponentId());
+        if (group >= 0)
+            sketches.get(group).add(Math.max(0L, event.getEventTime() - event.getLineageStartDate()));
+    }
+
+    /**
+     * @return the first event to read: the persisted cursor, or the event after the newest one when
+     *         there is none or the repository was reset since
+     */
+    private static long restoreCursor(EventAccess events, StateManager state) throws IOException {
+
+        final ProvenanceEventRepository repository = events.getProvenanceRepository();
+        final Long maxEventId = repository == null ? null : repository.getMaxEventId();
+        final long next = maxEventId == null ? 0L : maxEventId + 1L;
+
+        final String persisted = state.getState(Scope.LOCAL).get(CURSOR_KEY);
+
+        if (persisted != null) {
+            try {
+                final long restored = Long.parseLong(persisted);
+                if (restored >= 0L && (repository == null || restored <= next))
+                    return restored;
+            } catch (NumberFormatException e) {
+                // fall through to start from the newest event
+            }
+        }
+
+        return next;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import org.apache.nifi.util.FormatUtils;
+
+/**
+ * A single enabled metric check with its thresholds resolved from the reporting task properties.
+ */
+final class MetricCheck {
+
+    static final int STATE_OK       = 0;
+    static final int STATE_WARNING  = 1;
+    static final int STATE_CRITICAL = 2;
+    static final int STATE_UNKNOWN  = 3;
+
+    enum Mode {
+        DISABLED,
+        ALERTING,
+        REPORTING;
+
+        static Mode fromValue(String value) {
+            if (NagiosNRDPReporter.ALERTING_VALUE.equals(value))
+                return ALERTING;
+            if (NagiosNRDPReporter.REPORTING_VALUE.equals(value))
+                return REPORTING;
+            return DISABLED;
+        }
+    }
+
+    private final GroupMetric metric;
+    private final Mode mode;
+    private final long warningValue;
+    private final long criticalValue;
+
+    MetricCheck(GroupMetric metric, Mode mode, long warningValue, long criticalValue) {
+        this.metric = metric;
+        this.mode = mode;
+        this.warningValue = warningValue;
+        this.criticalValue = criticalValue;
+    }
+
+    GroupMetric getMetric() {
+        return metric;
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    long getWarningValue() {
+        return warningValue;
+    }
+
+    long getCriticalValue() {
+        return criticalValue;
+    }
+
+    int state(long currentValue) {
+        if (mode != Mode.ALERTING)
+            return STATE_OK;
+        if (currentValue >= criticalValue)
+            return STATE_CRITICAL;
+        if (currentValue >= warningValue)
+            return STATE_WARNING;
+        return STATE_OK;
+    }
+
+    NagiosNRDPReporter.nagiosResult evaluate(long currentValue) {
+        return evaluate(currentValue, state(currentValue));
+    }
+
+    NagiosNRDPReporter.nagiosResult evaluate(long currentValue, int state) {
+        final String formattedValue = metric.isDataSize() ? FormatUtils.formatDataSize(currentValue) : Long.toString(currentValue);
+        final String output = metric.getLabel() + stateLabel(state) + formattedValue + " " + metric.getComment();
+
+        return new NagiosNRDPReporter.nagiosResult(state, output, metric.getPerformanceLabel() + "=" + currentValue);
+    }
+
+    static String stateLabel(int state) {
+        switch (state) {
+            case STATE_CRITICAL: return " CRIT - ";
+            case STATE_WARNING:  return " WARN - ";
+            case STATE_UNKNOWN:  return " UNKNOWN - ";
+            default:             return " OK - ";
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.IOException;
+
+/**
+ * A consumer of the group metrics of every run, such as NRDP, a metrics file or a Prometheus endpoint.
+ */
+interface MetricExporter {
+
+    /**
+     * Exports the metrics of a run. Called on the reporting thread, must not modify the snapshot.
+     */
+    void export(MetricSnapshot snapshot) throws IOException;
+
+    /**
+     * Releases the resources of the exporter, it is not used afterwards.
+     */
+    void close();
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+/**
+ * Immutable view of the reporting task configuration, resolved once when the task is scheduled
+ * so that onTrigger does not need any property lookups.
+ */
+final class MetricPlan {
+
+    private final MetricCheck[] checks;
+    private final GroupMetric[] metrics;
+    private final int[] checkColumns;
+    private final String url;
+    private final String token;
+    private final String hostname;
+    private final boolean includePerformanceData;
+    private final boolean processAllGroups;
+    private final GroupFilter groupFilter;
+    private final int maxChecksPerSubmission;
+    private final CheckResultPayload.Format payloadFormat;
+    private final boolean compressRequests;
+    private final boolean reportHealth;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    /**
+     * @param exportMetrics true when every group metric is exported besides the checks, so the snapshot reads them all
+     */
+    MetricPlan(MetricCheck[] checks, boolean exportMetrics, String url, String token, String hostname, boolean includePerformanceData,
+            boolean processAllGroups, GroupFilter groupFilter, int maxChecksPerSubmission,
+            CheckResultPayload.Format payloadFormat, boolean compressRequests, boolean reportHealth, int connectTimeoutMillis, int readTimeoutMillis) {
+        this.checks = checks;
+        this.checkColumns = new int[checks.length];
+
+        if (exportMetrics) {
+            this.metrics = GroupMetric.values();
+            for (int i = 0; i < checks.length; i++)
+                this.checkColumns[i] = checks[i].getMetric().ordinal();
+        } else {
+            this.metrics = new GroupMetric[checks.length];
+            for (int i = 0; i < checks.length; i++) {
+                this.metrics[i] = checks[i].getMetric();
+                this.checkColumns[i] = i;
+            }
+        }
+
+        this.url = url;
+        this.token = token;
+        this.hostname = hostname;
+        this.includePerformanceData = includePerformanceData;
+        this.processAllGroups = processAllGroups;
+        this.groupFilter = groupFilter;
+        this.maxChecksPerSubmission = maxChecksPerSubmission;
+        this.payloadFormat = payloadFormat;
+        this.compressRequests = compressRequests;
+        this.reportHealth = reportHealth;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    MetricCheck[] getChecks() {
+        return checks;
+    }
+
+    /**
+     * @return the columns of the run's snapshot: every group metric when metrics are exported, otherwise only the checked ones
+     */
+    GroupMetric[] getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the snapshot column of every check, in the order of the checks
+     */
+    int[] getCheckColumns() {
+        return checkColumns;
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * @return the configured hostname, or null when it should be resolved from DNS
+     */
+    String getHostname() {
+        return hostname;
+    }
+
+    boolean isIncludePerformanceData() {
+        return includePerformanceData;
+    }
+
+    boolean isProcessAllGroups() {
+        return processAllGroups;
+    }
+
+    GroupFilter getGroupFilter() {
+        return groupFilter;
+    }
+
+    int getMaxChecksPerSubmission() {
+        return maxChecksPerSubmission;
+    }
+
+    CheckResultPayload.Format getPayloadFormat() {
+        return payloadFormat;
+    }
+
+    boolean isCompressRequests() {
+        return compressRequests;
+    }
+
+    /**
+     * @return true when every run also sends the reporter's own health check result
+     */
+    boolean isReportHealth() {
+        return reportHealth;
+    }
+
+    int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.List;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+
+/**
+ * The group metrics of one run, read once from the process group tree and shared by all exporters.
+ *
+ * The values are stored column by column in a single array: the value of metric {@code m} of group
+ * {@code g} is at {@code g + m * groupCount}, next to parallel arrays of the group ids and names.
+ * A snapshot is never modified after it was built, so exporters may keep it past the run.
+ */
+final class MetricSnapshot {
+
+    static final MetricSnapshot EMPTY = new MetricSnapshot(0L, new String[0], new String[0], new GroupMetric[0], new long[0]);
+
+    private final long timestampMillis;
+    private final String[] groupIds;
+    private final String[] groupNames;
+    private final GroupMetric[] metrics;
+    private final long[] values;
+
+    private MetricSnapshot(long timestampMillis, String[] groupIds, String[] groupNames, GroupMetric[] metrics, long[] values) {
+        this.timestampMillis = timestampMillis;
+        this.groupIds = groupIds;
+        this.groupNames = groupNames;
+        this.metrics = metrics;
+        this.values = values;
+    }
+
+    /**
+     * @param metrics the metrics to read, in the order of the columns
+     */
+    static MetricSnapshot build(List<ProcessGroupStatus> groups, GroupMetric[] metrics, long timestampMillis) {
+
+        final int groupCount = groups.size();
+        final String[] groupIds = new String[groupCount];
+        final String[] groupNames = new String[groupCount];
+        final long[] values = new long[groupCount * metrics.length];
+
+        for (int g = 0; g < groupCount; g++) {
+            final ProcessGroupStatus group = groups.get(g);
+            groupIds[g] = group.getId();
+            groupNames[g] = group.getName();
+
+            for (int m = 0; m < metrics.length; m++)
+                values[g + m * groupCount] = metrics[m].value(group);
+        }
+
+        return new MetricSnapshot(timestampMillis, groupIds, groupNames, metrics, values);
+    }
+
+    long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    int getGroupCount() {
+        return groupIds.length;
+    }
+
+    int getMetricCount() {
+        return metrics.length;
+    }
+
+    String getGroupId(int group) {
+        return groupIds[group];
+    }
+
+    String getGroupName(int group) {
+        return groupNames[group];
+    }
+
+    GroupMetric getMetric(int metric) {
+        return metrics[metric];
+    }
+
+    long value(int group, int metric) {
+        return values[group + metric * groupIds.length];
+    }
+}
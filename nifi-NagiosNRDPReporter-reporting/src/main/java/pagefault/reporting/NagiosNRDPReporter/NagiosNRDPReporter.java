@@ -17,61 +17,97 @@
 package pagefault.reporting.NagiosNRDPReporter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.apache.nifi.annotation.behavior.Stateful;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnScheduled;
+import org.apache.nifi.annotation.lifecycle.OnStopped;
 import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
+import org.apache.nifi.components.state.Scope;
+import org.apache.nifi.controller.ConfigurationContext;
 import org.apache.nifi.controller.status.ProcessGroupStatus;
 import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.reporting.AbstractReportingTask;
 import org.apache.nifi.reporting.ReportingContext;
 import java.net.*;
 import org.apache.nifi.processor.DataUnit;
-import org.apache.nifi.util.FormatUtils;
 import org.apache.nifi.components.AllowableValue;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
- 
-import java.io.StringWriter;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.zip.GZIPOutputStream;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactoryConfigurationError;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.DOMException;
-import org.xml.sax.SAXException;
 
 @Tags({"nagios", "nrdp", "alerting", "stats"})
 @CapabilityDescription("Reports metrics to Nagios via NRDP.")
+@Stateful(scopes = Scope.LOCAL, description = "With Lineage Latency enabled, the id of the next provenance event to read, so events are never read twice")
 public class NagiosNRDPReporter extends AbstractReportingTask {
 
     protected static final String DISABLED_VALUE  = "Disabled";
     protected static final String ALERTING_VALUE  = "Alerting";
     protected static final String REPORTING_VALUE = "Reporting";
     protected static final String ENABLED_VALUE   = "Enabled";
+    protected static final String PER_GROUP_VALUE = "Per Process Group";
+    protected static final String BATCHED_VALUE   = "Batched";
+    protected static final String SYNCHRONOUS_VALUE  = "Synchronous";
+    protected static final String ASYNCHRONOUS_VALUE = "Asynchronous";
+    protected static final String DROP_OLDEST_VALUE  = "Drop Oldest";
+    protected static final String COALESCE_VALUE     = "Coalesce Latest";
+    protected static final String POOLED_HTTP_VALUE  = "Pooled HTTP Client";
+    protected static final String URL_CONNECTION_VALUE = "HTTP URL Connection";
+    protected static final String XML_VALUE  = "XML";
+    protected static final String JSON_VALUE = "JSON";
+    protected static final String INSTANTANEOUS_VALUE = "Instantaneous";
+    protected static final String EWMA_VALUE          = "EWMA";
+    protected static final String PERCENTILE_VALUE    = "Window Percentile";
+    protected static final String N_OF_M_VALUE        = "N of M";
+    protected static final String FAILOVER_VALUE    = "Failover";
+    protected static final String ROUND_ROBIN_VALUE = "Round Robin";
+    protected static final String BROADCAST_VALUE   = "Broadcast";
+    protected static final String CSV_VALUE           = "CSV";
+    protected static final String LINE_PROTOCOL_VALUE = "Line Protocol";
     
     protected static final AllowableValue COMPLEX_FIELD_DISABLED_VALUE  = new AllowableValue(DISABLED_VALUE, DISABLED_VALUE,   "Do not run this functionality.");
     protected static final AllowableValue COMPLEX_FIELD_ALERTING_VALUE  = new AllowableValue(ALERTING_VALUE, ALERTING_VALUE,   "Enable alerting for this functionality. The warning and critical thresholds must be set. When these thresholds are exceeded, either a Warning or Critical message will be sent to Nagios depending on which threshold is exceeded.");
     protected static final AllowableValue COMPLEX_FIELD_REPORTING_VALUE = new AllowableValue(REPORTING_VALUE, REPORTING_VALUE, "Report the current counter for this functionality only. No warning or critical messages will be sent to Nagios, all messages will be set to normal. This is for reporting current statistics.");
     protected static final AllowableValue COMPLEX_FIELD_ENABLED_VALUE   = new AllowableValue(ENABLED_VALUE, ENABLED_VALUE,     "Enable this functionality.");
+    protected static final AllowableValue SUBMISSION_PER_GROUP_VALUE    = new AllowableValue(PER_GROUP_VALUE, PER_GROUP_VALUE, "Send a separate NRDP submission for every process group.");
+    protected static final AllowableValue SUBMISSION_BATCHED_VALUE      = new AllowableValue(BATCHED_VALUE, BATCHED_VALUE,     "Collect the check results of all process groups and send them in as few NRDP submissions as possible.");
+    protected static final AllowableValue DELIVERY_SYNCHRONOUS_VALUE    = new AllowableValue(SYNCHRONOUS_VALUE, SYNCHRONOUS_VALUE,   "Post submissions to NRDP on the reporting thread.");
+    protected static final AllowableValue DELIVERY_ASYNCHRONOUS_VALUE   = new AllowableValue(ASYNCHRONOUS_VALUE, ASYNCHRONOUS_VALUE, "Queue submissions and post them to NRDP from dedicated sender threads, the reporting thread never waits on NRDP.");
+    protected static final AllowableValue OVERFLOW_DROP_OLDEST_VALUE    = new AllowableValue(DROP_OLDEST_VALUE, DROP_OLDEST_VALUE, "When the queue is full, discard the oldest queued submission.");
+    protected static final AllowableValue TRANSPORT_POOLED_HTTP_VALUE   = new AllowableValue(POOLED_HTTP_VALUE, POOLED_HTTP_VALUE, "Keep a pool of persistent keep-alive connections to NRDP.");
+    protected static final AllowableValue TRANSPORT_URL_CONNECTION_VALUE = new AllowableValue(URL_CONNECTION_VALUE, URL_CONNECTION_VALUE, "Use the JDK HttpURLConnection, connections are only reused through the JDK keep-alive cache.");
+    protected static final AllowableValue OVERFLOW_COALESCE_VALUE       = new AllowableValue(COALESCE_VALUE, COALESCE_VALUE,       "Discard every queued submission of an older run as soon as a newer run is queued, so only the latest snapshot is delivered.");
+    protected static final AllowableValue FORMAT_XML_VALUE              = new AllowableValue(XML_VALUE, XML_VALUE,   "Send the check results as an XMLDATA document, supported by every NRDP version.");
+    protected static final AllowableValue FORMAT_JSON_VALUE             = new AllowableValue(JSON_VALUE, JSON_VALUE, "Send the check results as a more compact JSONDATA document.");
+    protected static final AllowableValue EVALUATION_INSTANTANEOUS_VALUE = new AllowableValue(INSTANTANEOUS_VALUE, INSTANTANEOUS_VALUE, "Compare the current value with the thresholds.");
+    protected static final AllowableValue EVALUATION_EWMA_VALUE         = new AllowableValue(EWMA_VALUE, EWMA_VALUE, "Compare an exponentially weighted moving average of the values with the thresholds.");
+    protected static final AllowableValue EVALUATION_PERCENTILE_VALUE   = new AllowableValue(PERCENTILE_VALUE, PERCENTILE_VALUE, "Compare a percentile of the values in the evaluation window with the thresholds.");
+    protected static final AllowableValue ROUTING_FAILOVER_VALUE        = new AllowableValue(FAILOVER_VALUE, FAILOVER_VALUE, "Send every submission to the first endpoint that accepts it, in the configured order.");
+    protected static final AllowableValue ROUTING_ROUND_ROBIN_VALUE     = new AllowableValue(ROUND_ROBIN_VALUE, ROUND_ROBIN_VALUE, "Spread the submissions over all endpoints, falling back to the next endpoint when one fails.");
+    protected static final AllowableValue ROUTING_BROADCAST_VALUE       = new AllowableValue(BROADCAST_VALUE, BROADCAST_VALUE, "Send every submission to every endpoint.");
+    protected static final AllowableValue FILE_FORMAT_CSV_VALUE         = new AllowableValue(CSV_VALUE, CSV_VALUE, "One timestamp,group_id,group_name,metric,value line per metric of every group, with a header line in a new file.");
+    protected static final AllowableValue FILE_FORMAT_LINE_PROTOCOL_VALUE = new AllowableValue(LINE_PROTOCOL_VALUE, LINE_PROTOCOL_VALUE, "One InfluxDB line protocol line per group, with the group's metrics as fields.");
+    protected static final AllowableValue EVALUATION_N_OF_M_VALUE       = new AllowableValue(N_OF_M_VALUE, N_OF_M_VALUE, "Alert when at least Samples Over Threshold values of the evaluation window are over a threshold.");
     
     public static final PropertyDescriptor URL = new PropertyDescriptor.Builder()
             .name("NRDP URL")
@@ -87,6 +123,22 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
             .build();
     
+    public static final PropertyDescriptor ADDITIONAL_ENDPOINTS = new PropertyDescriptor.Builder()
+            .name("Additional NRDP Endpoints")
+            .description("Further NRDP endpoints after the NRDP URL, separated by commas or new lines, each as url|token. The token may be omitted when it is the NRDP Token")
+            .required(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor ENDPOINT_ROUTING = new PropertyDescriptor.Builder()
+            .name("Endpoint Routing")
+            .description("How submissions are routed when there are Additional NRDP Endpoints. Endpoints whose circuit breaker is open are skipped, and endpoints whose latency approaches the Read Timeout or that fail half of their submissions "
+                + "are only used after the others, apart from a trial submission every 30 seconds so they can recover")
+            .required(true)
+            .allowableValues(ROUTING_FAILOVER_VALUE, ROUTING_ROUND_ROBIN_VALUE, ROUTING_BROADCAST_VALUE)
+            .defaultValue(FAILOVER_VALUE)
+            .build();
+    
     public static final PropertyDescriptor HOSTNAME = new PropertyDescriptor.Builder()
             .name("Hostname")
             .description("Hostname to use for posting to Nagios, default is value returned from DNS resolution")
@@ -110,6 +162,574 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .defaultValue(ENABLED_VALUE)
             .build();
     
+    public static final PropertyDescriptor INCLUDE_GROUPS = new PropertyDescriptor.Builder()
+            .name("Include Process Groups")
+            .description("Comma or new line separated rules selecting the process groups to report when Report All Process Groups is Enabled. "
+                + "A rule is a path glob over the group names starting at root, e.g. root/ingest/** (* and ? match within a name, ** matches any number of groups), "
+                + "name:<regex> matching the group name, or id:<group id>. Name and id rules also select every group below the matching group. "
+                + "When not set every group is included")
+            .required(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor EXCLUDE_GROUPS = new PropertyDescriptor.Builder()
+            .name("Exclude Process Groups")
+            .description("Rules, in the same format as Include Process Groups, for process groups that are never reported. "
+                + "Excluded subtrees, e.g. root/sandbox/**, are not traversed at all")
+            .required(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor MAX_GROUP_DEPTH = new PropertyDescriptor.Builder()
+            .name("Maximum Process Group Depth")
+            .description("Deepest level of nested process groups that is reported, the root group is at depth 0. When not set there is no limit")
+            .required(false)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor SUBMISSION_MODE = new PropertyDescriptor.Builder()
+            .name("Submission Mode")
+            .description("Whether check results are posted to NRDP once per process group or batched into as few submissions as possible per run")
+            .required(true)
+            .allowableValues(SUBMISSION_BATCHED_VALUE, SUBMISSION_PER_GROUP_VALUE)
+            .defaultValue(PER_GROUP_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor MAX_CHECKS_PER_SUBMISSION = new PropertyDescriptor.Builder()
+            .name("Max Checks Per Submission")
+            .description("Maximum number of check results posted in a single batched NRDP submission, larger batches are split into several submissions")
+            .required(true)
+            .defaultValue("1000")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor PAYLOAD_FORMAT = new PropertyDescriptor.Builder()
+            .name("Payload Format")
+            .description("Format of the check results document posted to NRDP")
+            .required(true)
+            .allowableValues(FORMAT_XML_VALUE, FORMAT_JSON_VALUE)
+            .defaultValue(XML_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor COMPRESS_REQUESTS = new PropertyDescriptor.Builder()
+            .name("Compress Requests")
+            .description("Compress request bodies with gzip and send them with Content-Encoding: gzip, only for NRDP front-ends that decode compressed requests")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_ENABLED_VALUE, COMPLEX_FIELD_DISABLED_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor DELIVERY_MODE = new PropertyDescriptor.Builder()
+            .name("Delivery Mode")
+            .description("Whether submissions are posted to NRDP on the reporting thread or handed off to dedicated sender threads")
+            .required(true)
+            .allowableValues(DELIVERY_ASYNCHRONOUS_VALUE, DELIVERY_SYNCHRONOUS_VALUE)
+            .defaultValue(SYNCHRONOUS_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor SUBMISSION_QUEUE_SIZE = new PropertyDescriptor.Builder()
+            .name("Submission Queue Size")
+            .description("Maximum number of submissions waiting to be sent when Delivery Mode is Asynchronous")
+            .required(true)
+            .defaultValue("100")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor SENDER_THREADS = new PropertyDescriptor.Builder()
+            .name("Sender Threads")
+            .description("Number of threads posting queued submissions to NRDP when Delivery Mode is Asynchronous")
+            .required(true)
+            .defaultValue("1")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor QUEUE_OVERFLOW_POLICY = new PropertyDescriptor.Builder()
+            .name("Queue Overflow Policy")
+            .description("What to discard when NRDP cannot keep up with the submission queue")
+            .required(true)
+            .allowableValues(OVERFLOW_DROP_OLDEST_VALUE, OVERFLOW_COALESCE_VALUE)
+            .defaultValue(DROP_OLDEST_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor CONNECT_TIMEOUT = new PropertyDescriptor.Builder()
+            .name("Connect Timeout")
+            .description("Maximum time to wait for a connection to the NRDP server")
+            .required(true)
+            .defaultValue("10 secs")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor READ_TIMEOUT = new PropertyDescriptor.Builder()
+            .name("Read Timeout")
+            .description("Maximum time to wait for the NRDP server to respond to a submission")
+            .required(true)
+            .defaultValue("30 secs")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor CIRCUIT_BREAKER_FAILURES = new PropertyDescriptor.Builder()
+            .name("Circuit Breaker Failure Threshold")
+            .description("Number of consecutive failed submissions after which an NRDP endpoint is considered down. "
+                + "Submissions then fail immediately, without connecting, until a single probe submission after the backoff gets through")
+            .required(true)
+            .defaultValue("3")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor CIRCUIT_BREAKER_INITIAL_BACKOFF = new PropertyDescriptor.Builder()
+            .name("Circuit Breaker Initial Backoff")
+            .description("Time to wait before probing an NRDP endpoint that went down. Every failed probe doubles it, up to the Circuit Breaker Maximum Backoff, "
+                + "and a random jitter of up to half the backoff is taken off")
+            .required(true)
+            .defaultValue("5 secs")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor CIRCUIT_BREAKER_MAX_BACKOFF = new PropertyDescriptor.Builder()
+            .name("Circuit Breaker Maximum Backoff")
+            .description("Longest time to wait between two probes of an NRDP endpoint that is down")
+            .required(true)
+            .defaultValue("5 mins")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor TRANSPORT = new PropertyDescriptor.Builder()
+            .name("NRDP Transport")
+            .description("The HTTP client used to post submissions to NRDP")
+            .required(true)
+            .allowableValues(TRANSPORT_POOLED_HTTP_VALUE, TRANSPORT_URL_CONNECTION_VALUE)
+            .defaultValue(URL_CONNECTION_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor CONNECTION_POOL_SIZE = new PropertyDescriptor.Builder()
+            .name("Connection Pool Size")
+            .description("Maximum number of persistent connections to NRDP kept by the Pooled HTTP Client transport, should be at least the number of sender threads")
+            .required(true)
+            .defaultValue("2")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor IDLE_CONNECTION_TIMEOUT = new PropertyDescriptor.Builder()
+            .name("Idle Connection Timeout")
+            .description("Pooled connections to NRDP that have been idle for longer than this are closed")
+            .required(true)
+            .defaultValue("60 secs")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor SPOOL_DIRECTORY = new PropertyDescriptor.Builder()
+            .name("Spool Directory")
+            .description("Directory where submissions that could not be delivered to NRDP are stored and replayed from once NRDP is reachable again, if not set undelivered submissions are lost")
+            .required(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor SPOOL_MAX_SIZE = new PropertyDescriptor.Builder()
+            .name("Spool Max Size")
+            .description("Maximum disk space used by the spool, the oldest spooled submissions are discarded first")
+            .required(true)
+            .defaultValue("100 MB")
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor SPOOL_MAX_AGE = new PropertyDescriptor.Builder()
+            .name("Spool Max Age")
+            .description("Spooled submissions older than this are discarded instead of replayed")
+            .required(true)
+            .defaultValue("24 hours")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor SPOOL_REPLAY_RATE = new PropertyDescriptor.Builder()
+            .name("Spool Replay Rate")
+            .description("Maximum number of spooled submissions replayed to NRDP per second once it is reachable again. Spooled submissions are replayed in order, "
+                + "on every run and by idle sender threads, and new submissions are spooled behind them until the spool is drained")
+            .required(true)
+            .defaultValue("10")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor SPOOL_DISCARD_SUPERSEDED = new PropertyDescriptor.Builder()
+            .name("Spool Discard Superseded")
+            .description("If Enabled, new submissions are posted even while spooled ones are left, and once one is delivered the spooled submissions of older runs "
+                + "are discarded instead of replayed, so a recovered service never returns to the state it had during an outage. "
+                + "Loses the performance data of the outage, by default every spooled submission is replayed")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_ENABLED_VALUE, COMPLEX_FIELD_DISABLED_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor STATE_CHANGE_SUPPRESSION = new PropertyDescriptor.Builder()
+            .name("State Change Suppression")
+            .description("If Enabled, a check result is only sent when its state changes, its value moves by more than the Suppression Value Change Threshold or its Heartbeat Interval expires")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_ENABLED_VALUE, COMPLEX_FIELD_DISABLED_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor SUPPRESSION_VALUE_CHANGE = new PropertyDescriptor.Builder()
+            .name("Suppression Value Change Threshold")
+            .description("Relative change of a value, in percent of the last sent value, that causes a suppressed check result to be sent")
+            .required(true)
+            .defaultValue("10")
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor HEARTBEAT_INTERVAL = new PropertyDescriptor.Builder()
+            .name("Heartbeat Interval")
+            .description("Maximum time between two check results sent for the same service when State Change Suppression is Enabled, should be below the Nagios freshness threshold")
+            .required(true)
+            .defaultValue("5 mins")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor THRESHOLD_EVALUATION = new PropertyDescriptor.Builder()
+            .name("Threshold Evaluation")
+            .description("How the values of metrics in Alerting mode are compared with their thresholds. All modes except Instantaneous keep the last values of every process group and metric, "
+                + "and a service in a warning or critical state only recovers once its value falls below the threshold by the Recovery Hysteresis")
+            .required(true)
+            .allowableValues(EVALUATION_INSTANTANEOUS_VALUE, EVALUATION_EWMA_VALUE, EVALUATION_PERCENTILE_VALUE, EVALUATION_N_OF_M_VALUE)
+            .defaultValue(INSTANTANEOUS_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor EVALUATION_WINDOW = new PropertyDescriptor.Builder()
+            .name("Evaluation Window Size")
+            .description("Number of values kept per process group and metric for the Window Percentile and N of M evaluations")
+            .required(true)
+            .defaultValue("5")
+            .addValidator(StandardValidators.createLongValidator(1, 64, true))
+            .build();
+    
+    public static final PropertyDescriptor EWMA_WEIGHT = new PropertyDescriptor.Builder()
+            .name("EWMA Weight")
+            .description("Weight of the current value in the moving average, in percent. Lower values smooth more")
+            .required(true)
+            .defaultValue("30")
+            .addValidator(StandardValidators.createLongValidator(1, 100, true))
+            .build();
+    
+    public static final PropertyDescriptor WINDOW_PERCENTILE = new PropertyDescriptor.Builder()
+            .name("Window Percentile")
+            .description("Percentile of the evaluation window compared with the thresholds, 50 is the median")
+            .required(true)
+            .defaultValue("50")
+            .addValidator(StandardValidators.createLongValidator(1, 100, true))
+            .build();
+    
+    public static final PropertyDescriptor SAMPLES_OVER_THRESHOLD = new PropertyDescriptor.Builder()
+            .name("Samples Over Threshold")
+            .description("Number of values of the evaluation window that must be over a threshold for the N of M evaluation, at most the Evaluation Window Size")
+            .required(true)
+            .defaultValue("3")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor RECOVERY_HYSTERESIS = new PropertyDescriptor.Builder()
+            .name("Recovery Hysteresis")
+            .description("How far, in percent of the threshold, a value must fall below a threshold before a warning or critical service recovers")
+            .required(true)
+            .defaultValue("10")
+            .addValidator(StandardValidators.createLongValidator(0, 100, true))
+            .build();
+    
+    public static final PropertyDescriptor TRAVERSAL_PARALLELISM = new PropertyDescriptor.Builder()
+            .name("Traversal Parallelism")
+            .description("Number of threads used to evaluate and encode the check results of process groups when Report All Process Groups is Enabled, 1 evaluates them on the reporting thread")
+            .required(true)
+            .defaultValue("1")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor REPORTER_HEALTH = new PropertyDescriptor.Builder()
+            .name("Reporter Health Check")
+            .description("If Enabled, every run also sends a '" + ReporterHealth.SERVICE_NAME + "' check result with the time spent walking the process group tree, evaluating and encoding check results, "
+                + "the NRDP round trip latency and the bytes, errors and retries since the previous run. These values are always available through JMX")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_ENABLED_VALUE, COMPLEX_FIELD_DISABLED_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    
+    public static final PropertyDescriptor CONNECTION_BACKPRESSURE = new PropertyDescriptor.Builder()
+            .name("Connection Backpressure")
+            .description("How full the connections of the reported process groups are, in percent of the fuller of their backpressure object and data size thresholds. "
+                + "Only the Connection Backpressure Top N fullest connections are reported per run, plus connections that need to recover from a warning or critical state")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor CONNECTION_BACKPRESSURE_WARN = new PropertyDescriptor.Builder()
+            .name("Connection Backpressure Warning Threshold")
+            .description("Warning threshold for the fill of a connection, in percent of its backpressure threshold")
+            .required(true)
+            .defaultValue("80")
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor CONNECTION_BACKPRESSURE_CRIT = new PropertyDescriptor.Builder()
+            .name("Connection Backpressure Critical Threshold")
+            .description("Critical threshold for the fill of a connection, in percent of its backpressure threshold")
+            .required(true)
+            .defaultValue("95")
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor CONNECTION_TOP_N = new PropertyDescriptor.Builder()
+            .name("Connection Backpressure Top N")
+            .description("Number of the fullest connections reported per run, 0 reports every connection")
+            .required(true)
+            .defaultValue("10")
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor PROCESSOR_HOT_SPOTS = new PropertyDescriptor.Builder()
+            .name("Processor Hot Spots")
+            .description("Reports the processors of the reported process groups with the most processing time, active threads and tasks in the last 5 minutes, "
+                + "the Processor Hot Spots Top N of each as a separate service. Thresholds that are not set never alert")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor PROCESSOR_TOP_N = new PropertyDescriptor.Builder()
+            .name("Processor Hot Spots Top N")
+            .description("Number of processors reported per ranking and run, 0 reports every processor that did any work")
+            .required(true)
+            .defaultValue("5")
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor PROCESSOR_TIME_WARN = new PropertyDescriptor.Builder()
+            .name("Processor Time Warning Threshold")
+            .description("Warning threshold for the processing time of a processor in the last 5 minutes, summed over all its threads")
+            .required(false)
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor PROCESSOR_TIME_CRIT = new PropertyDescriptor.Builder()
+            .name("Processor Time Critical Threshold")
+            .description("Critical threshold for the processing time of a processor in the last 5 minutes, summed over all its threads")
+            .required(false)
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor PROCESSOR_THREADS_WARN = new PropertyDescriptor.Builder()
+            .name("Processor Threads Warning Threshold")
+            .description("Warning threshold for the number of active threads of a processor")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor PROCESSOR_THREADS_CRIT = new PropertyDescriptor.Builder()
+            .name("Processor Threads Critical Threshold")
+            .description("Critical threshold for the number of active threads of a processor")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor PROCESSOR_TASKS_WARN = new PropertyDescriptor.Builder()
+            .name("Processor Tasks Warning Threshold")
+            .description("Warning threshold for the number of tasks a processor ran in the last 5 minutes")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor PROCESSOR_TASKS_CRIT = new PropertyDescriptor.Builder()
+            .name("Processor Tasks Critical Threshold")
+            .description("Critical threshold for the number of tasks a processor ran in the last 5 minutes")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor SITE_TO_SITE = new PropertyDescriptor.Builder()
+            .name("Site-to-Site Links")
+            .description("Checks every remote process group of the reported process groups as a separate service: its transmission status, "
+                + "active remote ports, and bytes sent and received per second over the last 5 minutes. "
+                + "A link that stops transmitting is critical until it transmits again or is removed from the flow, including a link in use that is disabled; "
+                + "links not transmitting since the task was started are not. A transmitting link without active remote ports is a warning")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor SITE_TO_SITE_FLOOR_WARN = new PropertyDescriptor.Builder()
+            .name("Site-to-Site Throughput Warning Floor")
+            .description("Warning when a transmitting link moves less data than this per second, e.g. 10 KB")
+            .required(false)
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor SITE_TO_SITE_FLOOR_CRIT = new PropertyDescriptor.Builder()
+            .name("Site-to-Site Throughput Critical Floor")
+            .description("Critical when a transmitting link moves less data than this per second")
+            .required(false)
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor JVM_RESOURCES = new PropertyDescriptor.Builder()
+            .name("JVM Resources")
+            .description("Checks the resources of this NiFi node as the services " + JvmResourceMonitor.HEAP_SERVICE + ", " + JvmResourceMonitor.GC_SERVICE + " and "
+                + JvmResourceMonitor.THREADS_SERVICE + ", plus the free space of every Repository Directory. Thresholds that are not set never alert")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor HEAP_USAGE_WARN = new PropertyDescriptor.Builder()
+            .name("Heap Usage Warning Threshold")
+            .description("Warning threshold for the used heap, in percent of the maximum heap")
+            .required(true)
+            .defaultValue("80")
+            .addValidator(StandardValidators.createLongValidator(0, 100, true))
+            .build();
+    public static final PropertyDescriptor HEAP_USAGE_CRIT = new PropertyDescriptor.Builder()
+            .name("Heap Usage Critical Threshold")
+            .description("Critical threshold for the used heap, in percent of the maximum heap")
+            .required(true)
+            .defaultValue("90")
+            .addValidator(StandardValidators.createLongValidator(0, 100, true))
+            .build();
+    public static final PropertyDescriptor GC_TIME_WARN = new PropertyDescriptor.Builder()
+            .name("GC Time Warning Threshold")
+            .description("Warning threshold for the time spent in garbage collection since the previous run, in percent of the time between the runs")
+            .required(true)
+            .defaultValue("10")
+            .addValidator(StandardValidators.createLongValidator(0, 100, true))
+            .build();
+    public static final PropertyDescriptor GC_TIME_CRIT = new PropertyDescriptor.Builder()
+            .name("GC Time Critical Threshold")
+            .description("Critical threshold for the time spent in garbage collection since the previous run, in percent of the time between the runs")
+            .required(true)
+            .defaultValue("25")
+            .addValidator(StandardValidators.createLongValidator(0, 100, true))
+            .build();
+    public static final PropertyDescriptor JVM_THREADS_WARN = new PropertyDescriptor.Builder()
+            .name("JVM Threads Warning Threshold")
+            .description("Warning threshold for the number of live threads of the JVM")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor JVM_THREADS_CRIT = new PropertyDescriptor.Builder()
+            .name("JVM Threads Critical Threshold")
+            .description("Critical threshold for the number of live threads of the JVM")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor REPOSITORY_DIRECTORIES = new PropertyDescriptor.Builder()
+            .name("Repository Directories")
+            .description("Directories whose file system free space is checked, separated by commas or new lines, "
+                + "typically the content, flowfile and provenance repositories, e.g. ./content_repository")
+            .required(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor REPOSITORY_FREE_WARN = new PropertyDescriptor.Builder()
+            .name("Repository Free Space Warning Threshold")
+            .description("Warning when the free space of a repository file system drops to this percent or below")
+            .required(true)
+            .defaultValue("20")
+            .addValidator(StandardValidators.createLongValidator(0, 100, true))
+            .build();
+    public static final PropertyDescriptor REPOSITORY_FREE_CRIT = new PropertyDescriptor.Builder()
+            .name("Repository Free Space Critical Threshold")
+            .description("Critical when the free space of a repository file system drops to this percent or below")
+            .required(true)
+            .defaultValue("10")
+            .addValidator(StandardValidators.createLongValidator(0, 100, true))
+            .build();
+    
+    public static final PropertyDescriptor LINEAGE_LATENCY = new PropertyDescriptor.Builder()
+            .name("Lineage Latency")
+            .description("End-to-end latency of the reported process groups from provenance: the age of the data, since it entered the flow, "
+                + "when the group's components record an event for it. Reports the 50th, 95th and 99th percentile of the events read per run, "
+                + "a group including the events of the groups below it. Thresholds that are not set never alert")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor LINEAGE_LATENCY_PERCENTILE = new PropertyDescriptor.Builder()
+            .name("Lineage Latency Alert Percentile")
+            .description("The percentile of the lineage latency compared against the thresholds")
+            .required(true)
+            .allowableValues("50", "95", "99")
+            .defaultValue("95")
+            .build();
+    public static final PropertyDescriptor LINEAGE_LATENCY_WARN = new PropertyDescriptor.Builder()
+            .name("Lineage Latency Warning Threshold")
+            .description("Warning threshold for the lineage latency percentile of a process group")
+            .required(false)
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor LINEAGE_LATENCY_CRIT = new PropertyDescriptor.Builder()
+            .name("Lineage Latency Critical Threshold")
+            .description("Critical threshold for the lineage latency percentile of a process group")
+            .required(false)
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor PROVENANCE_BATCH_SIZE = new PropertyDescriptor.Builder()
+            .name("Provenance Batch Size")
+            .description("Maximum number of provenance events read at once")
+            .required(true)
+            .defaultValue("1000")
+            .addValidator(StandardValidators.createLongValidator(1, 100000, true))
+            .build();
+    public static final PropertyDescriptor PROVENANCE_TIME_BUDGET = new PropertyDescriptor.Builder()
+            .name("Provenance Time Budget")
+            .description("Time a run may spend reading provenance. Once it is used up the remaining events are left for the next runs, "
+                + "so a provenance backlog cannot stall reporting")
+            .required(true)
+            .defaultValue("2 secs")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor BULLETIN_RATE = new PropertyDescriptor.Builder()
+            .name("Bulletin Rate")
+            .description("Number of error and warning bulletins of the reported process groups within the Bulletin Rate Window, "
+                + "a group including the bulletins of the groups below it. Groups are only reported while they have bulletins in the window, "
+                + "alerting on the number of error bulletins")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor BULLETIN_RATE_WINDOW = new PropertyDescriptor.Builder()
+            .name("Bulletin Rate Window")
+            .description("The rolling window bulletins are counted over")
+            .required(true)
+            .defaultValue("5 mins")
+            .addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor BULLETIN_ERRORS_WARN = new PropertyDescriptor.Builder()
+            .name("Bulletin Errors Warning Threshold")
+            .description("Warning threshold for the number of error bulletins of a process group within the Bulletin Rate Window")
+            .required(true)
+            .defaultValue("1")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor BULLETIN_ERRORS_CRIT = new PropertyDescriptor.Builder()
+            .name("Bulletin Errors Critical Threshold")
+            .description("Critical threshold for the number of error bulletins of a process group within the Bulletin Rate Window")
+            .required(true)
+            .defaultValue("10")
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor METRICS_FILE = new PropertyDescriptor.Builder()
+            .name("Metrics File")
+            .description("File every process group metric is appended to on every run, whether or not it is checked by NRDP. "
+                + "Growth metrics are not written. If not set no file is written")
+            .required(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor METRICS_FILE_FORMAT = new PropertyDescriptor.Builder()
+            .name("Metrics File Format")
+            .description("Format of the lines appended to the Metrics File")
+            .required(true)
+            .allowableValues(FILE_FORMAT_CSV_VALUE, FILE_FORMAT_LINE_PROTOCOL_VALUE)
+            .defaultValue(CSV_VALUE)
+            .build();
+    public static final PropertyDescriptor PROMETHEUS_PORT = new PropertyDescriptor.Builder()
+            .name("Prometheus Port")
+            .description("Port of an HTTP endpoint serving every process group metric of the latest run in the Prometheus text format on /metrics, "
+                + "whether or not it is checked by NRDP. Growth metrics are not served. If not set no endpoint is started")
+            .required(false)
+            .addValidator(StandardValidators.PORT_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor PROMETHEUS_BIND_ADDRESS = new PropertyDescriptor.Builder()
+            .name("Prometheus Bind Address")
+            .description("Host name or address of the interface the Prometheus endpoint listens on. Defaults to localhost, "
+                + "set it to 0.0.0.0 to serve the metrics on all interfaces")
+            .required(true)
+            .defaultValue("localhost")
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+    
     public static final PropertyDescriptor ACTIVE_THREAD_COUNT = new PropertyDescriptor.Builder()
             .name("Active Thread Count")
             .description("Number of active threads for this process group")
@@ -117,13 +737,13 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor ACTIVE_THREAD_COUNT_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor ACTIVE_THREAD_COUNT_WARN = new PropertyDescriptor.Builder()
             .name("Active Thread Count Warning Threshold")
             .description("Warning threshold for the number of active threads for this process group")
             .required(false)
             .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
             .build();
-    public static PropertyDescriptor ACTIVE_THREAD_COUNT_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor ACTIVE_THREAD_COUNT_CRIT = new PropertyDescriptor.Builder()
             .name("Active Thread Count Critical Threshold")
             .description("Critical threshold for the number of active threads for this process group")
             .required(false)
@@ -137,13 +757,13 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor FLOWFILES_QUEUED_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor FLOWFILES_QUEUED_WARN = new PropertyDescriptor.Builder()
             .name("Flowfiles Queued Warning Threshold")
             .description("Warning threshold for the number of flowfiles queued in this process group")
             .required(false)
             .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
             .build();
-    public static PropertyDescriptor FLOWFILES_QUEUED_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor FLOWFILES_QUEUED_CRIT = new PropertyDescriptor.Builder()
             .name("Flowfiles Queued Critical Threshold")
             .description("Critical threshold for the number of flowfiles queued in this process group")
             .required(false)
@@ -157,13 +777,13 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor BYTES_QUEUED_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_QUEUED_WARN = new PropertyDescriptor.Builder()
             .name("Bytes Queued Warning Threshold")
             .description("Warning threshold for the number of bytes queued in this process group")
             .required(false)
             .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
             .build();
-    public static PropertyDescriptor BYTES_QUEUED_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_QUEUED_CRIT = new PropertyDescriptor.Builder()
             .name("Bytes Queued Critical Threshold")
             .description("Critical threshold for the number of bytes queued in this process group")
             .required(false)
@@ -177,13 +797,13 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor BYTES_IN_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_IN_WARN = new PropertyDescriptor.Builder()
             .name("Bytes In Warning Threshold")
             .description("Warning threshold for the number of bytes received via Site-to-Site in the last 5 minutes")
             .required(false)
             .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
             .build();
-    public static PropertyDescriptor BYTES_IN_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_IN_CRIT = new PropertyDescriptor.Builder()
             .name("Bytes In Critical Threshold")
             .description("Critical threshold for the number of bytes received via Site-to-Site in the last 5 minutes")
             .required(false)
@@ -197,13 +817,13 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor BYTES_OUT_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_OUT_WARN = new PropertyDescriptor.Builder()
             .name("Bytes Out Warning Threshold")
             .description("Warning threshold for the number of bytes pulled from Output Ports via Site-to-Site in the last 5 minutes")
             .required(false)
             .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
             .build();
-    public static PropertyDescriptor BYTES_OUT_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_OUT_CRIT = new PropertyDescriptor.Builder()
             .name("Bytes Out Critical Threshold")
             .description("Critical threshold for the number of bytes pulled from Output Ports via Site-to-Site in the last 5 minutes")
             .required(false)
@@ -217,13 +837,13 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor FLOWFILES_IN_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor FLOWFILES_IN_WARN = new PropertyDescriptor.Builder()
             .name("Flowfiles In Warning Threshold")
             .description("Warning threshold for the number of FlowFiles received via Site-to-Site in the last 5 minutes")
             .required(false)
             .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
             .build();
-    public static PropertyDescriptor FLOWFILES_IN_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor FLOWFILES_IN_CRIT = new PropertyDescriptor.Builder()
             .name("Flowfiles In Critical Threshold")
             .description("Critical threshold for the number of FlowFiles received via Site-to-Site in the last 5 minutes")
             .required(false)
@@ -237,13 +857,13 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor FLOWFILES_OUT_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor FLOWFILES_OUT_WARN = new PropertyDescriptor.Builder()
             .name("Flowfiles Out Warning Threshold")
             .description("Warning threshold for the number of FlowFiles pulled from Output Ports via Site-to-Site in the last 5 minutes")
             .required(false)
             .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
             .build();
-    public static PropertyDescriptor FLOWFILES_OUT_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor FLOWFILES_OUT_CRIT = new PropertyDescriptor.Builder()
             .name("Flowfiles Out Critical Threshold")
             .description("Critical threshold for the number of FlowFiles pulled from Output Ports via Site-to-Site in the last 5 minutes")
             .required(false)
@@ -257,13 +877,13 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor BYTES_READ_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_READ_WARN = new PropertyDescriptor.Builder()
             .name("Bytes Read Warning Threshold")
             .description("Warning threshold for the number of bytes read from disk by NiFi in the last 5 minutes")
             .required(false)
             .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
             .build();
-    public static PropertyDescriptor BYTES_READ_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_READ_CRIT = new PropertyDescriptor.Builder()
             .name("Bytes Read Critical Threshold")
             .description("Critical threshold for the number of bytes read from disk by NiFi in the last 5 minutes")
             .required(false)
@@ -277,31 +897,289 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
             .defaultValue(DISABLED_VALUE)
             .build();
-    public static PropertyDescriptor BYTES_WRITTEN_WARN = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_WRITTEN_WARN = new PropertyDescriptor.Builder()
             .name("Bytes Written Warning Threshold")
             .description("Warning threshold for the number of bytes written to disk by NiFi in the last 5 minutes")
             .required(false)
             .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
             .build();
-    public static PropertyDescriptor BYTES_WRITTEN_CRIT = new PropertyDescriptor.Builder()
+    public static final PropertyDescriptor BYTES_WRITTEN_CRIT = new PropertyDescriptor.Builder()
             .name("Bytes Written Critical Threshold")
             .description("Critical threshold for the number of bytes written to disk by NiFi in the last 5 minutes")
             .required(false)
             .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
             .build();
-
-    private static final Logger nifiLogger = LoggerFactory.getLogger(NagiosNRDPReporter.class);
     
-    @Override
-    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
-
-        final List<PropertyDescriptor> _descriptors = new ArrayList<>();
-            _descriptors.add(URL);
-            _descriptors.add(TOKEN);
-            _descriptors.add(HOSTNAME);
-            _descriptors.add(INCLUDE_PERFORMANCE_DATA);
-            _descriptors.add(PROCESS_ALL_GROUPS);
-            
+    public static final PropertyDescriptor FLOWFILES_QUEUED_GROWTH = new PropertyDescriptor.Builder()
+            .name("Queue Growth")
+            .description("The change of the number of FlowFiles queued in this process group per minute since the previous run, negative while the queues drain")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor FLOWFILES_QUEUED_GROWTH_WARN = new PropertyDescriptor.Builder()
+            .name("Queue Growth Warning Threshold")
+            .description("Warning threshold for the change of the number of FlowFiles queued per minute")
+            .required(false)
+            .addValidator(StandardValidators.INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor FLOWFILES_QUEUED_GROWTH_CRIT = new PropertyDescriptor.Builder()
+            .name("Queue Growth Critical Threshold")
+            .description("Critical threshold for the change of the number of FlowFiles queued per minute")
+            .required(false)
+            .addValidator(StandardValidators.INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor BYTES_QUEUED_GROWTH = new PropertyDescriptor.Builder()
+            .name("Data Queued Growth")
+            .description("The change of the size of the data queued in this process group per minute since the previous run")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor BYTES_QUEUED_GROWTH_WARN = new PropertyDescriptor.Builder()
+            .name("Data Queued Growth Warning Threshold")
+            .description("Warning threshold for the growth of the size of the data queued per minute")
+            .required(false)
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor BYTES_QUEUED_GROWTH_CRIT = new PropertyDescriptor.Builder()
+            .name("Data Queued Growth Critical Threshold")
+            .description("Critical threshold for the growth of the size of the data queued per minute")
+            .required(false)
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor FLOWFILES_IN_RATE = new PropertyDescriptor.Builder()
+            .name("Flowfiles In Rate")
+            .description("The average number of FlowFiles received via Site-to-Site per second over the last 5 minutes")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor FLOWFILES_IN_RATE_WARN = new PropertyDescriptor.Builder()
+            .name("Flowfiles In Rate Warning Threshold")
+            .description("Warning threshold for the number of FlowFiles received via Site-to-Site per second")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor FLOWFILES_IN_RATE_CRIT = new PropertyDescriptor.Builder()
+            .name("Flowfiles In Rate Critical Threshold")
+            .description("Critical threshold for the number of FlowFiles received via Site-to-Site per second")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor FLOWFILES_OUT_RATE = new PropertyDescriptor.Builder()
+            .name("Flowfiles Out Rate")
+            .description("The average number of FlowFiles pulled from Output Ports via Site-to-Site per second over the last 5 minutes")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor FLOWFILES_OUT_RATE_WARN = new PropertyDescriptor.Builder()
+            .name("Flowfiles Out Rate Warning Threshold")
+            .description("Warning threshold for the number of FlowFiles pulled from Output Ports via Site-to-Site per second")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor FLOWFILES_OUT_RATE_CRIT = new PropertyDescriptor.Builder()
+            .name("Flowfiles Out Rate Critical Threshold")
+            .description("Critical threshold for the number of FlowFiles pulled from Output Ports via Site-to-Site per second")
+            .required(false)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor BYTES_IN_RATE = new PropertyDescriptor.Builder()
+            .name("Bytes In Rate")
+            .description("The average number of bytes received via Site-to-Site per second over the last 5 minutes")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor BYTES_IN_RATE_WARN = new PropertyDescriptor.Builder()
+            .name("Bytes In Rate Warning Threshold")
+            .description("Warning threshold for the number of bytes received via Site-to-Site per second")
+            .required(false)
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor BYTES_IN_RATE_CRIT = new PropertyDescriptor.Builder()
+            .name("Bytes In Rate Critical Threshold")
+            .description("Critical threshold for the number of bytes received via Site-to-Site per second")
+            .required(false)
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+    
+    public static final PropertyDescriptor BYTES_OUT_RATE = new PropertyDescriptor.Builder()
+            .name("Bytes Out Rate")
+            .description("The average number of bytes pulled from Output Ports via Site-to-Site per second over the last 5 minutes")
+            .required(true)
+            .allowableValues(COMPLEX_FIELD_DISABLED_VALUE, COMPLEX_FIELD_ALERTING_VALUE, COMPLEX_FIELD_REPORTING_VALUE)
+            .defaultValue(DISABLED_VALUE)
+            .build();
+    public static final PropertyDescriptor BYTES_OUT_RATE_WARN = new PropertyDescriptor.Builder()
+            .name("Bytes Out Rate Warning Threshold")
+            .description("Warning threshold for the number of bytes pulled from Output Ports via Site-to-Site per second")
+            .required(false)
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+    public static final PropertyDescriptor BYTES_OUT_RATE_CRIT = new PropertyDescriptor.Builder()
+            .name("Bytes Out Rate Critical Threshold")
+            .description("Critical threshold for the number of bytes pulled from Output Ports via Site-to-Site per second")
+            .required(false)
+            .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
+            .build();
+
+    private static final class MetricProperties {
+        
+        private final GroupMetric metric;
+        private final PropertyDescriptor mode;
+        private final PropertyDescriptor warning;
+        private final PropertyDescriptor critical;
+        
+        MetricProperties(GroupMetric metric, PropertyDescriptor mode, PropertyDescriptor warning, PropertyDescriptor critical) {
+            this.metric = metric;
+            this.mode = mode;
+            this.warning = warning;
+            this.critical = critical;
+        }
+    }
+    
+    private static final List<MetricProperties> METRIC_PROPERTIES = Collections.unmodifiableList(Arrays.asList(
+        new MetricProperties(GroupMetric.ACTIVE_THREAD_COUNT, ACTIVE_THREAD_COUNT, ACTIVE_THREAD_COUNT_WARN, ACTIVE_THREAD_COUNT_CRIT),
+        new MetricProperties(GroupMetric.FLOWFILES_QUEUED, FLOWFILES_QUEUED, FLOWFILES_QUEUED_WARN, FLOWFILES_QUEUED_CRIT),
+        new MetricProperties(GroupMetric.BYTES_QUEUED, BYTES_QUEUED, BYTES_QUEUED_WARN, BYTES_QUEUED_CRIT),
+        new MetricProperties(GroupMetric.BYTES_IN, BYTES_IN, BYTES_IN_WARN, BYTES_IN_CRIT),
+        new MetricProperties(GroupMetric.BYTES_OUT, BYTES_OUT, BYTES_OUT_WARN, BYTES_OUT_CRIT),
+        new MetricProperties(GroupMetric.FLOWFILES_IN, FLOWFILES_IN, FLOWFILES_IN_WARN, FLOWFILES_IN_CRIT),
+        new MetricProperties(GroupMetric.FLOWFILES_OUT, FLOWFILES_OUT, FLOWFILES_OUT_WARN, FLOWFILES_OUT_CRIT),
+        new MetricProperties(GroupMetric.BYTES_READ, BYTES_READ, BYTES_READ_WARN, BYTES_READ_CRIT),
+        new MetricProperties(GroupMetric.BYTES_WRITTEN, BYTES_WRITTEN, BYTES_WRITTEN_WARN, BYTES_WRITTEN_CRIT),
+        new MetricProperties(GroupMetric.FLOWFILES_QUEUED_GROWTH, FLOWFILES_QUEUED_GROWTH, FLOWFILES_QUEUED_GROWTH_WARN, FLOWFILES_QUEUED_GROWTH_CRIT),
+        new MetricProperties(GroupMetric.BYTES_QUEUED_GROWTH, BYTES_QUEUED_GROWTH, BYTES_QUEUED_GROWTH_WARN, BYTES_QUEUED_GROWTH_CRIT),
+        new MetricProperties(GroupMetric.FLOWFILES_IN_RATE, FLOWFILES_IN_RATE, FLOWFILES_IN_RATE_WARN, FLOWFILES_IN_RATE_CRIT),
+        new MetricProperties(GroupMetric.FLOWFILES_OUT_RATE, FLOWFILES_OUT_RATE, FLOWFILES_OUT_RATE_WARN, FLOWFILES_OUT_RATE_CRIT),
+        new MetricProperties(GroupMetric.BYTES_IN_RATE, BYTES_IN_RATE, BYTES_IN_RATE_WARN, BYTES_IN_RATE_CRIT),
+        new MetricProperties(GroupMetric.BYTES_OUT_RATE, BYTES_OUT_RATE, BYTES_OUT_RATE_WARN, BYTES_OUT_RATE_CRIT)));
+
+    private static final Logger nifiLogger = LoggerFactory.getLogger(NagiosNRDPReporter.class);
+    
+    private static final String HEALTH_MBEAN_DOMAIN = "pagefault.reporting";
+    
+    private final CheckResultPayload payload = new CheckResultPayload();
+    private final ReporterHealth health = new ReporterHealth();
+    private final FlowIndex flowIndex = new FlowIndex();
+    
+    private volatile MetricPlan metricPlan = null;
+    private volatile SubmissionPipeline pipeline = null;
+    private volatile EndpointRouter router = null;
+    private volatile SubmissionSpool spool = null;
+    private volatile boolean discardSuperseded = false;
+    private volatile SuppressionTable suppression = null;
+    private volatile GrowthTable growth = null;
+    private volatile SmoothingTable smoothing = null;
+    private volatile GroupMonitor[] groupMonitors = new GroupMonitor[0];
+    private volatile LineageLatencyMonitor lineageMonitor = null;
+    private volatile BulletinMonitor bulletinMonitor = null;
+    private volatile JvmResourceMonitor jvmMonitor = null;
+    private volatile MetricExporter[] exporters = new MetricExporter[0];
+    private volatile ProcessGroupTraversal traversal = null;
+    private volatile ObjectName healthBeanName = null;
+    private long runId = 0L;
+    
+    @Override
+    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
+
+        final List<PropertyDescriptor> _descriptors = new ArrayList<>();
+            _descriptors.add(URL);
+            _descriptors.add(TOKEN);
+            _descriptors.add(ADDITIONAL_ENDPOINTS);
+            _descriptors.add(ENDPOINT_ROUTING);
+            _descriptors.add(HOSTNAME);
+            _descriptors.add(INCLUDE_PERFORMANCE_DATA);
+            _descriptors.add(PROCESS_ALL_GROUPS);
+            _descriptors.add(INCLUDE_GROUPS);
+            _descriptors.add(EXCLUDE_GROUPS);
+            _descriptors.add(MAX_GROUP_DEPTH);
+            _descriptors.add(SUBMISSION_MODE);
+            _descriptors.add(MAX_CHECKS_PER_SUBMISSION);
+            _descriptors.add(PAYLOAD_FORMAT);
+            _descriptors.add(COMPRESS_REQUESTS);
+            _descriptors.add(DELIVERY_MODE);
+            _descriptors.add(SUBMISSION_QUEUE_SIZE);
+            _descriptors.add(SENDER_THREADS);
+            _descriptors.add(QUEUE_OVERFLOW_POLICY);
+            _descriptors.add(CONNECT_TIMEOUT);
+            _descriptors.add(READ_TIMEOUT);
+            _descriptors.add(CIRCUIT_BREAKER_FAILURES);
+            _descriptors.add(CIRCUIT_BREAKER_INITIAL_BACKOFF);
+            _descriptors.add(CIRCUIT_BREAKER_MAX_BACKOFF);
+            _descriptors.add(TRANSPORT);
+            _descriptors.add(CONNECTION_POOL_SIZE);
+            _descriptors.add(IDLE_CONNECTION_TIMEOUT);
+            _descriptors.add(SPOOL_DIRECTORY);
+            _descriptors.add(SPOOL_MAX_SIZE);
+            _descriptors.add(SPOOL_MAX_AGE);
+            _descriptors.add(SPOOL_REPLAY_RATE);
+            _descriptors.add(SPOOL_DISCARD_SUPERSEDED);
+            _descriptors.add(STATE_CHANGE_SUPPRESSION);
+            _descriptors.add(SUPPRESSION_VALUE_CHANGE);
+            _descriptors.add(HEARTBEAT_INTERVAL);
+            _descriptors.add(THRESHOLD_EVALUATION);
+            _descriptors.add(EVALUATION_WINDOW);
+            _descriptors.add(EWMA_WEIGHT);
+            _descriptors.add(WINDOW_PERCENTILE);
+            _descriptors.add(SAMPLES_OVER_THRESHOLD);
+            _descriptors.add(RECOVERY_HYSTERESIS);
+            _descriptors.add(TRAVERSAL_PARALLELISM);
+            _descriptors.add(REPORTER_HEALTH);
+            
+            _descriptors.add(CONNECTION_BACKPRESSURE);
+            _descriptors.add(CONNECTION_BACKPRESSURE_WARN);
+            _descriptors.add(CONNECTION_BACKPRESSURE_CRIT);
+            _descriptors.add(CONNECTION_TOP_N);
+            
+            _descriptors.add(PROCESSOR_HOT_SPOTS);
+            _descriptors.add(PROCESSOR_TOP_N);
+            _descriptors.add(PROCESSOR_TIME_WARN);
+            _descriptors.add(PROCESSOR_TIME_CRIT);
+            _descriptors.add(PROCESSOR_THREADS_WARN);
+            _descriptors.add(PROCESSOR_THREADS_CRIT);
+            _descriptors.add(PROCESSOR_TASKS_WARN);
+            _descriptors.add(PROCESSOR_TASKS_CRIT);
+            
+            _descriptors.add(SITE_TO_SITE);
+            _descriptors.add(SITE_TO_SITE_FLOOR_WARN);
+            _descriptors.add(SITE_TO_SITE_FLOOR_CRIT);
+            
+            _descriptors.add(JVM_RESOURCES);
+            _descriptors.add(HEAP_USAGE_WARN);
+            _descriptors.add(HEAP_USAGE_CRIT);
+            _descriptors.add(GC_TIME_WARN);
+            _descriptors.add(GC_TIME_CRIT);
+            _descriptors.add(JVM_THREADS_WARN);
+            _descriptors.add(JVM_THREADS_CRIT);
+            _descriptors.add(REPOSITORY_DIRECTORIES);
+            _descriptors.add(REPOSITORY_FREE_WARN);
+            _descriptors.add(REPOSITORY_FREE_CRIT);
+            
+            _descriptors.add(LINEAGE_LATENCY);
+            _descriptors.add(LINEAGE_LATENCY_PERCENTILE);
+            _descriptors.add(LINEAGE_LATENCY_WARN);
+            _descriptors.add(LINEAGE_LATENCY_CRIT);
+            _descriptors.add(PROVENANCE_BATCH_SIZE);
+            _descriptors.add(PROVENANCE_TIME_BUDGET);
+            
+            _descriptors.add(BULLETIN_RATE);
+            _descriptors.add(BULLETIN_RATE_WINDOW);
+            _descriptors.add(BULLETIN_ERRORS_WARN);
+            _descriptors.add(BULLETIN_ERRORS_CRIT);
+            
+            _descriptors.add(METRICS_FILE);
+            _descriptors.add(METRICS_FILE_FORMAT);
+            _descriptors.add(PROMETHEUS_PORT);
+            _descriptors.add(PROMETHEUS_BIND_ADDRESS);
+            
             _descriptors.add(ACTIVE_THREAD_COUNT);
             _descriptors.add(ACTIVE_THREAD_COUNT_WARN);
             _descriptors.add(ACTIVE_THREAD_COUNT_CRIT);
@@ -338,234 +1216,478 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
             _descriptors.add(BYTES_WRITTEN_WARN);
             _descriptors.add(BYTES_WRITTEN_CRIT);
             
+            _descriptors.add(FLOWFILES_QUEUED_GROWTH);
+            _descriptors.add(FLOWFILES_QUEUED_GROWTH_WARN);
+            _descriptors.add(FLOWFILES_QUEUED_GROWTH_CRIT);
+            
+            _descriptors.add(BYTES_QUEUED_GROWTH);
+            _descriptors.add(BYTES_QUEUED_GROWTH_WARN);
+            _descriptors.add(BYTES_QUEUED_GROWTH_CRIT);
+            
+            _descriptors.add(FLOWFILES_IN_RATE);
+            _descriptors.add(FLOWFILES_IN_RATE_WARN);
+            _descriptors.add(FLOWFILES_IN_RATE_CRIT);
+            
+            _descriptors.add(FLOWFILES_OUT_RATE);
+            _descriptors.add(FLOWFILES_OUT_RATE_WARN);
+            _descriptors.add(FLOWFILES_OUT_RATE_CRIT);
+            
+            _descriptors.add(BYTES_IN_RATE);
+            _descriptors.add(BYTES_IN_RATE_WARN);
+            _descriptors.add(BYTES_IN_RATE_CRIT);
+            
+            _descriptors.add(BYTES_OUT_RATE);
+            _descriptors.add(BYTES_OUT_RATE_WARN);
+            _descriptors.add(BYTES_OUT_RATE_CRIT);
+            
             return _descriptors;
     }
     
     @Override
-    public void onPropertyModified(final PropertyDescriptor descriptor, final String oldValue, final String newValue) {
-
-        if (descriptor.equals(ACTIVE_THREAD_COUNT)) {
-            NagiosNRDPReporter.ACTIVE_THREAD_COUNT_WARN = new PropertyDescriptor.Builder()
-                .name("Active Thread Count Warning Level")
-                .description("Warning threshold for the number of active threads for this process group")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.ACTIVE_THREAD_COUNT_CRIT = new PropertyDescriptor.Builder()
-                .name("Active Thread Count Critical Level")
-                .description("Critical threshold for the number of active threads for this process group")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
-                .build();
-        
-        } else if (descriptor.equals(FLOWFILES_QUEUED)) {
-            NagiosNRDPReporter.FLOWFILES_QUEUED_WARN = new PropertyDescriptor.Builder()
-                .name("Flowfiles Queued Warning Threshold")
-                .description("Warning threshold for the number of flowfiles queued in this process group")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.FLOWFILES_QUEUED_CRIT = new PropertyDescriptor.Builder()
-                .name("Flowfiles Queued Critical Threshold")
-                .description("Critical threshold for the number of flowfiles queued in this process group")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
-                .build();
-        
-        } else if (descriptor.equals(BYTES_QUEUED)) {
-            NagiosNRDPReporter.BYTES_QUEUED_WARN = new PropertyDescriptor.Builder()
-                .name("Bytes Queued Warning Threshold")
-                .description("Warning threshold for the number of bytes queued in this process group")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.BYTES_QUEUED_CRIT = new PropertyDescriptor.Builder()
-                .name("Bytes Queued Critical Threshold")
-                .description("Critical threshold for the number of bytes queued in this process group")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-        
-        } else if (descriptor.equals(BYTES_IN)) {
-            NagiosNRDPReporter.BYTES_IN_WARN = new PropertyDescriptor.Builder()
-                .name("Bytes In Warning Threshold")
-                .description("Warning threshold for the number of bytes received via Site-to-Site in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.BYTES_IN_CRIT = new PropertyDescriptor.Builder()
-                .name("Bytes In Critical Threshold")
-                .description("Critical threshold for the number of bytes received via Site-to-Site in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-            
-        }  else if (descriptor.equals(BYTES_OUT)) {
-            NagiosNRDPReporter.BYTES_OUT_WARN = new PropertyDescriptor.Builder()
-                .name("Bytes Out Warning Threshold")
-                .description("Warning threshold for the number of bytes pulled from Output Ports via Site-to-Site in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.BYTES_OUT_CRIT = new PropertyDescriptor.Builder()
-                .name("Bytes Out Critical Threshold")
-                .description("Critical threshold for the number of bytes pulled from Output Ports via Site-to-Site in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-
-        } else if (descriptor.equals(FLOWFILES_IN)) {
-            NagiosNRDPReporter.FLOWFILES_IN_WARN = new PropertyDescriptor.Builder()
-                .name("Flowfiles In Warning Threshold")
-                .description("Warning threshold for the number of FlowFiles received via Site-to-Site in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.FLOWFILES_IN_CRIT = new PropertyDescriptor.Builder()
-                .name("Flowfiles In Critical Threshold")
-                .description("Critical threshold for the number of FlowFiles received via Site-to-Site in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
-                .build();
-    
-        } else if (descriptor.equals(FLOWFILES_OUT)) {
-            NagiosNRDPReporter.FLOWFILES_OUT_WARN = new PropertyDescriptor.Builder()
-                .name("Flowfiles Out Warning Threshold")
-                .description("Warning threshold for the number of FlowFiles pulled from Output Ports via Site-to-Site in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.FLOWFILES_OUT_CRIT = new PropertyDescriptor.Builder()
-                .name("Flowfiles Out Critical Threshold")
-                .description("Critical threshold for the number of FlowFiles pulled from Output Ports via Site-to-Site in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
-                .build();
-        } else if (descriptor.equals(BYTES_READ)) {
-            NagiosNRDPReporter.BYTES_READ_WARN = new PropertyDescriptor.Builder()
-                .name("Bytes Read Warning Threshold")
-                .description("Warning threshold for the number of bytes read from disk by NiFi in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.BYTES_READ_CRIT = new PropertyDescriptor.Builder()
-                .name("Bytes Read Critical Threshold")
-                .description("Critical threshold for the number of bytes read from disk by NiFi in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-        }  else if (descriptor.equals(BYTES_WRITTEN)) {
-            NagiosNRDPReporter.BYTES_WRITTEN_WARN = new PropertyDescriptor.Builder()
-                .name("Bytes Written Warning Threshold")
-                .description("Warning threshold for the number of bytes written to disk by NiFi in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
-            NagiosNRDPReporter.BYTES_WRITTEN_CRIT = new PropertyDescriptor.Builder()
-                .name("Bytes Written Critical Threshold")
-                .description("Critical threshold for the number of bytes written to disk by NiFi in the last 5 minutes")
-                .required(newValue.equals(ALERTING_VALUE))
-                .addValidator(StandardValidators.DATA_SIZE_VALIDATOR)
-                .build();
+    protected Collection<ValidationResult> customValidate(final ValidationContext context) {
+        
+        final List<ValidationResult> results = new ArrayList<>();
+        
+        for (final MetricProperties metricProperties : METRIC_PROPERTIES) {
+            
+            if (!context.getProperty(metricProperties.mode).getValue().equals(ALERTING_VALUE))
+                continue;
+            
+            for (final PropertyDescriptor threshold : new PropertyDescriptor[] {metricProperties.warning, metricProperties.critical}) {
+                if (!context.getProperty(threshold).isSet())
+                    results.add(new ValidationResult.Builder()
+                        .subject(threshold.getDisplayName())
+                        .valid(false)
+                        .explanation(threshold.getDisplayName() + " is required when " + metricProperties.mode.getDisplayName() + " is set to " + ALERTING_VALUE)
+                        .build());
+            }
+        }
+        
+        if (context.getProperty(THRESHOLD_EVALUATION).getValue().equals(N_OF_M_VALUE)
+                && context.getProperty(SAMPLES_OVER_THRESHOLD).asInteger() > context.getProperty(EVALUATION_WINDOW).asInteger())
+            results.add(new ValidationResult.Builder()
+                .subject(SAMPLES_OVER_THRESHOLD.getDisplayName())
+                .valid(false)
+                .explanation(SAMPLES_OVER_THRESHOLD.getDisplayName() + " cannot be larger than " + EVALUATION_WINDOW.getDisplayName())
+                .build());
+        
+        try {
+            parseEndpoints(context.getProperty(ADDITIONAL_ENDPOINTS).getValue());
+        } catch (IllegalArgumentException e) {
+            results.add(new ValidationResult.Builder()
+                .subject(ADDITIONAL_ENDPOINTS.getDisplayName())
+                .valid(false)
+                .explanation(e.getMessage())
+                .build());
+        }
+        
+        for (final Path directory : parseDirectories(context.getProperty(REPOSITORY_DIRECTORIES).getValue())) {
+            if (!Files.isDirectory(directory))
+                results.add(new ValidationResult.Builder()
+                    .subject(REPOSITORY_DIRECTORIES.getDisplayName())
+                    .valid(false)
+                    .explanation(directory + " is not a directory")
+                    .build());
         }
-    }
-    
-    private Document buildXML() { 
-    
-        DocumentBuilderFactory icFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder icBuilder;
         
         try {
-            icBuilder = icFactory.newDocumentBuilder();
-            Document doc = icBuilder.newDocument();
-            Element mainRootElement = doc.createElement("checkresults");
-            doc.appendChild(mainRootElement);
-            return doc;
-        } catch (ParserConfigurationException | DOMException T) {
-            nifiLogger.error("{} Error creating XML document: {}", this, T);
-        }
-        return null;
+            compileGroupFilter(context.getProperty(INCLUDE_GROUPS).getValue(), context.getProperty(EXCLUDE_GROUPS).getValue(), null);
+        } catch (IllegalArgumentException e) {
+            results.add(new ValidationResult.Builder()
+                .subject(INCLUDE_GROUPS.getDisplayName())
+                .valid(false)
+                .explanation("Invalid process group rule: " + e.getMessage())
+                .build());
+        }
+        
+        return results;
     }
     
-    private static Node addTextXMLNode(Document doc, String name, String value) {
+    private static List<Path> parseDirectories(String directories) {
+        
+        final List<Path> parsed = new ArrayList<>();
         
-        Element node = doc.createElement(name);
-        node.appendChild(doc.createTextNode(value));
-        return node;
+        if (directories == null)
+            return parsed;
+        
+        for (final String directory : directories.split("[,\\n]")) {
+            if (!directory.trim().isEmpty())
+                parsed.add(Paths.get(directory.trim()));
+        }
+        
+        return parsed;
     }
     
-    private static Document addCheckResultServiceToXML(Document doc, String servicename, String hostname, nagiosResult nagios, boolean performanceData)
-    {
-        Element root = doc.getDocumentElement();
-        Element node = doc.createElement("checkresult");
-        node.setAttribute("checktype", "1");
-        node.setAttribute("type", "service");
+    /**
+     * @return url and token of every endpoint, the token is null when it was omitted
+     * @throws IllegalArgumentException when an endpoint is not a valid URL
+     */
+    private static List<String[]> parseEndpoints(String endpoints) {
         
-        node.appendChild(addTextXMLNode(doc, "servicename", servicename));
-        node.appendChild(addTextXMLNode(doc, "hostname", hostname));
-        node.appendChild(addTextXMLNode(doc, "state", String.format ("%d", nagios.getState())));
+        final List<String[]> parsed = new ArrayList<>();
         
-        if (performanceData)
-            node.appendChild(addTextXMLNode(doc, "output", nagios.getOutput() + " | " + nagios.getPerformance()));
-        else
-            node.appendChild(addTextXMLNode(doc, "output", nagios.getOutput()));
-        root.appendChild(node);
+        if (endpoints == null)
+            return parsed;
         
-        return doc;
+        for (String endpoint : endpoints.split("[,\\n]")) {
+            endpoint = endpoint.trim();
+            
+            if (endpoint.isEmpty())
+                continue;
+            
+            final int separator = endpoint.indexOf('|');
+            final String url = (separator < 0 ? endpoint : endpoint.substring(0, separator)).trim();
+            final String token = separator < 0 ? null : endpoint.substring(separator + 1).trim();
+            
+            try {
+                new URL(url);
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid NRDP endpoint '" + url + "': " + e.getMessage());
+            }
+            
+            parsed.add(new String[] {url, token == null || token.isEmpty() ? null : token});
+        }
+        
+        return parsed;
     }
     
-    final static class nagiosResult {
+    private static GroupFilter compileGroupFilter(String include, String exclude, Integer maxDepth) {
         
-        private int state = 0;
-        private String output = "OK";
-        private String performance = "";
+        if (include == null && exclude == null && maxDepth == null)
+            return GroupFilter.ALL;
         
-        public nagiosResult(String label, String comment, long currentValue, long warningValue, long criticalValue, String performance_label, boolean alerting) {
+        return GroupFilter.compile(include, exclude, maxDepth == null ? Integer.MAX_VALUE : maxDepth);
+    }
+    
+    @OnScheduled
+    public void onScheduled(final ConfigurationContext context) throws IOException {
+        
+        final List<MetricCheck> checks = new ArrayList<>();
+        
+        for (final MetricProperties metricProperties : METRIC_PROPERTIES) {
             
-            if (alerting && (currentValue >= criticalValue)) {
-                this.state = 2;
-                this.output = label + " CRIT - " + currentValue + " " + comment;
-            } else if (alerting && (currentValue >= warningValue)) {
-                this.state = 1;
-                this.output = label + " WARN - " + currentValue + " " + comment;
-            } else {
-                this.state = 0;
-                this.output = label + " OK - " + currentValue + " " + comment;
+            final MetricCheck.Mode mode = MetricCheck.Mode.fromValue(context.getProperty(metricProperties.mode).getValue());
+            
+            if (mode == MetricCheck.Mode.DISABLED)
+                continue;
+            
+            long warning = 0L;
+            long critical = 0L;
+            
+            if (mode == MetricCheck.Mode.ALERTING) {
+                warning = thresholdValue(context, metricProperties.warning, metricProperties.metric);
+                critical = thresholdValue(context, metricProperties.critical, metricProperties.metric);
             }
             
-            this.performance = performance_label + "=" + currentValue;
+            checks.add(new MetricCheck(metricProperties.metric, mode, warning, critical));
         }
         
-        public nagiosResult(String label, String comment, double currentValue, double warningValue, double criticalValue, String performance_label, boolean alerting) {
+        final boolean batched = context.getProperty(SUBMISSION_MODE).getValue().equals(BATCHED_VALUE);
+        final boolean exportMetrics = context.getProperty(PROMETHEUS_PORT).isSet() || context.getProperty(METRICS_FILE).isSet();
+        
+        metricPlan = new MetricPlan(checks.toArray(new MetricCheck[checks.size()]),
+            exportMetrics,
+            context.getProperty(URL).getValue(),
+            context.getProperty(TOKEN).getValue(),
+            context.getProperty(HOSTNAME).isSet() ? context.getProperty(HOSTNAME).getValue() : null,
+            context.getProperty(INCLUDE_PERFORMANCE_DATA).getValue().equals(ENABLED_VALUE),
+            context.getProperty(PROCESS_ALL_GROUPS).getValue().equals(ENABLED_VALUE),
+            compileGroupFilter(context.getProperty(INCLUDE_GROUPS).getValue(), context.getProperty(EXCLUDE_GROUPS).getValue(), context.getProperty(MAX_GROUP_DEPTH).asInteger()),
+            batched ? context.getProperty(MAX_CHECKS_PER_SUBMISSION).asInteger() : 1,
+            context.getProperty(PAYLOAD_FORMAT).getValue().equals(JSON_VALUE) ? CheckResultPayload.Format.JSON : CheckResultPayload.Format.XML,
+            context.getProperty(COMPRESS_REQUESTS).getValue().equals(ENABLED_VALUE),
+            context.getProperty(REPORTER_HEALTH).getValue().equals(ENABLED_VALUE),
+            context.getProperty(CONNECT_TIMEOUT).asTimePeriod(TimeUnit.MILLISECONDS).intValue(),
+            context.getProperty(READ_TIMEOUT).asTimePeriod(TimeUnit.MILLISECONDS).intValue());
+        
+        stopPipeline();
+        
+        final List<MetricExporter> metricExporters = new ArrayList<>();
+        
+        if (context.getProperty(PROMETHEUS_PORT).isSet())
+            metricExporters.add(new PrometheusExporter(context.getProperty(PROMETHEUS_BIND_ADDRESS).getValue(), context.getProperty(PROMETHEUS_PORT).asInteger()));
+        
+        if (context.getProperty(METRICS_FILE).isSet())
+            metricExporters.add(new FileMetricExporter(Paths.get(context.getProperty(METRICS_FILE).getValue()),
+                context.getProperty(METRICS_FILE_FORMAT).getValue().equals(LINE_PROTOCOL_VALUE) ? FileMetricExporter.Format.LINE_PROTOCOL : FileMetricExporter.Format.CSV));
+        
+        exporters = metricExporters.toArray(new MetricExporter[metricExporters.size()]);
+        
+        if (context.getProperty(STATE_CHANGE_SUPPRESSION).getValue().equals(ENABLED_VALUE))
+            suppression = new SuppressionTable(
+                context.getProperty(SUPPRESSION_VALUE_CHANGE).asInteger() / 100.0,
+                context.getProperty(HEARTBEAT_INTERVAL).asTimePeriod(TimeUnit.MILLISECONDS));
+        else
+            suppression = null;
+        
+        final String evaluation = context.getProperty(THRESHOLD_EVALUATION).getValue();
+        
+        if (evaluation.equals(INSTANTANEOUS_VALUE))
+            smoothing = null;
+        else
+            smoothing = new SmoothingTable(
+                evaluation.equals(EWMA_VALUE) ? SmoothingTable.Mode.EWMA : evaluation.equals(PERCENTILE_VALUE) ? SmoothingTable.Mode.PERCENTILE : SmoothingTable.Mode.N_OF_M,
+                context.getProperty(EVALUATION_WINDOW).asInteger(),
+                context.getProperty(EWMA_WEIGHT).asInteger() / 100.0,
+                context.getProperty(WINDOW_PERCENTILE).asInteger() / 100.0,
+                context.getProperty(SAMPLES_OVER_THRESHOLD).asInteger(),
+                context.getProperty(RECOVERY_HYSTERESIS).asInteger() / 100.0);
+        
+        final List<GroupMonitor> monitors = new ArrayList<>();
+        
+        final MetricCheck.Mode connectionMode = MetricCheck.Mode.fromValue(context.getProperty(CONNECTION_BACKPRESSURE).getValue());
+        
+        if (connectionMode != MetricCheck.Mode.DISABLED)
+            monitors.add(new ConnectionMonitor(connectionMode,
+                context.getProperty(CONNECTION_BACKPRESSURE_WARN).asLong(),
+                context.getProperty(CONNECTION_BACKPRESSURE_CRIT).asLong(),
+                context.getProperty(CONNECTION_TOP_N).asInteger()));
+        
+        final MetricCheck.Mode processorMode = MetricCheck.Mode.fromValue(context.getProperty(PROCESSOR_HOT_SPOTS).getValue());
+        
+        if (processorMode != MetricCheck.Mode.DISABLED)
+            monitors.add(new ProcessorMonitor(processorMode,
+                context.getProperty(PROCESSOR_TOP_N).asInteger(),
+                optionalThreshold(context, PROCESSOR_TIME_WARN, true),
+                optionalThreshold(context, PROCESSOR_TIME_CRIT, true),
+                optionalThreshold(context, PROCESSOR_THREADS_WARN, false),
+                optionalThreshold(context, PROCESSOR_THREADS_CRIT, false),
+                optionalThreshold(context, PROCESSOR_TASKS_WARN, false),
+                optionalThreshold(context, PROCESSOR_TASKS_CRIT, false)));
+        
+        final MetricCheck.Mode remoteMode = MetricCheck.Mode.fromValue(context.getProperty(SITE_TO_SITE).getValue());
+        
+        if (remoteMode != MetricCheck.Mode.DISABLED)
+            monitors.add(new RemoteProcessGroupMonitor(remoteMode,
+                context.getProperty(SITE_TO_SITE_FLOOR_WARN).isSet() ? context.getProperty(SITE_TO_SITE_FLOOR_WARN).asDataSize(DataUnit.B).longValue() : -1L,
+                context.getProperty(SITE_TO_SITE_FLOOR_CRIT).isSet() ? context.getProperty(SITE_TO_SITE_FLOOR_CRIT).asDataSize(DataUnit.B).longValue() : -1L));
+        
+        groupMonitors = monitors.toArray(new GroupMonitor[monitors.size()]);
+        
+        final MetricCheck.Mode lineageMode = MetricCheck.Mode.fromValue(context.getProperty(LINEAGE_LATENCY).getValue());
+        
+        if (lineageMode == MetricCheck.Mode.DISABLED)
+            lineageMonitor = null;
+        else
+            lineageMonitor = new LineageLatencyMonitor(lineageMode,
+                context.getProperty(LINEAGE_LATENCY_PERCENTILE).asInteger() / 100.0,
+                optionalThreshold(context, LINEAGE_LATENCY_WARN, true),
+                optionalThreshold(context, LINEAGE_LATENCY_CRIT, true),
+                context.getProperty(PROVENANCE_BATCH_SIZE).asInteger(),
+                context.getProperty(PROVENANCE_TIME_BUDGET).asTimePeriod(TimeUnit.NANOSECONDS));
+        
+        final MetricCheck.Mode jvmMode = MetricCheck.Mode.fromValue(context.getProperty(JVM_RESOURCES).getValue());
+        
+        if (jvmMode == MetricCheck.Mode.DISABLED)
+            jvmMonitor = null;
+        else
+            jvmMonitor = new JvmResourceMonitor(jvmMode,
+                context.getProperty(HEAP_USAGE_WARN).asLong(),
+                context.getProperty(HEAP_USAGE_CRIT).asLong(),
+                context.getProperty(GC_TIME_WARN).asLong(),
+                context.getProperty(GC_TIME_CRIT).asLong(),
+                optionalThreshold(context, JVM_THREADS_WARN, false),
+                optionalThreshold(context, JVM_THREADS_CRIT, false),
+                parseDirectories(context.getProperty(REPOSITORY_DIRECTORIES).getValue()),
+                context.getProperty(REPOSITORY_FREE_WARN).asLong(),
+                context.getProperty(REPOSITORY_FREE_CRIT).asLong());
+        
+        final MetricCheck.Mode bulletinMode = MetricCheck.Mode.fromValue(context.getProperty(BULLETIN_RATE).getValue());
+        
+        if (bulletinMode == MetricCheck.Mode.DISABLED)
+            bulletinMonitor = null;
+        else
+            bulletinMonitor = new BulletinMonitor(bulletinMode,
+                context.getProperty(BULLETIN_RATE_WINDOW).asTimePeriod(TimeUnit.MILLISECONDS),
+                context.getProperty(BULLETIN_RATE_WINDOW).getValue(),
+                context.getProperty(BULLETIN_ERRORS_WARN).asLong(),
+                context.getProperty(BULLETIN_ERRORS_CRIT).asLong());
+        
+        growth = null;
+        for (final MetricCheck check : metricPlan.getChecks()) {
+            if (check.getMetric().isGrowth())
+                growth = new GrowthTable();
+        }
+        
+        traversal = new ProcessGroupTraversal(context.getProperty(TRAVERSAL_PARALLELISM).asInteger());
+        
+        final List<String[]> endpointSpecs = new ArrayList<>();
+        endpointSpecs.add(new String[] {metricPlan.getUrl(), metricPlan.getToken()});
+        endpointSpecs.addAll(parseEndpoints(context.getProperty(ADDITIONAL_ENDPOINTS).getValue()));
+        
+        final NrdpEndpoint[] endpoints = new NrdpEndpoint[endpointSpecs.size()];
+        final long slowNanos = TimeUnit.MILLISECONDS.toNanos(metricPlan.getReadTimeoutMillis()) / 2;
+        final int failureThreshold = context.getProperty(CIRCUIT_BREAKER_FAILURES).asInteger();
+        final long initialBackoffNanos = context.getProperty(CIRCUIT_BREAKER_INITIAL_BACKOFF).asTimePeriod(TimeUnit.NANOSECONDS);
+        final long maxBackoffNanos = context.getProperty(CIRCUIT_BREAKER_MAX_BACKOFF).asTimePeriod(TimeUnit.NANOSECONDS);
+        
+        for (int i = 0; i < endpoints.length; i++) {
+            final String endpointUrl = endpointSpecs.get(i)[0];
+            final String endpointToken = endpointSpecs.get(i)[1] == null ? metricPlan.getToken() : endpointSpecs.get(i)[1];
+            final NrdpTransport transport;
             
-            if (alerting && (currentValue >= criticalValue)) {
-                this.state = 2;
-                this.output = label + " CRIT - " + currentValue + " " + comment;
-            } else if (alerting && (currentValue >= warningValue)) {
-                this.state = 1;
-                this.output = label + " WARN - " + currentValue + " " + comment;
-            } else {
-                this.state = 0;
-                this.output = label + " OK - " + currentValue + " " + comment;
-            }
+            if (context.getProperty(TRANSPORT).getValue().equals(POOLED_HTTP_VALUE))
+                transport = new PooledHttpTransport(endpointUrl,
+                    context.getProperty(CONNECTION_POOL_SIZE).asInteger(),
+                    context.getProperty(IDLE_CONNECTION_TIMEOUT).asTimePeriod(TimeUnit.MILLISECONDS),
+                    metricPlan.getConnectTimeoutMillis(),
+                    metricPlan.getReadTimeoutMillis());
+            else
+                transport = new UrlConnectionTransport(endpointUrl, metricPlan.getConnectTimeoutMillis(), metricPlan.getReadTimeoutMillis());
             
-            this.performance = performance_label + "=" + currentValue;
+            endpoints[i] = new NrdpEndpoint(endpointUrl, endpointToken, transport,
+                new CircuitBreaker(failureThreshold, initialBackoffNanos, maxBackoffNanos), slowNanos);
         }
         
-        public nagiosResult(String label, String comment, double currentValue, double warningValue, double criticalValue, String performance_label, String formattedCurrentValue, boolean alerting) {
+        final String routing = context.getProperty(ENDPOINT_ROUTING).getValue();
+        
+        router = new EndpointRouter(endpoints,
+            routing.equals(ROUND_ROBIN_VALUE) ? EndpointRouter.Mode.ROUND_ROBIN : routing.equals(BROADCAST_VALUE) ? EndpointRouter.Mode.BROADCAST : EndpointRouter.Mode.FAILOVER);
+        
+        if (context.getProperty(SPOOL_DIRECTORY).isSet())
+            spool = new SubmissionSpool(Paths.get(context.getProperty(SPOOL_DIRECTORY).getValue()),
+                context.getProperty(SPOOL_MAX_SIZE).asDataSize(DataUnit.B).longValue(),
+                context.getProperty(SPOOL_MAX_AGE).asTimePeriod(TimeUnit.MILLISECONDS),
+                context.getProperty(SPOOL_REPLAY_RATE).asInteger());
+        
+        discardSuperseded = context.getProperty(SPOOL_DISCARD_SUPERSEDED).getValue().equals(ENABLED_VALUE);
+        
+        if (context.getProperty(DELIVERY_MODE).getValue().equals(ASYNCHRONOUS_VALUE)) {
             
-            if (alerting && (currentValue >= criticalValue)) {
-                this.state = 2;
-                this.output = label + " CRIT - " + formattedCurrentValue + " " + comment;
-            } else if (alerting && (currentValue >= warningValue)) {
-                this.state = 1;
-                this.output = label + " WARN - " + formattedCurrentValue + " " + comment;
-            } else {
-                this.state = 0;
-                this.output = label + " OK - " + formattedCurrentValue + " " + comment;
-            }
+            final SubmissionPipeline.OverflowPolicy overflowPolicy = context.getProperty(QUEUE_OVERFLOW_POLICY).getValue().equals(COALESCE_VALUE)
+                ? SubmissionPipeline.OverflowPolicy.COALESCE_LATEST
+                : SubmissionPipeline.OverflowPolicy.DROP_OLDEST;
+            
+            pipeline = new SubmissionPipeline(
+                context.getProperty(SUBMISSION_QUEUE_SIZE).asInteger(),
+                context.getProperty(SENDER_THREADS).asInteger(),
+                overflowPolicy,
+                new SubmissionPipeline.Sender() {
+                    @Override
+                    public void send(SubmissionPipeline.Submission submission) {
+                        final MetricPlan plan = metricPlan;
+                        if (plan != null)
+                            deliver(submission.getBody(), submission.getBody().length, submission.getChecks(), submission.getRunId(), submission.getCreatedMillis(), plan);
+                    }
+                    
+                    @Override
+                    public void idle() {
+                        final MetricPlan plan = metricPlan;
+                        if (plan != null)
+                            replayBacklog(plan);
+                    }
+                    
+                    @Override
+                    public void discard(SubmissionPipeline.Submission submission, boolean superseded) {
+                        // a coalesced run is replaced by the newer one, replaying it later would only bring back older states
+                        if (superseded || !spoolSubmission(submission.getBody(), submission.getBody().length, submission.getChecks(), submission.getCreatedMillis()))
+                            rollbackSuppression(submission.getRunId());
+                    }
+                },
+                toString());
+        }
+        
+        registerHealthBean();
+    }
+    
+    private void registerHealthBean() {
+        
+        try {
+            final ObjectName name = new ObjectName(HEALTH_MBEAN_DOMAIN + ":type=NagiosNRDPReporter,id=" + ObjectName.quote(getIdentifier()));
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            
+            if (!server.isRegistered(name))
+                server.registerMBean(new StandardMBean(health, ReporterHealthMXBean.class, true), name);
             
-            this.performance = performance_label + "=" + currentValue;
+            healthBeanName = name;
+        } catch (JMException T) {
+            nifiLogger.warn("{} Error registering reporter health MBean:  {}", this, T);
+        }
+    }
+    
+    @OnStopped
+    public void onStopped() {
+        stopPipeline();
+    }
+    
+    private void stopPipeline() {
+        
+        final SubmissionPipeline current = pipeline;
+        pipeline = null;
+        
+        if (current != null)
+            current.shutdown(5, TimeUnit.SECONDS);
+        
+        final ProcessGroupTraversal currentTraversal = traversal;
+        traversal = null;
+        
+        if (currentTraversal != null)
+            currentTraversal.shutdown();
+        
+        final EndpointRouter currentRouter = router;
+        router = null;
+        
+        if (currentRouter != null)
+            currentRouter.close();
+        
+        final SubmissionSpool currentSpool = spool;
+        spool = null;
+        
+        if (currentSpool != null)
+            currentSpool.close();
+        
+        final MetricExporter[] currentExporters = exporters;
+        exporters = new MetricExporter[0];
+        
+        for (final MetricExporter exporter : currentExporters)
+            exporter.close();
+        
+        final ObjectName currentHealthBean = healthBeanName;
+        healthBeanName = null;
+        
+        if (currentHealthBean != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(currentHealthBean);
+            } catch (JMException T) {
+                nifiLogger.warn("{} Error unregistering reporter health MBean:  {}", this, T);
+            }
+        }
+    }
+    
+    private static long optionalThreshold(final ConfigurationContext context, PropertyDescriptor threshold, boolean timePeriod) {
+        
+        if (!context.getProperty(threshold).isSet())
+            return Long.MAX_VALUE;
+        
+        if (timePeriod)
+            return context.getProperty(threshold).asTimePeriod(TimeUnit.NANOSECONDS);
+        
+        return context.getProperty(threshold).asLong();
+    }
+    
+    private static long thresholdValue(final ConfigurationContext context, PropertyDescriptor threshold, GroupMetric metric) {
+        
+        if (metric.isDataSize())
+            return context.getProperty(threshold).asDataSize(DataUnit.B).longValue();
+        
+        return context.getProperty(threshold).asLong();
+    }
+    
+    private static void addCheckResultServiceToPayload(CheckResultPayload payload, String servicename, String hostname, nagiosResult nagios, boolean performanceData) {
+        
+        payload.addCheckResult(servicename, hostname, nagios.getState(), nagios.getOutput(), performanceData ? nagios.getPerformance() : null);
+    }
+    
+    final static class nagiosResult {
+        
+        private final int state;
+        private final String output;
+        private final String performance;
+        
+        public nagiosResult(int state, String output, String performance) {
+            this.state = state;
+            this.output = output;
+            this.performance = performance;
         }
         
         public int getState() {
@@ -581,255 +1703,569 @@ public class NagiosNRDPReporter extends AbstractReportingTask {
         }
     }
     
-    private void printProcessGroupStatus(ProcessGroupStatus procGroup, final ReportingContext context) {
+    private int addProcessGroupChecks(CheckResultPayload payload, MetricSnapshot snapshot, int procGroup, final MetricPlan plan, String hostname,
+            SuppressionTable suppression, GrowthTable growth, SmoothingTable smoothing, long nowMillis) {
         
-        try {
-            String procGroupName = procGroup.getName();
-            String hostname = InetAddress.getLocalHost().getHostName();
-            boolean include_performance_data = false;
+        final String procGroupName = snapshot.getGroupName(procGroup);
+        final boolean include_performance_data = plan.isIncludePerformanceData();
+        final long groupHash = suppression == null && growth == null && smoothing == null ? 0L : SuppressionTable.hash(snapshot.getGroupId(procGroup));
+        final MetricCheck[] metricChecks = plan.getChecks();
+        final int[] columns = plan.getCheckColumns();
+        final nagiosResult[] results = new nagiosResult[metricChecks.length];
+        int checks = 0;
+        
+        // evaluate first and encode afterwards, so both can be timed with a single clock read each
+        final long evaluationStart = System.nanoTime();
+        
+        for (int i = 0; i < metricChecks.length; i++) {
             
-            if (context.getProperty(INCLUDE_PERFORMANCE_DATA).getValue().equals(ENABLED_VALUE))
-                include_performance_data = true;
+            final MetricCheck check = metricChecks[i];
+            final GroupMetric metric = check.getMetric();
+            long value = snapshot.value(procGroup, columns[i]);
             
-            if (context.getProperty(HOSTNAME).isSet())
-                hostname = context.getProperty(HOSTNAME).getValue();
-
-            Document doc = buildXML();
-            
-            if (!context.getProperty(ACTIVE_THREAD_COUNT).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(ACTIVE_THREAD_COUNT).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("ACTIVE THREAD COUNT", "active threads", procGroup.getActiveThreadCount(), 
-                        context.getProperty(ACTIVE_THREAD_COUNT_WARN).asInteger(), 
-                        context.getProperty(ACTIVE_THREAD_COUNT_CRIT).asInteger(), 
-                        "active_thread_count", true);
-                else
-                    myResult = new nagiosResult("ACTIVE THREAD COUNT", "active threads", procGroup.getActiveThreadCount(), 0, 0, "active_thread_count", false);
-                
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Active Thread Count", hostname, myResult, include_performance_data);
+            if (metric.isGrowth()) {
+                value = growth.perMinute(SuppressionTable.key(groupHash, metric.ordinal()), value, nowMillis);
+                if (value == GrowthTable.NO_SAMPLE)
+                    continue;
             }
             
-            if (!context.getProperty(FLOWFILES_QUEUED).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(FLOWFILES_QUEUED).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("FLOWFILES QUEUED", "flowfiles queued", procGroup.getQueuedCount(), 
-                        context.getProperty(FLOWFILES_QUEUED_WARN).asLong(), 
-                        context.getProperty(FLOWFILES_QUEUED_CRIT).asLong(), 
-                        "flowfiles_queued", true);
-                else
-                    myResult = new nagiosResult("FLOWFILES QUEUED", "flowfiles queued", procGroup.getQueuedCount(), 0L, 0L, "flowfiles_queued", false);
-                
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Flowfiles Queued", hostname, myResult, include_performance_data);
-            }
+            final int state = smoothing != null && check.getMode() == MetricCheck.Mode.ALERTING
+                ? smoothing.state(SuppressionTable.key(groupHash, metric.ordinal()), value, check.getWarningValue(), check.getCriticalValue(), nowMillis)
+                : check.state(value);
             
-            if (!context.getProperty(BYTES_QUEUED).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(BYTES_QUEUED).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("BYTES QUEUED", "queued", procGroup.getQueuedContentSize(), 
-                        context.getProperty(BYTES_QUEUED_WARN).asDataSize(DataUnit.B), 
-                        context.getProperty(BYTES_QUEUED_CRIT).asDataSize(DataUnit.B), 
-                        "bytes_queued", 
-                        FormatUtils.formatDataSize(procGroup.getQueuedContentSize()), true);
-                else
-                    myResult = new nagiosResult("BYTES QUEUED", "queued", procGroup.getQueuedContentSize(), 
-                        0.0, 0.0, "bytes_queued", FormatUtils.formatDataSize(procGroup.getQueuedContentSize()), false);
-                
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Data Queued", hostname, myResult, include_performance_data);
+            if (suppression != null && !suppression.shouldSend(SuppressionTable.key(groupHash, metric.ordinal()), state, value, nowMillis))
+                continue;
+            
+            results[i] = check.evaluate(value, state);
+        }
+        
+        final long serializationStart = System.nanoTime();
+        
+        for (int i = 0; i < metricChecks.length; i++) {
+            if (results[i] == null)
+                continue;
+            
+            addCheckResultServiceToPayload(payload, procGroupName + metricChecks[i].getMetric().getServiceSuffix(), hostname, results[i], include_performance_data);
+            checks++;
+        }
+        
+        final long serializationEnd = System.nanoTime();
+        
+        health.recordEvaluation(serializationStart - evaluationStart);
+        health.recordSerialization(serializationEnd - serializationStart);
+        
+        return checks;
+    }
+    
+    /**
+     * Replays what is spooled before posting the submission, so NRDP receives the results of a service in order.
+     * While a backlog is left after the replay the submission is spooled behind it instead, so an outage loses no run.
+     * With Spool Discard Superseded the submission is posted anyway, and once it is accepted the spooled submissions
+     * of older runs are discarded.
+     */
+    private boolean deliver(byte[] body, int length, int checks, long runId, long createdMillis, final MetricPlan plan) {
+        
+        final SubmissionSpool spool = this.spool;
+        
+        if (spool != null && !spool.isEmpty()) {
+            replaySpool(spool, plan);
+            
+            if (!discardSuperseded && !spool.isEmpty()) {
+                if (!spoolSubmission(body, length, checks, createdMillis))
+                    rollbackSuppression(runId);
+                return false;
             }
+        }
+        
+        if (postToNRDP(body, length, plan)) {
             
-            if (!context.getProperty(BYTES_IN).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(BYTES_IN).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("BYTES IN", "in", procGroup.getBytesReceived(), 
-                        context.getProperty(BYTES_IN_WARN).asDataSize(DataUnit.B), 
-                        context.getProperty(BYTES_IN_CRIT).asDataSize(DataUnit.B), 
-                        "bytes_in", 
-                        FormatUtils.formatDataSize(procGroup.getBytesReceived()), true);
-                else
-                    myResult = new nagiosResult("BYTES IN", "in", procGroup.getBytesReceived(), 0.0, 0.0, "bytes_in", 
-                        FormatUtils.formatDataSize(procGroup.getBytesReceived()), false);
+            health.recordChecksSent(checks);
+            
+            if (spool != null && discardSuperseded)
+                spool.supersede(createdMillis);
+            
+            return true;
+        }
+        
+        if (!spoolSubmission(body, length, checks, createdMillis))
+            rollbackSuppression(runId);
+        
+        return false;
+    }
+    
+    /**
+     * Replays the spool without a new submission, so the backlog drains even when runs send nothing.
+     */
+    private void replayBacklog(MetricPlan plan) {
+        
+        final SubmissionSpool spool = this.spool;
+        
+        if (spool != null && !spool.isEmpty())
+            replaySpool(spool, plan);
+    }
+    
+    private void replaySpool(SubmissionSpool spool, final MetricPlan plan) {
+        
+        final int replayed = spool.replay(new SubmissionSpool.Replayer() {
+            @Override
+            public boolean replay(SubmissionPipeline.Submission submission) {
+                if (!postToNRDP(submission.getBody(), submission.getBody().length, plan))
+                    return false;
                 
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Data In", hostname, myResult, include_performance_data);
+                health.recordChecksSent(submission.getChecks());
+                return true;
             }
-
-            if (!context.getProperty(BYTES_OUT).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(BYTES_OUT).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("BYTES OUT", "out", procGroup.getBytesSent(), 
-                        context.getProperty(BYTES_OUT_WARN).asDataSize(DataUnit.B), 
-                        context.getProperty(BYTES_OUT_CRIT).asDataSize(DataUnit.B), 
-                        "bytes_out", 
-                        FormatUtils.formatDataSize(procGroup.getBytesSent()), true);
-                else
-                    myResult = new nagiosResult("BYTES OUT", "out", procGroup.getBytesSent(), 0.0, 0.0, "bytes_out", 
-                        FormatUtils.formatDataSize(procGroup.getBytesSent()), false);
+        });
+        
+        if (replayed > 0) {
+            health.recordReplayed(replayed);
+            nifiLogger.info("{} Replayed {} spooled submissions to NRDP", this, replayed);
+        }
+        
+        final long superseded = spool.getAndResetSuperseded();
+        
+        if (superseded > 0) {
+            nifiLogger.warn("{} Discarded {} spooled submissions that newer check results already replaced in NRDP", this, superseded);
+            
+            // the newer runs may have suppressed results that were only in the discarded submissions
+            final SuppressionTable suppression = this.suppression;
+            if (suppression != null)
+                suppression.rollbackAll();
+        }
+    }
+    
+    /**
+     * @return true when the submission was spooled
+     */
+    private boolean spoolSubmission(byte[] body, int length, int checks, long createdMillis) {
+        
+        final SubmissionSpool spool = this.spool;
+        
+        if (spool == null)
+            return false;
+        
+        try {
+            spool.append(body, length, checks, createdMillis);
+            health.recordSpooled();
+            return true;
+        } catch (IOException T) {
+            nifiLogger.error("{} Error spooling NRDP submission:  {}", this, T);
+            return false;
+        }
+    }
+    
+    /**
+     * The results of a run whose submission was lost are sent again by the next run instead of being suppressed.
+     */
+    private void rollbackSuppression(long runId) {
+        
+        final SuppressionTable suppression = this.suppression;
+        
+        if (suppression != null)
+            suppression.rollback(runId);
+    }
+    
+    private boolean postToNRDP(final byte[] body, final int length, final MetricPlan plan) {
+        
+        final EndpointRouter router = this.router;
+        
+        if (router == null)
+            return false;
+        
+        return router.route(new EndpointRouter.Poster() {
+            @Override
+            public boolean post(NrdpEndpoint endpoint) {
+                if (endpoint.getToken().equals(plan.getToken()))
+                    return postToEndpoint(endpoint, body, length, plan);
                 
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Data Out", hostname, myResult, include_performance_data);
+                final byte[] endpointBody = CheckResultPayload.withToken(body, length, endpoint.getToken());
+                return postToEndpoint(endpoint, endpointBody, endpointBody.length, plan);
             }
-
-            if (!context.getProperty(FLOWFILES_IN).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(FLOWFILES_IN).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("FLOWFILES IN", "flowfiles in", procGroup.getFlowFilesReceived(), 
-                        context.getProperty(FLOWFILES_IN_WARN).asLong(), 
-                        context.getProperty(FLOWFILES_IN_CRIT).asLong(), 
-                        "flowfiles_in", true);
-                else
-                    myResult = new nagiosResult("FLOWFILES IN", "flowfiles in", procGroup.getFlowFilesReceived(), 0L, 0L, "flowfiles_in", false);
-                
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Flowfiles In", hostname, myResult, include_performance_data);
+        });
+    }
+    
+    private boolean postToEndpoint(final NrdpEndpoint endpoint, byte[] body, int length, final MetricPlan plan) {
+        
+        final String url = endpoint.getUrl();
+        final boolean[] delivered = new boolean[1];
+        long postStart = 0L;
+        
+        try {
+            String contentEncoding = null;
+            
+            if (plan.isCompressRequests()) {
+                final int uncompressed = length;
+                body = gzip(body, length);
+                length = body.length;
+                contentEncoding = "gzip";
+                nifiLogger.debug("{} Compressed NRDP submission from {} to {} bytes", this, uncompressed, length);
             }
             
-            if (!context.getProperty(FLOWFILES_OUT).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(FLOWFILES_OUT).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("FLOWFILES OUT", "flowfiles out", procGroup.getFlowFilesSent(), 
-                        context.getProperty(FLOWFILES_OUT_WARN).asLong(), 
-                        context.getProperty(FLOWFILES_OUT_CRIT).asLong(), 
-                        "flowfiles_out", true);
-                else
-                    myResult = new nagiosResult("FLOWFILES OUT", "flowfiles out", procGroup.getFlowFilesSent(), 0L, 0L, "flowfiles_out", false);
-                
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Flowfiles Out", hostname, myResult, include_performance_data);
+            postStart = System.nanoTime();
+            endpoint.getTransport().post(body, length, contentEncoding, new NrdpTransport.ResponseHandler() {
+                @Override
+                public void handle(int respCode, InputStream response) throws IOException {
+                    delivered[0] = handleNRDPResponse(respCode, response, url);
+                }
+            });
+        } catch (IOException T) {
+            // once the breaker is not closed the failure is summarized by its state changes instead
+            if (endpoint.getBreaker().getState() == CircuitBreaker.State.CLOSED)
+                nifiLogger.error("{} Error connecting to NRDP server:  {}", this, T);
+            else
+                nifiLogger.debug("{} Probe of NRDP endpoint {} failed:  {}", this, url, T);
+        }
+        
+        final long now = System.nanoTime();
+        
+        if (postStart != 0L)
+            health.recordPost(now - postStart, length, delivered[0]);
+        
+        final CircuitBreaker.State transition = endpoint.record(postStart != 0L ? now - postStart : -1L, delivered[0], now);
+        
+        if (transition == CircuitBreaker.State.CLOSED)
+            nifiLogger.info("{} NRDP endpoint {} recovered", this, url);
+        else if (transition == CircuitBreaker.State.OPEN)
+            nifiLogger.warn("{} NRDP endpoint {} is down, failing submissions to it without connecting for the next {} ms",
+                this, url, TimeUnit.NANOSECONDS.toMillis(endpoint.getBreaker().remainingOpenNanos(now)));
+        
+        return delivered[0];
+    }
+    
+    /**
+     * Logs one line per endpoint that is down instead of one per rejected submission.
+     */
+    private void logOpenCircuits(EndpointRouter router) {
+        
+        final long now = System.nanoTime();
+        
+        for (final NrdpEndpoint endpoint : router.getEndpoints()) {
+            final long rejected = endpoint.getBreaker().getAndResetRejected();
+            
+            if (rejected > 0)
+                nifiLogger.warn("{} NRDP endpoint {} is down, {} submissions were not sent to it since the last run, next probe in {} ms",
+                    this, endpoint.getUrl(), rejected, TimeUnit.NANOSECONDS.toMillis(endpoint.getBreaker().remainingOpenNanos(now)));
+        }
+    }
+    
+    private static byte[] gzip(byte[] body, int length) throws IOException {
+        
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(512, length / 4));
+        
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, 8192)) {
+            out.write(body, 0, length);
+        }
+        
+        return compressed.toByteArray();
+    }
+    
+    /**
+     * @return true only when NRDP answered with a 2xx status and a result whose status accepts the submission.
+     *         Anything else, including 401, 403 and 404 from a wrong URL or token, is a failure, so the submission
+     *         stays spooled and the endpoint's circuit breaker counts it
+     */
+    private boolean handleNRDPResponse(int respCode, InputStream response, String url) throws IOException {
+        
+        if (respCode / 100 != 2) {
+            nifiLogger.error("{} Error accessing {} : {}", this, url, respCode);
+            return false;
+        }
+        
+        try {
+            final NrdpResponse result = NrdpResponse.read(response);
+            
+            if (result.getStatus() == 0) {
+                nifiLogger.info("{} Posted metrics to NRDP host {}", this, url);
+            } else {
+                nifiLogger.error("{} Error posting metrics to NRDP host {}", this, result.getMessage());
+                return false;
             }
             
-            if (!context.getProperty(BYTES_READ).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(BYTES_READ).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("BYTES READ", "data read", procGroup.getBytesRead(), 
-                        context.getProperty(BYTES_READ_WARN).asDataSize(DataUnit.B), 
-                        context.getProperty(BYTES_READ_CRIT).asDataSize(DataUnit.B), 
-                        "data_read", 
-                        FormatUtils.formatDataSize(context.getProperty(BYTES_READ_WARN).asDataSize(DataUnit.B)), true);
-                else
-                    myResult = new nagiosResult("BYTES READ", "data read", procGroup.getBytesRead(), 0.0, 0.0, "data_read", false);
-                
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Data Read", hostname, myResult, include_performance_data);
+        } catch (XMLStreamException | NumberFormatException T) {
+            // a proxy or error page answering 200 must not count as delivered
+            nifiLogger.error("{} Unreadable response from NRDP host {}:  {}", this, url, T);
+            return false;
+        }
+        
+        return true;
+    }
+    
+    private final class CheckResultBatch implements MetricExporter {
+        
+        private final MetricPlan plan;
+        private final CheckResultPayload payload;
+        private final SubmissionPipeline pipeline;
+        private final ProcessGroupTraversal traversal;
+        private final long runId;
+        private final SuppressionTable suppression;
+        private final GrowthTable growth;
+        private final SmoothingTable smoothing;
+        private final long nowMillis;
+        private final String hostname;
+        private final int maxChecks;
+        
+        private boolean open = false;
+        private int submissions = 0;
+        private long bytes = 0L;
+        private long totalChecks = 0L;
+        
+        CheckResultBatch(final MetricPlan plan, CheckResultPayload payload, SubmissionPipeline pipeline, ProcessGroupTraversal traversal, long runId,
+                SuppressionTable suppression, GrowthTable growth, SmoothingTable smoothing, String hostname) {
+            this.plan = plan;
+            this.payload = payload;
+            this.pipeline = pipeline;
+            this.traversal = traversal;
+            this.runId = runId;
+            this.suppression = suppression;
+            this.growth = growth;
+            this.smoothing = smoothing;
+            this.nowMillis = System.currentTimeMillis();
+            this.hostname = hostname;
+            this.maxChecks = plan.getMaxChecksPerSubmission();
+        }
+        
+        /**
+         * Encodes the check results of the snapshot's groups, flushing whenever a submission is full.
+         */
+        @Override
+        public void export(MetricSnapshot snapshot) {
+            itterateThroughProcessGroupStatus(snapshot, this, traversal);
+        }
+        
+        void addProcessGroup(MetricSnapshot snapshot, int procGroup) {
+            
+            if (!open) {
+                payload.begin(plan.getToken(), plan.getPayloadFormat());
+                open = true;
             }
             
-            if (!context.getProperty(BYTES_WRITTEN).getValue().equals(DISABLED_VALUE)) {
-                
-                nagiosResult myResult;
-                
-                if (context.getProperty(BYTES_WRITTEN).getValue().equals(ALERTING_VALUE))
-                    myResult = new nagiosResult("BYTES WRITTEN", "data written", procGroup.getBytesRead(), 
-                        context.getProperty(BYTES_WRITTEN_WARN).asDataSize(DataUnit.B), 
-                        context.getProperty(BYTES_WRITTEN_CRIT).asDataSize(DataUnit.B), 
-                        "data_written", 
-                        FormatUtils.formatDataSize(procGroup.getBytesRead()), true);
-                else
-                    myResult = new nagiosResult("BYTES WRITTEN", "data written", procGroup.getBytesRead(), 0.0, 0.0, "data_written", false);
-                
-                doc = addCheckResultServiceToXML(doc, procGroupName + " - NiFi Data Written", hostname, myResult, include_performance_data);
+            addProcessGroupChecks(payload, snapshot, procGroup, plan, hostname, suppression, growth, smoothing, nowMillis);
+            
+            if (payload.getChecks() >= maxChecks)
+                flush();
+        }
+        
+        void appendProcessGroup(CheckResultPayload fragment, int from, int to, int checks) {
+            
+            if (!open) {
+                payload.begin(plan.getToken(), plan.getPayloadFormat());
+                open = true;
             }
             
-            Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            DOMSource source = new DOMSource(doc);
-            StringWriter writer = new StringWriter();
-            StreamResult result = new StreamResult(writer);
+            payload.append(fragment, from, to, checks);
             
-            transformer.transform(source, result);
+            if (payload.getChecks() >= maxChecks)
+                flush();
+        }
+        
+        int encode(MetricSnapshot snapshot, int procGroup, CheckResultPayload fragment) {
+            return addProcessGroupChecks(fragment, snapshot, procGroup, plan, hostname, suppression, growth, smoothing, nowMillis);
+        }
+        
+        void addCheckResult(String servicename, nagiosResult result) {
             
-            String url = context.getProperty(URL).getValue();
-            String token = context.getProperty(TOKEN).getValue();
-            String charset = "UTF-8";
+            if (!open) {
+                payload.begin(plan.getToken(), plan.getPayloadFormat());
+                open = true;
+            }
             
-            String query = String.format("token=%s&cmd=submitcheck&XMLDATA=%s\n", 
-                URLEncoder.encode(token, charset), 
-                URLEncoder.encode(writer.toString(), charset));
+            addCheckResultServiceToPayload(payload, servicename, hostname, result, plan.isIncludePerformanceData());
             
-            try {
-                URLConnection connection = new URL(url).openConnection();
-                connection.setDoOutput(true);
-                connection.setRequestProperty("Accept-Charset", charset);
-                connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded;charset=" + charset);
-
-                try (OutputStream output = connection.getOutputStream()) {
-                    output.write(query.getBytes(charset));
-                }
-
-                int respCode = ((HttpURLConnection)connection).getResponseCode();
-                
-                if (respCode == 200) {
+            if (payload.getChecks() >= maxChecks)
+                flush();
+        }
+        
+        void flush() {
             
-                    String message = null;
-                    int status = 0;
-                    
-                    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-                    DocumentBuilder db = dbf.newDocumentBuilder();
-                    Document outputDoc = db.parse(connection.getInputStream());
-
-                    XPathFactory xpathFactory = XPathFactory.newInstance();
-                    XPath xpath = xpathFactory.newXPath();
-
-                    XPathExpression expr = xpath.compile("/result/status/text()");
-                    NodeList nodes = (NodeList) expr.evaluate(outputDoc, XPathConstants.NODESET);
-                    
-                    if (nodes.getLength() == 1)
-                        status = Integer.parseInt(nodes.item(0).getNodeValue());
-                    
-                    if (status == 0) {
-
-                        nifiLogger.info("{} Posted metrics to NRDP host {}", this, url);
-                    
-                    } else {
-                    
-                        expr = xpath.compile("/result/message/text()");
-                        nodes = (NodeList) expr.evaluate(outputDoc, XPathConstants.NODESET);
-                    
-                        if (nodes.getLength() == 1)
-                            message = nodes.item(0).getNodeValue();
-                    
-                        nifiLogger.error("{} Error posting metrics to NRDP host {}", this, message);
-                    }
-                } else {
-                    nifiLogger.error("{} Error accessing {} : {}", this, url, respCode);
-                }
-            } catch (IOException | ParserConfigurationException | SAXException | XPathExpressionException | DOMException | NumberFormatException T) {
-                nifiLogger.error("{} Error connecting to NRDP server:  {}", this, T);
+            if (open && payload.getChecks() > 0) {
+                payload.end();
+                
+                submissions++;
+                bytes += payload.length();
+                totalChecks += payload.getChecks();
+                
+                if (pipeline != null)
+                    pipeline.enqueue(new SubmissionPipeline.Submission(Arrays.copyOf(payload.buffer(), payload.length()), payload.getChecks(), runId, nowMillis));
+                else
+                    deliver(payload.buffer(), payload.length(), payload.getChecks(), runId, nowMillis, plan);
             }
-        } catch (UnknownHostException | TransformerFactoryConfigurationError | TransformerException | UnsupportedEncodingException T) {
-            nifiLogger.error("{} Error posting metrics to NRDP:  {}", this, T);
+            
+            open = false;
+        }
+        
+        /**
+         * Sends what is left of the run.
+         */
+        @Override
+        public void close() {
+            flush();
         }
     }
     
-    private void itterateThroughProcessGroupStatus(ProcessGroupStatus procGroup, final ReportingContext context) {
+    private void itterateThroughProcessGroupStatus(final MetricSnapshot snapshot, final CheckResultBatch batch, ProcessGroupTraversal traversal) {
         
-        printProcessGroupStatus(procGroup, context);
-        
-        for (final ProcessGroupStatus childGroupStatus : procGroup.getProcessGroupStatus()) {
-            itterateThroughProcessGroupStatus(childGroupStatus, context);
+        if (traversal == null || !traversal.isParallel() || snapshot.getGroupCount() == 1) {
+            for (int procGroup = 0; procGroup < snapshot.getGroupCount(); procGroup++)
+                batch.addProcessGroup(snapshot, procGroup);
+            return;
         }
         
+        traversal.encode(snapshot.getGroupCount(), batch.plan.getPayloadFormat(),
+            new ProcessGroupTraversal.GroupEncoder() {
+                @Override
+                public int encode(int group, CheckResultPayload fragment) {
+                    return batch.encode(snapshot, group, fragment);
+                }
+            },
+            new ProcessGroupTraversal.GroupSink() {
+                @Override
+                public void accept(CheckResultPayload fragment, int from, int to, int checks) {
+                    batch.appendProcessGroup(fragment, from, to, checks);
+                }
+            });
     }
     
     @Override
     public void onTrigger(final ReportingContext context) {
         
+        final MetricPlan plan = metricPlan;
+        
+        final GroupMonitor[] groupMonitors = this.groupMonitors;
+        final LineageLatencyMonitor lineageMonitor = this.lineageMonitor;
+        final BulletinMonitor bulletinMonitor = this.bulletinMonitor;
+        final JvmResourceMonitor jvmMonitor = this.jvmMonitor;
+        final MetricExporter[] exporters = this.exporters;
+        
+        if (plan == null || (plan.getMetrics().length == 0 && !plan.isReportHealth()
+                && groupMonitors.length == 0 && lineageMonitor == null && bulletinMonitor == null && jvmMonitor == null))
+            return;
+        
         final ProcessGroupStatus rootGroupStatus = context.getEventAccess().getControllerStatus();
         
-        final boolean processSubProcessgroups = context.getProperty(PROCESS_ALL_GROUPS).getValue().equals(ENABLED_VALUE);
+        String hostname = plan.getHostname();
+        
+        try {
+            if (hostname == null)
+                hostname = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException T) {
+            nifiLogger.error("{} Error posting metrics to NRDP:  {}", this, T);
+            return;
+        }
+        
+        final SubmissionPipeline pipeline = this.pipeline;
+        final SuppressionTable suppression = this.suppression;
+        final GrowthTable growth = this.growth;
+        final SmoothingTable smoothing = this.smoothing;
+        
+        final long run = ++runId;
+        
+        if (suppression != null)
+            suppression.beginRun(run);
+        
+        // asynchronous delivery replays on the idle sender threads instead
+        if (pipeline == null)
+            replayBacklog(plan);
+        
+        final CheckResultBatch batch = new CheckResultBatch(plan, payload, pipeline, traversal, run, suppression, growth, smoothing, hostname);
+        
+        final long walkStart = System.nanoTime();
+        final boolean walkTree = plan.isProcessAllGroups() || groupMonitors.length > 0 || lineageMonitor != null || bulletinMonitor != null;
+        
+        final FlowIndex index = lineageMonitor != null || bulletinMonitor != null ? flowIndex : null;
+        
+        // only lineage latency attributes events to the components of a group
+        if (index != null)
+            index.clear(lineageMonitor != null);
+        
+        // components, lineage latency and bulletins are checked throughout the filtered tree, even when only the root group's metrics are reported
+        final List<ProcessGroupStatus> allGroups = walkTree
+            ? ProcessGroupTraversal.flatten(rootGroupStatus, plan.getGroupFilter(), index)
+            : Collections.<ProcessGroupStatus>emptyList();
+        final List<ProcessGroupStatus> procGroups = plan.isProcessAllGroups()
+            ? allGroups
+            : Collections.singletonList(rootGroupStatus);
+        final MetricSnapshot snapshot = plan.getMetrics().length > 0 ? MetricSnapshot.build(procGroups, plan.getMetrics(), batch.nowMillis) : null;
+        health.recordTrigger(System.nanoTime() - walkStart);
         
-        if(!processSubProcessgroups) {
-            printProcessGroupStatus(rootGroupStatus, context);
-        } else {
-            itterateThroughProcessGroupStatus(rootGroupStatus, context);
+        if (snapshot != null) {
+            if (plan.getChecks().length > 0)
+                batch.export(snapshot);
+            
+            for (final MetricExporter exporter : exporters) {
+                try {
+                    exporter.export(snapshot);
+                } catch (IOException T) {
+                    nifiLogger.error("{} Error exporting metrics:  {}", this, T);
+                }
+            }
+        }
+        
+        final CheckResultSink sink = new CheckResultSink() {
+            @Override
+            public void accept(String servicename, nagiosResult result) {
+                batch.addCheckResult(servicename, result);
+            }
+        };
+        
+        if (groupMonitors.length > 0 || lineageMonitor != null || bulletinMonitor != null) {
+            
+            if (groupMonitors.length > 0) {
+                for (final ProcessGroupStatus group : allGroups) {
+                    for (final GroupMonitor monitor : groupMonitors)
+                        monitor.collect(group);
+                }
+                
+                for (final GroupMonitor monitor : groupMonitors)
+                    monitor.report(sink);
+            }
+            
+            if (lineageMonitor != null) {
+                try {
+                    lineageMonitor.report(context.getEventAccess(), context.getStateManager(), index, allGroups, sink);
+                    
+                    if (!lineageMonitor.isCaughtUp())
+                        nifiLogger.warn("{} Provenance Time Budget used up after {} events, the remaining events are left for the next runs", this, lineageMonitor.getLastEvents());
+                } catch (IOException T) {
+                    nifiLogger.error("{} Error reading provenance events:  {}", this, T);
+                }
+            }
+            
+            if (bulletinMonitor != null)
+                bulletinMonitor.report(context.getBulletinRepository(), index, allGroups, sink, batch.nowMillis);
+        }
+        
+        if (jvmMonitor != null)
+            jvmMonitor.report(sink);
+        
+        health.endRun();
+        
+        final EndpointRouter router = this.router;
+        if (router != null)
+            logOpenCircuits(router);
+        
+        if (plan.isReportHealth())
+            batch.addCheckResult(ReporterHealth.SERVICE_NAME, health.intervalResult());
+        
+        batch.close();
+        
+        if (nifiLogger.isDebugEnabled())
+            nifiLogger.debug("{} Encoded {} check results into {} submissions of {} payload bytes", this, batch.totalChecks, batch.submissions, batch.bytes);
+        
+        if (suppression != null)
+            suppression.sweep();
+        
+        if (growth != null)
+            growth.sweep(batch.nowMillis);
+        
+        if (smoothing != null)
+            smoothing.sweep(batch.nowMillis);
+        
+        if (pipeline != null) {
+            final long dropped = pipeline.getAndResetDropped();
+            if (dropped > 0) {
+                health.recordDropped(dropped);
+                nifiLogger.warn("{} NRDP is not keeping up, discarded {} queued submissions", this, dropped);
+            }
         }
     }
-}
\ No newline at end of file
+}
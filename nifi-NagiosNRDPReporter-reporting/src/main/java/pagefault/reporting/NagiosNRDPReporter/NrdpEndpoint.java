@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An NRDP endpoint with its own token, transport and circuit breaker, and the health derived from
+ * its recent submissions: moving averages of the round trip latency and of the error rate.
+ *
+ * An endpoint whose breaker is not closed, whose latency average reaches the slow threshold or whose
+ * error rate reaches one half is degraded. It is still used, but only after the endpoints that are not.
+ * A slow or failing endpoint is not degraded for one submission every trial interval, so its averages
+ * can recover while the other endpoints take all the submissions.
+ */
+final class NrdpEndpoint {
+
+    private static final double ALPHA = 0.2;
+    private static final double DEGRADED_ERROR_RATE = 0.5;
+    private static final long TRIAL_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final String url;
+    private final String token;
+    private final NrdpTransport transport;
+    private final CircuitBreaker breaker;
+    private final long slowNanos;
+
+    private double latencyNanos = 0.0;
+    private double errorRate = 0.0;
+    private long lastTrialNanos = System.nanoTime();
+
+    /**
+     * @param slowNanos average latency from which the endpoint is considered slow
+     */
+    NrdpEndpoint(String url, String token, NrdpTransport transport, CircuitBreaker breaker, long slowNanos) {
+        this.url = url;
+        this.token = token;
+        this.transport = transport;
+        this.breaker = breaker;
+        this.slowNanos = slowNanos;
+    }
+
+    String getUrl() {
+        return url;
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    NrdpTransport getTransport() {
+        return transport;
+    }
+
+    CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    /**
+     * @return true when a submission may be sent, see {@link CircuitBreaker#tryAcquire(long)}
+     */
+    boolean tryAcquire(long nowNanos) {
+        return breaker.tryAcquire(nowNanos);
+    }
+
+    /**
+     * @return true when the endpoint is failing or slow, so healthy endpoints should be preferred;
+     *         false once per trial interval for an endpoint that is only slow or failing, which takes the trial
+     */
+    boolean isDegraded(long nowNanos) {
+
+        if (breaker.getState() != CircuitBreaker.State.CLOSED)
+            return true;
+
+        synchronized (this) {
+            if (latencyNanos < slowNanos && errorRate < DEGRADED_ERROR_RATE)
+                return false;
+
+            if (nowNanos - lastTrialNanos >= TRIAL_INTERVAL_NANOS) {
+                lastTrialNanos = nowNanos;
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * @param latencyNanos the round trip latency, negative when the request was never sent
+     * @return the new state of the circuit breaker when the submission changed it, null otherwise
+     */
+    CircuitBreaker.State record(long latencyNanos, boolean delivered, long nowNanos) {
+
+        synchronized (this) {
+            if (latencyNanos >= 0L)
+                this.latencyNanos = this.latencyNanos == 0.0 ? latencyNanos : this.latencyNanos + ALPHA * (latencyNanos - this.latencyNanos);
+            this.errorRate += ALPHA * ((delivered ? 0.0 : 1.0) - errorRate);
+        }
+
+        return delivered ? breaker.onSuccess() : breaker.onFailure(nowNanos);
+    }
+
+    void close() {
+        transport.close();
+    }
+
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The status and message of an NRDP result document.
+ *
+ * The response is read with a streaming reader from a shared factory, only the direct children of
+ * the result element are looked at and reading stops as soon as both values are known.
+ */
+final class NrdpResponse {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+
+    private final int status;
+    private final String message;
+
+    private NrdpResponse(int status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * @return the status, 0 when NRDP accepted the submission
+     */
+    int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the message, or null when the document does not contain one
+     */
+    String getMessage() {
+        return message;
+    }
+
+    /**
+     * @throws XMLStreamException when the document is not a result element with a status
+     * @throws NumberFormatException when the status is not a number
+     */
+    static NrdpResponse read(InputStream in) throws XMLStreamException {
+
+        final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+
+        try {
+            String status = null;
+            String message = null;
+            int depth = 0;
+
+            while (reader.hasNext() && (status == null || message == null)) {
+                final int event = reader.next();
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+
+                    if (depth == 1 && !reader.getLocalName().equals("result"))
+                        break;
+
+                    if (depth == 2) {
+                        final String name = reader.getLocalName();
+
+                        if (name.equals("status")) {
+                            status = reader.getElementText();
+                            depth--;
+                        } else if (name.equals("message")) {
+                            message = reader.getElementText();
+                            depth--;
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+
+            if (status == null)
+                throw new XMLStreamException("NRDP response is not a result with a status");
+
+            return new NrdpResponse(Integer.parseInt(status.trim()), message == null ? null : message.trim());
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Posts form-urlencoded submissions to an NRDP endpoint. Implementations must be thread safe
+ * and must fully consume every response so the underlying connection can be reused.
+ */
+interface NrdpTransport extends Closeable {
+
+    String CONTENT_TYPE = "application/x-www-form-urlencoded;charset=UTF-8";
+
+    interface ResponseHandler {
+        /**
+         * @param statusCode the HTTP status code of the response
+         * @param body the response body, never null; it is drained and closed by the transport
+         */
+        void handle(int statusCode, InputStream body) throws IOException;
+    }
+
+    /**
+     * @param contentEncoding the Content-Encoding of the body, or null when it is not encoded
+     */
+    void post(byte[] body, int length, String contentEncoding, ResponseHandler handler) throws IOException;
+
+    @Override
+    void close();
+}
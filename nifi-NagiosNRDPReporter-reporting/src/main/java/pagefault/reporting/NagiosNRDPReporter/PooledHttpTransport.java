@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Transport keeping a small pool of persistent keep-alive connections to the NRDP endpoint,
+ * so the TCP and TLS handshakes are paid once instead of once per submission.
+ */
+final class PooledHttpTransport implements NrdpTransport {
+
+    private final URI uri;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+
+    PooledHttpTransport(String url, int poolSize, long idleTimeoutMillis, int connectTimeoutMillis, int readTimeoutMillis) {
+        this.uri = URI.create(url);
+
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(poolSize);
+        this.connectionManager.setDefaultMaxPerRoute(poolSize);
+        this.connectionManager.setValidateAfterInactivity(2000);
+
+        final RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(connectTimeoutMillis)
+            .setConnectionRequestTimeout(connectTimeoutMillis)
+            .setSocketTimeout(readTimeoutMillis)
+            .build();
+
+        this.client = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .evictIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+            .evictExpiredConnections()
+            .disableAutomaticRetries()
+            .build();
+    }
+
+    @Override
+    public void post(byte[] body, int length, String contentEncoding, ResponseHandler handler) throws IOException {
+
+        final HttpPost post = new HttpPost(uri);
+        post.setHeader("Accept-Charset", "UTF-8");
+        post.setHeader("Content-Type", CONTENT_TYPE);
+        if (contentEncoding != null)
+            post.setHeader("Content-Encoding", contentEncoding);
+        post.setEntity(new ByteArrayEntity(body, 0, length));
+
+        try (CloseableHttpResponse response = client.execute(post)) {
+
+            final HttpEntity entity = response.getEntity();
+
+            try {
+                if (entity == null) {
+                    handler.handle(response.getStatusLine().getStatusCode(), new ByteArrayInputStream(new byte[0]));
+                } else {
+                    try (InputStream in = entity.getContent()) {
+                        handler.handle(response.getStatusLine().getStatusCode(), in);
+                    }
+                }
+            } finally {
+                EntityUtils.consume(entity);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            connectionManager.shutdown();
+        }
+    }
+}
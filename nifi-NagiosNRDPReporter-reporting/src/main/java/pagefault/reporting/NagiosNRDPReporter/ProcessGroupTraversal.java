@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+
+/**
+ * Walks the process group tree and encodes the check results of every group.
+ *
+ * The tree is first flattened iteratively in depth first order, so arbitrarily deep flows cannot
+ * overflow the stack, optionally filling the run's FlowIndex on the way. With a parallelism above one
+ * the groups of the run's snapshot are split into fixed size chunks encoded on a ForkJoinPool, each
+ * chunk into its own reusable fragment buffer, and the fragments are handed to the sink in the
+ * original order so the output is deterministic.
+ */
+final class ProcessGroupTraversal {
+
+    interface GroupEncoder {
+        /**
+         * Encodes the check results of a process group, by its index in the snapshot, into the fragment.
+         *
+         * @return the number of check results written
+         */
+        int encode(int group, CheckResultPayload fragment);
+    }
+
+    interface GroupSink {
+        void accept(CheckResultPayload fragment, int from, int to, int checks);
+    }
+
+    private static final int CHUNK_SIZE = 32;
+
+    private final ForkJoinPool pool;
+
+    private Chunk[] chunks = new Chunk[0];
+
+    ProcessGroupTraversal(int parallelism) {
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Flattens the whole tree and, when an index is given, fills it with every group on the way. With an index
+     * the subtrees the filter prunes are still visited for the index, but none of their groups is returned.
+     *
+     * @param index cleared by the caller, may be null
+     * @return the groups accepted by the filter, in depth first order
+     */
+    static List<ProcessGroupStatus> flatten(ProcessGroupStatus root, GroupFilter filter, FlowIndex index) {
+
+        final List<ProcessGroupStatus> groups = new ArrayList<>();
+
+        final GroupFilter.Position rootPosition = filter.root(root);
+        if (rootPosition == null && index == null)
+            return groups;
+
+        final Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, rootPosition, -1));
+
+        while (!stack.isEmpty()) {
+            final Frame frame = stack.pop();
+            final GroupFilter.Position position = frame.position;
+            final ProcessGroupStatus group = frame.group;
+            final int groupIndex = index == null ? -1 : index.add(group, frame.parent);
+
+            if (position != null && position.isAccepted())
+                groups.add(group);
+
+            final Collection<ProcessGroupStatus> children = group.getProcessGroupStatus();
+            if (children == null || children.isEmpty())
+                continue;
+
+            // push in reverse so children are visited in their natural order
+            final ProcessGroupStatus[] ordered = children.toArray(new ProcessGroupStatus[children.size()]);
+            for (int i = ordered.length - 1; i >= 0; i--) {
+                final GroupFilter.Position child = position == null ? null : filter.child(position, ordered[i]);
+                if (child != null || index != null)
+                    stack.push(new Frame(ordered[i], child, groupIndex));
+            }
+        }
+
+        return groups;
+    }
+
+    /**
+     * Encodes the groups 0 to {@code groups - 1} in parallel and passes every group's encoded check results
+     * to the sink, in the order of their indices. Must not be called concurrently.
+     */
+    void encode(int groups, CheckResultPayload.Format format, GroupEncoder encoder, GroupSink sink) {
+
+        final int chunkCount = (groups + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        if (chunks.length < chunkCount) {
+            final int previous = chunks.length;
+            chunks = Arrays.copyOf(chunks, chunkCount);
+            for (int i = previous; i < chunkCount; i++)
+                chunks[i] = new Chunk();
+        }
+
+        pool.invoke(new EncodeTask(groups, format, encoder, 0, chunkCount));
+
+        for (int c = 0; c < chunkCount; c++) {
+            final Chunk chunk = chunks[c];
+            int from = 0;
+            for (int g = 0; g < chunk.groups; g++) {
+                sink.accept(chunk.fragment, from, chunk.ends[g], chunk.checks[g]);
+                from = chunk.ends[g];
+            }
+        }
+    }
+
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            try {
+                pool.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class Frame {
+        private final ProcessGroupStatus group;
+        private final GroupFilter.Position position;
+        private final int parent;
+
+        /**
+         * @param position null inside a subtree the filter pruned
+         */
+        Frame(ProcessGroupStatus group, GroupFilter.Position position, int parent) {
+            this.group = group;
+            this.position = position;
+            this.parent = parent;
+        }
+    }
+
+    private static final class Chunk {
+        private final CheckResultPayload fragment = new CheckResultPayload();
+        private final int[] ends = new int[CHUNK_SIZE];
+        private final int[] checks = new int[CHUNK_SIZE];
+        private int groups = 0;
+    }
+
+    private final class EncodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int groups;
+        private final CheckResultPayload.Format format;
+        private final GroupEncoder encoder;
+        private final int fromChunk;
+        private final int toChunk;
+
+        EncodeTask(int groups, CheckResultPayload.Format format, GroupEncoder encoder, int fromChunk, int toChunk) {
+            this.groups = groups;
+            this.format = format;
+            this.encoder = encoder;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk > 1) {
+                final int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new EncodeTask(groups, format, encoder, fromChunk, middle), new EncodeTask(groups, format, encoder, middle, toChunk));
+                return;
+            }
+
+            final Chunk chunk = chunks[fromChunk];
+            final int first = fromChunk * CHUNK_SIZE;
+            final int last = Math.min(groups, first + CHUNK_SIZE);
+
+            chunk.fragment.beginFragment(format);
+            chunk.groups = 0;
+
+            for (int i = first; i < last; i++) {
+                chunk.checks[chunk.groups] = encoder.encode(i, chunk.fragment);
+                chunk.ends[chunk.groups] = chunk.fragment.length();
+                chunk.groups++;
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.ProcessorStatus;
+import org.apache.nifi.util.FormatUtils;
+
+/**
+ * Finds the processors eating the most of the flow, ranked by processing time, active threads and
+ * tasks over the last 5 minutes, and reports the top processors of every ranking.
+ *
+ * Processors are streamed once into one bounded heap per ranking, no list of all processors is built.
+ * Like connections, a processor last reported in a warning or critical state keeps being reported
+ * until it recovers. Not thread safe, only used from onTrigger.
+ */
+final class ProcessorMonitor implements GroupMonitor {
+
+    enum Ranking {
+        PROCESSING_TIME("PROCESSOR TIME", " - NiFi Processor Time") {
+            @Override
+            long score(ProcessorStatus processor) {
+                return processor.getProcessingNanos();
+            }
+        },
+        ACTIVE_THREADS("PROCESSOR THREADS", " - NiFi Processor Threads") {
+            @Override
+            long score(ProcessorStatus processor) {
+                return processor.getActiveThreadCount();
+            }
+        },
+        TASKS("PROCESSOR TASKS", " - NiFi Processor Tasks") {
+            @Override
+            long score(ProcessorStatus processor) {
+                return processor.getInvocations();
+            }
+        };
+
+        private final String label;
+        private final String serviceSuffix;
+
+        Ranking(String label, String serviceSuffix) {
+            this.label = label;
+            this.serviceSuffix = serviceSuffix;
+        }
+
+        abstract long score(ProcessorStatus processor);
+    }
+
+    private static final class Candidate {
+
+        private final String groupName;
+        private final ProcessorStatus processor;
+
+        Candidate(String groupName, ProcessorStatus processor) {
+            this.groupName = groupName;
+            this.processor = processor;
+        }
+    }
+
+    private final class HotSpots {
+
+        private final Ranking ranking;
+        private final long warning;
+        private final long critical;
+        private final TopN<Candidate> top;
+        private final List<Candidate> recovering = new ArrayList<>();
+
+        private Set<String> alerting = new HashSet<>();
+
+        HotSpots(Ranking ranking, long warning, long critical, int topN) {
+            this.ranking = ranking;
+            this.warning = warning;
+            this.critical = critical;
+            this.top = new TopN<>(topN);
+        }
+
+        int report(CheckResultSink sink) {
+
+            top.sortDescending();
+
+            final Set<String> stillAlerting = new HashSet<>();
+            final Set<String> reported = new HashSet<>();
+
+            for (int i = 0; i < top.size(); i++) {
+                report(top.item(i), sink, stillAlerting);
+                reported.add(top.item(i).processor.getId());
+            }
+
+            for (final Candidate candidate : recovering) {
+                if (reported.add(candidate.processor.getId()))
+                    report(candidate, sink, stillAlerting);
+            }
+
+            alerting = stillAlerting;
+            top.clear();
+            recovering.clear();
+            return reported.size();
+        }
+
+        private void report(Candidate candidate, CheckResultSink sink, Set<String> stillAlerting) {
+
+            final ProcessorStatus processor = candidate.processor;
+            final int state = state(ranking.score(processor));
+
+            if (state != MetricCheck.STATE_OK)
+                stillAlerting.add(processor.getId());
+
+            final String output = ranking.label + MetricCheck.stateLabel(state)
+                + FormatUtils.formatHoursMinutesSeconds(processor.getProcessingNanos(), TimeUnit.NANOSECONDS) + " processing time and "
+                + processor.getInvocations() + " tasks in the last 5 minutes, " + processor.getActiveThreadCount() + " active threads";
+            final String performance = "processing_time=" + String.format(Locale.ROOT, "%.3f", processor.getProcessingNanos() / 1e9) + "s tasks="
+                + processor.getInvocations() + " active_threads=" + processor.getActiveThreadCount();
+
+            sink.accept(candidate.groupName + " / " + processor.getName() + ranking.serviceSuffix, new NagiosNRDPReporter.nagiosResult(state, output, performance));
+        }
+
+        private int state(long score) {
+            if (mode != MetricCheck.Mode.ALERTING)
+                return MetricCheck.STATE_OK;
+            if (score >= critical)
+                return MetricCheck.STATE_CRITICAL;
+            if (score >= warning)
+                return MetricCheck.STATE_WARNING;
+            return MetricCheck.STATE_OK;
+        }
+    }
+
+    private final MetricCheck.Mode mode;
+    private final HotSpots[] hotSpots;
+
+    /**
+     * Thresholds that are not set are passed as Long.MAX_VALUE.
+     *
+     * @param topN number of processors reported per ranking and run, 0 reports every busy processor
+     */
+    ProcessorMonitor(MetricCheck.Mode mode, int topN, long timeWarningNanos, long timeCriticalNanos,
+            long threadsWarning, long threadsCritical, long tasksWarning, long tasksCritical) {
+        this.mode = mode;
+        this.hotSpots = new HotSpots[] {
+            new HotSpots(Ranking.PROCESSING_TIME, timeWarningNanos, timeCriticalNanos, topN),
+            new HotSpots(Ranking.ACTIVE_THREADS, threadsWarning, threadsCritical, topN),
+            new HotSpots(Ranking.TASKS, tasksWarning, tasksCritical, topN)
+        };
+    }
+
+    @Override
+    public void collect(ProcessGroupStatus group) {
+
+        final Collection<ProcessorStatus> processors = group.getProcessorStatus();
+        if (processors == null)
+            return;
+
+        for (final ProcessorStatus processor : processors) {
+
+            Candidate candidate = null;
+
+            for (final HotSpots spots : hotSpots) {
+                final long score = spots.ranking.score(processor);
+                final boolean top = score > 0L && spots.top.accepts(score);
+                final boolean alerting = spots.alerting.contains(processor.getId());
+
+                if (!top && !alerting)
+                    continue;
+
+                if (candidate == null)
+                    candidate = new Candidate(group.getName(), processor);
+
+                if (top)
+                    spots.top.offer(score, candidate);
+                if (alerting)
+                    spots.recovering.add(candidate);
+            }
+        }
+    }
+
+    /**
+     * Reports the top processors of the collected groups for every ranking.
+     */
+    @Override
+    public int report(CheckResultSink sink) {
+
+        int reported = 0;
+        for (final HotSpots spots : hotSpots)
+            reported += spots.report(sink);
+
+        return reported;
+    }
+}
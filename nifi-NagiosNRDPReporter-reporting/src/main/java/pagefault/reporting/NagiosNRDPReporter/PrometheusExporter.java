@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the metrics of the latest run in the Prometheus text format on {@code /metrics}.
+ *
+ * Scrapes never touch the process group tree: export only publishes the snapshot of the run, which is
+ * rendered on the first scrape after it and served from the rendered bytes until the next run.
+ * Growth metrics are left out, Prometheus derives rates from the queued gauges itself.
+ */
+final class PrometheusExporter implements MetricExporter {
+
+    static final String PATH = "/metrics";
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    static final String METRIC_PREFIX = "nifi_process_group_";
+
+    private static final class Rendered {
+
+        private final MetricSnapshot snapshot;
+        private final byte[] body;
+
+        Rendered(MetricSnapshot snapshot, byte[] body) {
+            this.snapshot = snapshot;
+            this.body = body;
+        }
+    }
+
+    private final HttpServer server;
+
+    private volatile MetricSnapshot snapshot = MetricSnapshot.EMPTY;
+    private Rendered rendered = null;
+
+    /**
+     * @param bindAddress host name or address of the interface to listen on
+     */
+    PrometheusExporter(String bindAddress, int port) throws IOException {
+        final InetSocketAddress address = new InetSocketAddress(bindAddress, port);
+        if (address.isUnresolved())
+            throw new IOException("Unknown Prometheus bind address " + bindAddress);
+
+        this.server = HttpServer.create(address, 0);
+        this.server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        this.server.start();
+    }
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void export(MetricSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+
+        try {
+            final String method = exchange.getRequestMethod();
+
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            final byte[] body = render(snapshot);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private synchronized byte[] render(MetricSnapshot current) {
+
+        if (rendered != null && rendered.snapshot == current)
+            return rendered.body;
+
+        final StringBuilder text = new StringBuilder(256 + current.getGroupCount() * current.getMetricCount() * 96);
+
+        for (int m = 0; m < current.getMetricCount(); m++) {
+            final GroupMetric metric = current.getMetric(m);
+            if (metric.isGrowth())
+                continue;
+
+            final String name = METRIC_PREFIX + metric.getPerformanceLabel();
+            text.append("# HELP ").append(name).append(' ').append(metric.getComment()).append('\n');
+            text.append("# TYPE ").append(name).append(" gauge\n");
+
+            for (int g = 0; g < current.getGroupCount(); g++) {
+                text.append(name).append("{group_id=\"");
+                appendLabelValue(text, current.getGroupId(g));
+                text.append("\",group_name=\"");
+                appendLabelValue(text, current.getGroupName(g));
+                text.append("\"} ").append(current.value(g, m)).append('\n');
+            }
+        }
+
+        rendered = new Rendered(current, text.toString().getBytes(StandardCharsets.UTF_8));
+        return rendered.body;
+    }
+
+    private static void appendLabelValue(StringBuilder text, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\' || c == '"')
+                text.append('\\').append(c);
+            else if (c == '\n')
+                text.append("\\n");
+            else
+                text.append(c);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile sketch of non-negative values with a relative error of at most 1%.
+ *
+ * Value v is counted in the bucket ceil(log_gamma(v)), gamma = 1.01 / 0.99, and a quantile is
+ * reported as the midpoint of its bucket. Two sketches merge by adding their bucket counts, so
+ * the sketch of a process group is simply the merge of its own and its children's. Buckets are
+ * kept in a dense array spanning the smallest to the largest bucket seen, a few hundred counters
+ * for values from milliseconds to hours. Not thread safe.
+ */
+final class QuantileSketch {
+
+    private static final double GAMMA = 1.01 / 0.99;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private int[] counts = new int[64];
+    private int offset = 0;
+    private int used = 0;
+    private long zeros = 0L;
+    private long count = 0L;
+
+    void add(long value) {
+
+        count++;
+
+        if (value < 1L) {
+            zeros++;
+            return;
+        }
+
+        final int bucket = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+        ensureRange(bucket, bucket);
+        counts[bucket - offset]++;
+    }
+
+    void merge(QuantileSketch other) {
+
+        count += other.count;
+        zeros += other.zeros;
+
+        if (other.used == 0)
+            return;
+
+        ensureRange(other.offset, other.offset + other.used - 1);
+        for (int i = 0; i < other.used; i++)
+            counts[other.offset + i - offset] += other.counts[i];
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * @return the value at the quantile, 0 when the sketch is empty
+     */
+    long quantile(double quantile) {
+
+        if (count == 0L)
+            return 0L;
+
+        final long rank = Math.max(1L, (long) Math.ceil(quantile * count));
+        long seen = zeros;
+
+        if (seen >= rank)
+            return 0L;
+
+        for (int i = 0; i < used; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.round(2.0 * Math.pow(GAMMA, offset + i) / (GAMMA + 1.0));
+        }
+
+        return Math.round(2.0 * Math.pow(GAMMA, offset + used - 1) / (GAMMA + 1.0));
+    }
+
+    /**
+     * Empties the sketch, keeping its buckets allocated.
+     */
+    void clear() {
+        Arrays.fill(counts, 0, used, 0);
+        used = 0;
+        zeros = 0L;
+        count = 0L;
+    }
+
+    private void ensureRange(int low, int high) {
+
+        if (used == 0) {
+            if (high - low >= counts.length)
+                counts = new int[Integer.highestOneBit(high - low) << 1];
+            offset = low;
+            used = high - low + 1;
+            return;
+        }
+
+        final int newLow = Math.min(low, offset);
+        final int newHigh = Math.max(high, offset + used - 1);
+        final int span = newHigh - newLow + 1;
+
+        if (span > counts.length) {
+            final int[] grown = new int[Integer.highestOneBit(span - 1) << 1];
+            System.arraycopy(counts, 0, grown, offset - newLow, used);
+            counts = grown;
+        } else if (newLow < offset) {
+            System.arraycopy(counts, 0, counts, offset - newLow, used);
+            Arrays.fill(counts, 0, offset - newLow, 0);
+        }
+
+        offset = newLow;
+        used = span;
+    }
+}
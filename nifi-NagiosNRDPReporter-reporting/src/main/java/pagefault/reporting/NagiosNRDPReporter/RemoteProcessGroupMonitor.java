@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.RemoteProcessGroupStatus;
+import org.apache.nifi.controller.status.TransmissionStatus;
+import org.apache.nifi.util.FormatUtils;
+
+/**
+ * Checks every Site-to-Site link, i.e. remote process group, on its own, as a stalled link is
+ * invisible in the Site-to-Site totals of its group.
+ *
+ * A link is critical when it stopped transmitting, having transmitted since the task was scheduled,
+ * so links that were already disabled do not alert. NiFi reports a link disabled by hand as not
+ * transmitting as well, so disabling a link in use alerts until it transmits again or is removed
+ * from the flow; only the links still in the flow are remembered. A transmitting link is a warning
+ * when none of its remote ports is active, and is checked against the throughput floors, its bytes
+ * sent and received per second over the last 5 minutes. Not thread safe, only used from onTrigger.
+ */
+final class RemoteProcessGroupMonitor implements GroupMonitor {
+
+    static final String SERVICE_SUFFIX = " - NiFi Site-to-Site";
+
+    private static final class Link {
+
+        private final String groupName;
+        private final RemoteProcessGroupStatus remote;
+
+        Link(String groupName, RemoteProcessGroupStatus remote) {
+            this.groupName = groupName;
+            this.remote = remote;
+        }
+    }
+
+    private final MetricCheck.Mode mode;
+    private final long warningFloor;
+    private final long criticalFloor;
+    private final List<Link> links = new ArrayList<>();
+    private final Set<String> transmitted = new HashSet<>();
+
+    /**
+     * @param warningFloor bytes per second below which a link is a warning, negative for none
+     * @param criticalFloor bytes per second below which a link is critical, negative for none
+     */
+    RemoteProcessGroupMonitor(MetricCheck.Mode mode, long warningFloor, long criticalFloor) {
+        this.mode = mode;
+        this.warningFloor = warningFloor;
+        this.criticalFloor = criticalFloor;
+    }
+
+    @Override
+    public void collect(ProcessGroupStatus group) {
+
+        final Collection<RemoteProcessGroupStatus> remotes = group.getRemoteProcessGroupStatus();
+        if (remotes == null)
+            return;
+
+        for (final RemoteProcessGroupStatus remote : remotes)
+            links.add(new Link(group.getName(), remote));
+    }
+
+    @Override
+    public int report(CheckResultSink sink) {
+
+        final Set<String> present = new HashSet<>();
+
+        for (final Link link : links) {
+            present.add(link.remote.getId());
+            sink.accept(link.groupName + " / " + link.remote.getName() + SERVICE_SUFFIX, result(link.remote));
+        }
+
+        // links removed from the flow, or from the reported groups, are forgotten
+        transmitted.retainAll(present);
+
+        final int reported = links.size();
+        links.clear();
+        return reported;
+    }
+
+    private NagiosNRDPReporter.nagiosResult result(RemoteProcessGroupStatus remote) {
+
+        final boolean transmitting = remote.getTransmissionStatus() == TransmissionStatus.Transmitting;
+        final long sentBytes = orZero(remote.getSentContentSize());
+        final long receivedBytes = orZero(remote.getReceivedContentSize());
+        final long throughput = (sentBytes + receivedBytes + GroupMetric.STATUS_WINDOW_SECONDS / 2) / GroupMetric.STATUS_WINDOW_SECONDS;
+        final long activePorts = orZero(remote.getActiveRemotePortCount());
+
+        final boolean stopped = !transmitting && transmitted.contains(remote.getId());
+        if (transmitting)
+            transmitted.add(remote.getId());
+
+        int state = MetricCheck.STATE_OK;
+        String problem = "";
+
+        if (mode == MetricCheck.Mode.ALERTING && transmitting) {
+            if (throughput < criticalFloor) {
+                state = MetricCheck.STATE_CRITICAL;
+                problem = ", below the throughput floor";
+            } else if (activePorts == 0L) {
+                state = MetricCheck.STATE_WARNING;
+                problem = ", no active remote ports";
+            } else if (throughput < warningFloor) {
+                state = MetricCheck.STATE_WARNING;
+                problem = ", below the throughput floor";
+            }
+        } else if (mode == MetricCheck.Mode.ALERTING && stopped) {
+            state = MetricCheck.STATE_CRITICAL;
+            problem = ", stopped transmitting";
+        }
+
+        final String output = "SITE-TO-SITE" + MetricCheck.stateLabel(state)
+            + (transmitting ? "transmitting to " : "not transmitting to ") + remote.getTargetUri() + problem + ", "
+            + activePorts + " active remote ports, " + FormatUtils.formatDataSize(throughput) + "/s, "
+            + FormatUtils.formatDataSize(sentBytes) + " sent and " + FormatUtils.formatDataSize(receivedBytes) + " received in the last 5 minutes";
+        final String performance = "throughput=" + throughput + "B bytes_sent=" + sentBytes + "B bytes_received=" + receivedBytes
+            + "B flowfiles_sent=" + orZero(remote.getSentCount()) + " flowfiles_received=" + orZero(remote.getReceivedCount())
+            + " active_ports=" + activePorts + " inactive_ports=" + orZero(remote.getInactiveRemotePortCount())
+            + " transmitting=" + (transmitting ? 1 : 0);
+
+        return new NagiosNRDPReporter.nagiosResult(state, output, performance);
+    }
+
+    private static long orZero(Number value) {
+        return value == null ? 0L : value.longValue();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The reporter's own instrumentation. Counters are LongAdders and HTTP latencies go to a lock-free
+ * histogram, so recording from onTrigger, the traversal workers and the sender threads never contends.
+ *
+ * Besides the cumulative values exposed through JMX, every run reports the values of the interval
+ * since the previous run as the NiFi Reporter Health check result.
+ */
+final class ReporterHealth implements ReporterHealthMXBean {
+
+    static final String SERVICE_NAME = "NiFi Reporter Health";
+
+    private final LongAdder triggers = new LongAdder();
+    private final LongAdder checksSent = new LongAdder();
+    private final LongAdder submissionsSent = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder postErrors = new LongAdder();
+    private final LongAdder spooled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final LongAdder serializationNanos = new LongAdder();
+    private final LatencyHistogram httpLatency = new LatencyHistogram();
+
+    private volatile long lastTreeWalkNanos = 0L;
+    private volatile long lastEvaluationNanos = 0L;
+    private volatile long lastSerializationNanos = 0L;
+
+    // interval state, only used by the reporting thread
+    private final long[] latencySnapshot = new long[LatencyHistogram.BUCKETS];
+    private final long[] previousLatency = new long[LatencyHistogram.BUCKETS];
+    private final long[] intervalLatency = new long[LatencyHistogram.BUCKETS];
+    private long previousChecks = 0L;
+    private long previousSubmissions = 0L;
+    private long previousBytes = 0L;
+    private long previousErrors = 0L;
+    private long previousSpooled = 0L;
+    private long previousReplayed = 0L;
+    private long previousDropped = 0L;
+
+    void recordTrigger(long treeWalkNanos) {
+        triggers.increment();
+        lastTreeWalkNanos = treeWalkNanos;
+    }
+
+    void recordEvaluation(long nanos) {
+        evaluationNanos.add(nanos);
+    }
+
+    void recordSerialization(long nanos) {
+        serializationNanos.add(nanos);
+    }
+
+    /**
+     * Closes the evaluation and serialization times of the current run.
+     */
+    void endRun() {
+        lastEvaluationNanos = evaluationNanos.sumThenReset();
+        lastSerializationNanos = serializationNanos.sumThenReset();
+    }
+
+    void recordPost(long nanos, int bytes, boolean delivered) {
+        httpLatency.record(nanos);
+        bytesSent.add(bytes);
+        if (delivered)
+            submissionsSent.increment();
+        else
+            postErrors.increment();
+    }
+
+    void recordChecksSent(int checks) {
+        checksSent.add(checks);
+    }
+
+    void recordSpooled() {
+        spooled.increment();
+    }
+
+    void recordReplayed(int submissions) {
+        replayed.add(submissions);
+    }
+
+    void recordDropped(long submissions) {
+        dropped.add(submissions);
+    }
+
+    /**
+     * Builds the health check result for the interval since the previous call. Warning when
+     * submissions failed or were discarded during the interval. Must only be called from onTrigger.
+     */
+    NagiosNRDPReporter.nagiosResult intervalResult() {
+
+        httpLatency.snapshot(latencySnapshot);
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            intervalLatency[i] = latencySnapshot[i] - previousLatency[i];
+            previousLatency[i] = latencySnapshot[i];
+        }
+
+        final long checks = checksSent.sum();
+        final long submissions = submissionsSent.sum();
+        final long bytes = bytesSent.sum();
+        final long errors = postErrors.sum();
+        final long spooledNow = spooled.sum();
+        final long replayedNow = replayed.sum();
+        final long droppedNow = dropped.sum();
+
+        final long intervalChecks = checks - previousChecks;
+        final long intervalSubmissions = submissions - previousSubmissions;
+        final long intervalBytes = bytes - previousBytes;
+        final long intervalErrors = errors - previousErrors;
+        final long intervalSpooled = spooledNow - previousSpooled;
+        final long intervalReplayed = replayedNow - previousReplayed;
+        final long intervalDropped = droppedNow - previousDropped;
+
+        previousChecks = checks;
+        previousSubmissions = submissions;
+        previousBytes = bytes;
+        previousErrors = errors;
+        previousSpooled = spooledNow;
+        previousReplayed = replayedNow;
+        previousDropped = droppedNow;
+
+        final double walk = lastTreeWalkNanos / 1e6;
+        final double evaluation = lastEvaluationNanos / 1e6;
+        final double serialization = lastSerializationNanos / 1e6;
+        final double p50 = LatencyHistogram.quantileMillis(intervalLatency, 0.50);
+        final double p99 = LatencyHistogram.quantileMillis(intervalLatency, 0.99);
+
+        final int state = intervalErrors > 0 || intervalDropped > 0 ? MetricCheck.STATE_WARNING : MetricCheck.STATE_OK;
+
+        final String output = String.format(Locale.ROOT, "REPORTER HEALTH%s%d checks in %d submissions, %d post errors, %d dropped, walk %.1f ms, evaluate %.1f ms, encode %.1f ms, http p50 %.1f ms p99 %.1f ms",
+            MetricCheck.stateLabel(state), intervalChecks, intervalSubmissions, intervalErrors, intervalDropped, walk, evaluation, serialization, p50, p99);
+
+        final String performance = String.format(Locale.ROOT, "tree_walk_ms=%.3f evaluation_ms=%.3f serialization_ms=%.3f http_p50_ms=%.3f http_p99_ms=%.3f "
+            + "http_requests=%d bytes_sent=%dB checks_sent=%d submissions_sent=%d post_errors=%d spooled=%d replayed=%d dropped=%d",
+            walk, evaluation, serialization, p50, p99, LatencyHistogram.count(intervalLatency),
+            intervalBytes, intervalChecks, intervalSubmissions, intervalErrors, intervalSpooled, intervalReplayed, intervalDropped);
+
+        return new NagiosNRDPReporter.nagiosResult(state, output, performance);
+    }
+
+    @Override
+    public long getTriggers() {
+        return triggers.sum();
+    }
+
+    @Override
+    public long getChecksSent() {
+        return checksSent.sum();
+    }
+
+    @Override
+    public long getSubmissionsSent() {
+        return submissionsSent.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getPostErrors() {
+        return postErrors.sum();
+    }
+
+    @Override
+    public long getSpooledSubmissions() {
+        return spooled.sum();
+    }
+
+    @Override
+    public long getReplayedSubmissions() {
+        return replayed.sum();
+    }
+
+    @Override
+    public long getDroppedSubmissions() {
+        return dropped.sum();
+    }
+
+    @Override
+    public double getLastTreeWalkMillis() {
+        return lastTreeWalkNanos / 1e6;
+    }
+
+    @Override
+    public double getLastEvaluationMillis() {
+        return lastEvaluationNanos / 1e6;
+    }
+
+    @Override
+    public double getLastSerializationMillis() {
+        return lastSerializationNanos / 1e6;
+    }
+
+    @Override
+    public long getHttpRequests() {
+        final long[] counts = new long[LatencyHistogram.BUCKETS];
+        httpLatency.snapshot(counts);
+        return LatencyHistogram.count(counts);
+    }
+
+    @Override
+    public double getHttpLatencyP50Millis() {
+        return cumulativeLatency(0.50);
+    }
+
+    @Override
+    public double getHttpLatencyP99Millis() {
+        return cumulativeLatency(0.99);
+    }
+
+    @Override
+    public double getHttpLatencyMaxMillis() {
+        return cumulativeLatency(1.0);
+    }
+
+    private double cumulativeLatency(double quantile) {
+        final long[] counts = new long[LatencyHistogram.BUCKETS];
+        httpLatency.snapshot(counts);
+        return LatencyHistogram.quantileMillis(counts, quantile);
+    }
+}
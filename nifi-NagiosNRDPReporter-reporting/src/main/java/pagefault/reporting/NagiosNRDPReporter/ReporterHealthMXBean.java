@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+/**
+ * JMX view of the reporter's own performance, registered for every scheduled reporter as
+ * {@code pagefault.reporting:type=NagiosNRDPReporter,id=<reporting task id>}.
+ */
+public interface ReporterHealthMXBean {
+
+    long getTriggers();
+
+    long getChecksSent();
+
+    long getSubmissionsSent();
+
+    long getBytesSent();
+
+    long getPostErrors();
+
+    long getSpooledSubmissions();
+
+    long getReplayedSubmissions();
+
+    long getDroppedSubmissions();
+
+    double getLastTreeWalkMillis();
+
+    double getLastEvaluationMillis();
+
+    double getLastSerializationMillis();
+
+    long getHttpRequests();
+
+    double getHttpLatencyP50Millis();
+
+    double getHttpLatencyP99Millis();
+
+    double getHttpLatencyMaxMillis();
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.Arrays;
+
+/**
+ * Counts events per series over a rolling window, split into a fixed number of slots that expire
+ * one at a time as the window moves on.
+ *
+ * Series are keyed like the SuppressionTable and stored in an open addressing table of primitive
+ * arrays: the key, the slot the series last counted in, and one int counter per slot, 56 bytes per
+ * series. Slots that fell out of the window are zeroed lazily the next time the series is touched.
+ * Not thread safe.
+ */
+final class RollingCounterTable {
+
+    static final int SLOTS = 10;
+
+    private static final long EMPTY = 0L;
+
+    private final long slotMillis;
+
+    private long[] keys;
+    private long[] lastSlot;
+    private int[] counts;
+    private int size = 0;
+
+    RollingCounterTable(long windowMillis) {
+        this(windowMillis, 64);
+    }
+
+    RollingCounterTable(long windowMillis, int initialCapacity) {
+        this.slotMillis = Math.max(1L, windowMillis / SLOTS);
+        allocate(Integer.highestOneBit(Math.max(16, initialCapacity - 1) << 1));
+    }
+
+    /**
+     * Counts an event of the series that happened at the given time, ignored when it is already
+     * outside of the window.
+     */
+    void add(long key, long timeMillis, long nowMillis) {
+
+        final long now = nowMillis / slotMillis;
+        final long slot = Math.min(now, timeMillis / slotMillis);
+
+        if (slot <= now - SLOTS)
+            return;
+
+        int index = index(key);
+
+        if (keys[index] == EMPTY) {
+            if ((size + 1) << 1 > keys.length) {
+                rehash(keys.length << 1, false);
+                index = index(key);
+            }
+            keys[index] = key;
+            lastSlot[index] = now;
+            size++;
+        } else {
+            advance(index, now);
+        }
+
+        counts[index * SLOTS + (int) Math.floorMod(slot, (long) SLOTS)]++;
+    }
+
+    /**
+     * @return the number of events of the series within the window
+     */
+    long sum(long key, long nowMillis) {
+
+        final int index = index(key);
+
+        if (keys[index] == EMPTY)
+            return 0L;
+
+        advance(index, nowMillis / slotMillis);
+
+        long sum = 0L;
+        for (int i = index * SLOTS; i < (index + 1) * SLOTS; i++)
+            sum += counts[i];
+        return sum;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Drops the series without any event left in the window.
+     */
+    void sweep(long nowMillis) {
+
+        final long now = nowMillis / slotMillis;
+        int live = 0;
+
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == EMPTY)
+                continue;
+            advance(i, now);
+            if (!isZero(i))
+                live++;
+        }
+
+        if (live < size)
+            rehash(Math.max(16, Integer.highestOneBit(Math.max(1, live) << 2)), true);
+    }
+
+    private boolean isZero(int index) {
+        for (int i = index * SLOTS; i < (index + 1) * SLOTS; i++) {
+            if (counts[i] != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Zeroes the slots the window moved past since the series last counted.
+     */
+    private void advance(int index, long now) {
+
+        final long last = lastSlot[index];
+
+        if (now <= last)
+            return;
+
+        final int base = index * SLOTS;
+
+        if (now - last >= SLOTS) {
+            Arrays.fill(counts, base, base + SLOTS, 0);
+        } else {
+            for (long s = last + 1; s <= now; s++)
+                counts[base + (int) Math.floorMod(s, (long) SLOTS)] = 0;
+        }
+
+        lastSlot[index] = now;
+    }
+
+    private int index(long key) {
+        final int mask = keys.length - 1;
+        int index = (int) key & mask;
+        while (keys[index] != EMPTY && keys[index] != key)
+            index = (index + 1) & mask;
+        return index;
+    }
+
+    /**
+     * Rebuilds the table with a new capacity, dropping the series without events when asked to.
+     */
+    private void rehash(int capacity, boolean dropEmpty) {
+        final long[] oldKeys = keys;
+        final long[] oldLast = lastSlot;
+        final int[] oldCounts = counts;
+
+        allocate(capacity);
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY)
+                continue;
+
+            boolean empty = dropEmpty;
+            for (int c = i * SLOTS; empty && c < (i + 1) * SLOTS; c++)
+                empty = oldCounts[c] == 0;
+            if (empty)
+                continue;
+
+            final int index = index(oldKeys[i]);
+            keys[index] = oldKeys[i];
+            lastSlot[index] = oldLast[i];
+            System.arraycopy(oldCounts, i * SLOTS, counts, index * SLOTS, SLOTS);
+            size++;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        lastSlot = new long[capacity];
+        counts = new int[capacity * SLOTS];
+    }
+}
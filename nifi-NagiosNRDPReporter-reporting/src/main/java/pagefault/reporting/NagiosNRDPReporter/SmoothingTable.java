@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.Arrays;
+
+/**
+ * Flap resistant threshold evaluation. Keeps the last samples of every (process group, metric)
+ * series and derives the state from an exponentially weighted moving average, a percentile of the
+ * window, or the number of samples in the window over the threshold, instead of the last sample alone.
+ *
+ * A series that is in a warning or critical state only recovers once its value falls below the
+ * threshold by the hysteresis margin, so a value hovering around a threshold does not flap either.
+ *
+ * Every series owns a fixed slice of a primitive array slab, so its memory is constant no matter
+ * how long it is tracked. Series are keyed and striped like the SuppressionTable.
+ */
+final class SmoothingTable {
+
+    enum Mode {
+        EWMA,
+        PERCENTILE,
+        N_OF_M
+    }
+
+    private static final long EMPTY = 0L;
+    private static final int STRIPES = 16;
+
+    private final Mode mode;
+    private final int window;
+    private final double weight;
+    private final double percentile;
+    private final int samplesOverThreshold;
+    private final double hysteresis;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param window number of samples kept per series
+     * @param weight weight of a new sample in the moving average, between 0 and 1
+     * @param percentile percentile of the window that is checked, between 0 and 1
+     * @param samplesOverThreshold number of samples of the window that must be over a threshold
+     * @param hysteresis fraction of a threshold a value must fall below it to recover
+     */
+    SmoothingTable(Mode mode, int window, double weight, double percentile, int samplesOverThreshold, double hysteresis) {
+        this.mode = mode;
+        this.window = window;
+        this.weight = weight;
+        this.percentile = percentile;
+        this.samplesOverThreshold = samplesOverThreshold;
+        this.hysteresis = hysteresis;
+
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe(64);
+    }
+
+    /**
+     * Adds the sample to the series and evaluates its state.
+     *
+     * @param key a key from {@link SuppressionTable#key(long, int)}
+     * @param nowMillis the time of the run, the same for every sample of a run
+     */
+    int state(long key, long value, long warning, long critical, long nowMillis) {
+        return stripes[(int) (key >>> 60)].state(key, value, warning, critical, nowMillis);
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    /**
+     * Drops the series that were not sampled in the run at the given time, when they make up most of a stripe.
+     */
+    void sweep(long nowMillis) {
+        for (Stripe stripe : stripes)
+            stripe.sweep(nowMillis);
+    }
+
+    private static int level(double value, double warning, double critical) {
+        if (value >= critical)
+            return MetricCheck.STATE_CRITICAL;
+        if (value >= warning)
+            return MetricCheck.STATE_WARNING;
+        return MetricCheck.STATE_OK;
+    }
+
+    private final class Stripe {
+
+        private long[] keys;
+        private long[] samples;
+        private int[] filled;
+        private int[] next;
+        private double[] averages;
+        private int[] states;
+        private long[] sampledMillis;
+        private int size = 0;
+
+        private final long[] sorted = new long[window];
+
+        Stripe(int capacity) {
+            allocate(capacity);
+        }
+
+        synchronized int state(long key, long value, long warning, long critical, long nowMillis) {
+
+            int slot = slot(key);
+
+            if (keys[slot] == EMPTY) {
+                if ((size + 1) << 1 > keys.length) {
+                    rehash(keys.length << 1, -1L);
+                    slot = slot(key);
+                }
+                keys[slot] = key;
+                averages[slot] = value;
+                size++;
+            } else {
+                averages[slot] += weight * (value - averages[slot]);
+            }
+
+            samples[slot * window + next[slot]] = value;
+            next[slot] = (next[slot] + 1) % window;
+            if (filled[slot] < window)
+                filled[slot]++;
+            sampledMillis[slot] = nowMillis;
+
+            // a series keeps its state until it falls below the threshold by the hysteresis margin
+            final int previous = states[slot];
+            final double criticalLevel = previous == MetricCheck.STATE_CRITICAL ? critical - Math.abs(critical) * hysteresis : critical;
+            final double warningLevel = previous != MetricCheck.STATE_OK ? warning - Math.abs(warning) * hysteresis : warning;
+
+            final int state;
+
+            switch (mode) {
+                case EWMA:
+                    state = level(averages[slot], warningLevel, criticalLevel);
+                    break;
+                case PERCENTILE:
+                    state = level(percentile(slot), warningLevel, criticalLevel);
+                    break;
+                default:
+                    state = samplesOver(slot, warningLevel, criticalLevel);
+            }
+
+            states[slot] = state;
+            return state;
+        }
+
+        private long percentile(int slot) {
+            final int count = filled[slot];
+            System.arraycopy(samples, slot * window, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            return sorted[Math.max(0, (int) Math.ceil(percentile * count) - 1)];
+        }
+
+        private int samplesOver(int slot, double warningLevel, double criticalLevel) {
+            final int base = slot * window;
+            final int count = filled[slot];
+            int overWarning = 0;
+            int overCritical = 0;
+
+            for (int i = 0; i < count; i++) {
+                final long sample = samples[base + i];
+                if (sample >= criticalLevel)
+                    overCritical++;
+                if (sample >= warningLevel)
+                    overWarning++;
+            }
+
+            if (overCritical >= samplesOverThreshold)
+                return MetricCheck.STATE_CRITICAL;
+            if (overWarning >= samplesOverThreshold)
+                return MetricCheck.STATE_WARNING;
+            return MetricCheck.STATE_OK;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void sweep(long nowMillis) {
+
+            int seen = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY && sampledMillis[i] == nowMillis)
+                    seen++;
+            }
+
+            if (seen << 1 < size)
+                rehash(Math.max(16, Integer.highestOneBit(Math.max(1, seen) << 2)), nowMillis);
+        }
+
+        private int slot(long key) {
+            final int mask = keys.length - 1;
+            int slot = (int) key & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        /**
+         * Rebuilds the stripe with a new capacity, keeping only the series sampled at the given time
+         * or every series when it is negative.
+         */
+        private void rehash(int capacity, long nowMillis) {
+            final long[] oldKeys = keys;
+            final long[] oldSamples = samples;
+            final int[] oldFilled = filled;
+            final int[] oldNext = next;
+            final double[] oldAverages = averages;
+            final int[] oldStates = states;
+            final long[] oldSampled = sampledMillis;
+
+            allocate(capacity);
+            size = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY || (nowMillis >= 0 && oldSampled[i] != nowMillis))
+                    continue;
+
+                final int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                System.arraycopy(oldSamples, i * window, samples, slot * window, window);
+                filled[slot] = oldFilled[i];
+                next[slot] = oldNext[i];
+                averages[slot] = oldAverages[i];
+                states[slot] = oldStates[i];
+                sampledMillis[slot] = oldSampled[i];
+                size++;
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            samples = new long[capacity * window];
+            filled = new int[capacity];
+            next = new int[capacity];
+            averages = new double[capacity];
+            states = new int[capacity];
+            sampledMillis = new long[capacity];
+        }
+    }
+}
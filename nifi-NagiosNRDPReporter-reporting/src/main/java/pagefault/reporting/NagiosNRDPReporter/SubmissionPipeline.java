@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded hand-off between onTrigger, which encodes submissions, and a fixed set of sender
+ * threads, which deliver them to NRDP. The reporting thread never blocks on the network:
+ * when the queue is full the overflow policy decides which submissions are discarded.
+ */
+final class SubmissionPipeline {
+
+    enum OverflowPolicy {
+        /** Discard the oldest queued submission to make room for the new one. */
+        DROP_OLDEST,
+        /** Discard every queued submission of an older run as soon as a newer run is enqueued. */
+        COALESCE_LATEST
+    }
+
+    interface Sender {
+        void send(Submission submission);
+
+        /**
+         * Called by a sender thread that found the queue empty for a second.
+         */
+        void idle();
+
+        /**
+         * Called for submissions discarded by the overflow policy or still queued on shutdown,
+         * never while the queue is locked.
+         *
+         * @param superseded true when a submission of a newer run replaced it, so it is not worth delivering later
+         */
+        void discard(Submission submission, boolean superseded);
+    }
+
+    static final class Submission {
+
+        private final byte[] body;
+        private final int checks;
+        private final long runId;
+        private final long createdMillis;
+
+        Submission(byte[] body, int checks, long runId, long createdMillis) {
+            this.body = body;
+            this.checks = checks;
+            this.runId = runId;
+            this.createdMillis = createdMillis;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        int getChecks() {
+            return checks;
+        }
+
+        long getRunId() {
+            return runId;
+        }
+
+        /**
+         * @return the time of the run that encoded the submission, the same for every submission of a run
+         */
+        long getCreatedMillis() {
+            return createdMillis;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionPipeline.class);
+
+    private final LinkedBlockingDeque<Submission> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final Sender sender;
+    private final ExecutorService senders;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    SubmissionPipeline(int capacity, int senderThreads, OverflowPolicy overflowPolicy, Sender sender, final String name) {
+        this.queue = new LinkedBlockingDeque<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.sender = sender;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + " NRDP Sender " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        for (int i = 0; i < senderThreads; i++) {
+            senders.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues a submission without blocking, applying the overflow policy when needed. The
+     * discarded submissions are handed to the sender after the queue is unlocked, so spooling
+     * them never holds up the sender threads.
+     */
+    void enqueue(Submission submission) {
+
+        List<Submission> superseded = null;
+        List<Submission> overflow = null;
+
+        synchronized (queue) {
+            if (overflowPolicy == OverflowPolicy.COALESCE_LATEST) {
+                for (Iterator<Submission> it = queue.iterator(); it.hasNext();) {
+                    final Submission queued = it.next();
+                    if (queued.getRunId() < submission.getRunId()) {
+                        it.remove();
+                        if (superseded == null)
+                            superseded = new ArrayList<>();
+                        superseded.add(queued);
+                    }
+                }
+            }
+
+            while (!queue.offerLast(submission)) {
+                final Submission oldest = queue.pollFirst();
+                if (oldest != null) {
+                    if (overflow == null)
+                        overflow = new ArrayList<>();
+                    overflow.add(oldest);
+                }
+            }
+        }
+
+        if (superseded != null) {
+            for (Submission discarded : superseded)
+                discard(discarded, true);
+        }
+
+        if (overflow != null) {
+            for (Submission discarded : overflow)
+                discard(discarded, false);
+        }
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of submissions discarded by the overflow policy since the last call
+     */
+    long getAndResetDropped() {
+        return dropped.getAndSet(0L);
+    }
+
+    void shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        senders.shutdownNow();
+
+        try {
+            senders.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int discarded = 0;
+        Submission submission;
+
+        while ((submission = queue.pollFirst()) != null) {
+            sender.discard(submission, false);
+            discarded++;
+        }
+
+        if (discarded > 0)
+            logger.warn("{} Discarded {} queued NRDP submissions on shutdown", this, discarded);
+    }
+
+    private void discard(Submission submission, boolean superseded) {
+        dropped.incrementAndGet();
+        sender.discard(submission, superseded);
+    }
+
+    private void drain() {
+        while (running) {
+            final Submission submission;
+
+            try {
+                submission = queue.pollFirst(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                if (submission == null)
+                    sender.idle();
+                else
+                    sender.send(submission);
+            } catch (RuntimeException e) {
+                logger.error("{} Error sending submission to NRDP: {}", this, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, segmented store-and-forward spool for submissions that could not be delivered.
+ *
+ * Records are appended to numbered segment files through a FileChannel and replayed in order.
+ * The read position is kept in a small cursor file so replay resumes after a restart. Segments
+ * that are fully replayed or older than the maximum age are deleted whole. Before a record is
+ * appended, the oldest segments are deleted until it fits, starting a new segment first when the
+ * one being written is the oldest left, so the files never take more than the maximum size.
+ */
+final class SubmissionSpool implements Closeable {
+
+    interface Replayer {
+        /**
+         * @return true when the submission was delivered and can be removed from the spool
+         */
+        boolean replay(SubmissionPipeline.Submission submission);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionSpool.class);
+
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CURSOR_FILE = "cursor";
+    private static final int HEADER_LENGTH = 4 + 8 + 4 + 4;
+    private static final int SEGMENTS = 8;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final long segmentBytes;
+    private final double replayPermitsPerSecond;
+    private final ReentrantLock replayLock = new ReentrantLock();
+
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    private final ByteBuffer cursor = ByteBuffer.allocate(16);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel writeChannel;
+    private long writeSegment;
+    private FileChannel readChannel;
+    private long readSegment = -1L;
+    private long readPosition = 0L;
+    private long totalBytes = 0L;
+
+    private long peekSegment = -1L;
+    private long peekPosition = -1L;
+    private long peekNextPosition = -1L;
+
+    private long supersededBefore = Long.MIN_VALUE;
+    private long superseded = 0L;
+
+    private double replayPermits = 0.0;
+    private long lastRefillNanos = System.nanoTime();
+
+    SubmissionSpool(Path directory, long maxBytes, long maxAgeMillis, double replayPermitsPerSecond) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.segmentBytes = Math.max(1L, maxBytes / SEGMENTS);
+        this.replayPermitsPerSecond = replayPermitsPerSecond;
+
+        Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                String name = segment.getFileName().toString();
+                try {
+                    long sequence = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    long size = Files.size(segment);
+                    segments.put(sequence, size);
+                    totalBytes += size;
+                } catch (NumberFormatException e) {
+                    logger.warn("{} Ignoring unexpected file {} in spool directory", this, segment);
+                }
+            }
+        }
+
+        readCursor();
+
+        writeSegment = segments.isEmpty() ? 0L : segments.lastKey() + 1;
+        openWriteSegment();
+
+        if (totalBytes > 0)
+            logger.info("{} Opened NRDP spool {} holding {} bytes in {} segments", this, directory, totalBytes, segments.size());
+    }
+
+    /**
+     * @throws IOException when the spool is closed, the record is larger than the maximum size or writing fails
+     */
+    synchronized void append(byte[] body, int length, int checks, long createdMillis) throws IOException {
+
+        if (writeChannel == null)
+            throw new IOException("Spool is closed");
+
+        final long recordLength = HEADER_LENGTH + length;
+
+        if (recordLength > maxBytes)
+            throw new IOException("Submission of " + recordLength + " bytes is larger than the spool maximum of " + maxBytes + " bytes");
+
+        if (writeChannel.position() > 0 && writeChannel.position() + recordLength > segmentBytes)
+            rollWriteSegment();
+
+        enforceLimits(recordLength);
+
+        crc.reset();
+        crc.update(body, 0, length);
+
+        header.clear();
+        header.putInt(length).putLong(createdMillis).putInt(checks).putInt((int) crc.getValue());
+        header.flip();
+
+        final ByteBuffer[] record = new ByteBuffer[] {header, ByteBuffer.wrap(body, 0, length)};
+        while (record[1].hasRemaining())
+            writeChannel.write(record);
+
+        segments.put(writeSegment, segments.get(writeSegment) + recordLength);
+        totalBytes += recordLength;
+    }
+
+    synchronized boolean isEmpty() {
+        return totalBytes == 0L || (segments.size() == 1 && readSegment == writeSegment && readPosition >= segments.get(writeSegment));
+    }
+
+    /**
+     * @return the disk space taken by the segment files, including replayed records of segments not deleted yet
+     */
+    synchronized long getSizeBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Marks every spooled submission created before the given time as superseded, a newer one was
+     * delivered in its place. Superseded submissions are skipped instead of replayed.
+     */
+    synchronized void supersede(long createdMillis) {
+        supersededBefore = Math.max(supersededBefore, createdMillis);
+    }
+
+    /**
+     * @return the number of superseded submissions skipped since the previous call
+     */
+    synchronized long getAndResetSuperseded() {
+        final long count = superseded;
+        superseded = 0L;
+        return count;
+    }
+
+    /**
+     * Replays spooled submissions in order, as long as the rate limit permits and the replayer
+     * keeps succeeding. Only one thread replays at a time, other callers return immediately.
+     *
+     * The permits are taken when the call starts, so a call replays at most the permits available
+     * then, however long each post takes. Permits that are not used are given back.
+     *
+     * @return the number of submissions delivered
+     */
+    int replay(Replayer replayer) {
+
+        if (!replayLock.tryLock())
+            return 0;
+
+        final int permits = acquireReplayPermits();
+        int replayed = 0;
+
+        try {
+            while (replayed < permits) {
+                final SubmissionPipeline.Submission submission = peek();
+
+                if (submission == null || !replayer.replay(submission))
+                    break;
+
+                remove();
+                replayed++;
+            }
+
+            return replayed;
+        } catch (IOException e) {
+            logger.error("{} Error reading NRDP spool: {}", this, e);
+            return replayed;
+        } finally {
+            releaseReplayPermits(permits - replayed);
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * @return the whole number of permits available, which are taken
+     */
+    private synchronized int acquireReplayPermits() {
+        final long now = System.nanoTime();
+        replayPermits = Math.min(Math.max(1.0, replayPermitsPerSecond),
+            replayPermits + (now - lastRefillNanos) * replayPermitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+
+        final int permits = (int) replayPermits;
+        replayPermits -= permits;
+        return permits;
+    }
+
+    private synchronized void releaseReplayPermits(int permits) {
+        replayPermits += permits;
+    }
+
+    synchronized SubmissionPipeline.Submission peek() throws IOException {
+
+        final long oldestAllowed = System.currentTimeMillis() - maxAgeMillis;
+
+        while (readSegment >= 0) {
+
+            if (readChannel == null)
+                readChannel = FileChannel.open(segmentPath(readSegment), StandardOpenOption.READ);
+
+            header.clear();
+            int read = readFully(readChannel, header, readPosition);
+
+            if (read < HEADER_LENGTH) {
+                if (readSegment == writeSegment) {
+                    discardDrainedWriteSegment();
+                    return null;
+                }
+                nextReadSegment(true);
+                continue;
+            }
+
+            header.flip();
+            final int length = header.getInt();
+            final long createdMillis = header.getLong();
+            final int checks = header.getInt();
+            final int checksum = header.getInt();
+
+            if (length < 0 || readPosition + HEADER_LENGTH + length > readChannel.size()) {
+                if (readSegment == writeSegment)
+                    return null;
+                logger.warn("{} Skipping truncated record in NRDP spool segment {}", this, readSegment);
+                nextReadSegment(true);
+                continue;
+            }
+
+            final ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(readChannel, body, readPosition + HEADER_LENGTH);
+
+            crc.reset();
+            crc.update(body.array(), 0, length);
+
+            final long nextPosition = readPosition + HEADER_LENGTH + length;
+
+            if ((int) crc.getValue() != checksum) {
+                logger.warn("{} Skipping corrupt record in NRDP spool segment {}", this, readSegment);
+                readPosition = nextPosition;
+                continue;
+            }
+
+            if (createdMillis < oldestAllowed || createdMillis < supersededBefore) {
+                if (createdMillis >= oldestAllowed)
+                    superseded++;
+                readPosition = nextPosition;
+                continue;
+            }
+
+            peekSegment = readSegment;
+            peekPosition = readPosition;
+            peekNextPosition = nextPosition;
+
+            return new SubmissionPipeline.Submission(body.array(), checks, 0L, createdMillis);
+        }
+
+        return null;
+    }
+
+    synchronized void remove() throws IOException {
+
+        // the segment may have been evicted while the record was being replayed
+        if (peekSegment != readSegment || peekPosition != readPosition)
+            return;
+
+        readPosition = peekNextPosition;
+        peekSegment = -1L;
+
+        if (readSegment != writeSegment && readChannel != null && readPosition >= readChannel.size())
+            nextReadSegment(true);
+        else if (readSegment == writeSegment && readPosition >= segments.get(writeSegment))
+            discardDrainedWriteSegment();
+        else
+            writeCursor();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writeCursor();
+        } catch (IOException e) {
+            logger.warn("{} Unable to save NRDP spool cursor: {}", this, e);
+        }
+
+        closeQuietly(readChannel);
+        closeQuietly(writeChannel);
+        readChannel = null;
+        writeChannel = null;
+    }
+
+    /**
+     * Deletes expired segments, and the oldest segments until a record of the given length fits.
+     */
+    private void enforceLimits(long recordLength) throws IOException {
+
+        final long oldestAllowed = System.currentTimeMillis() - maxAgeMillis;
+
+        while (!segments.isEmpty()) {
+            final long oldest = segments.firstKey();
+            final boolean expired = oldest != writeSegment && Files.getLastModifiedTime(segmentPath(oldest)).toMillis() < oldestAllowed;
+
+            if (!expired && totalBytes + recordLength <= maxBytes)
+                break;
+
+            if (!expired)
+                logger.warn("{} NRDP spool is full, discarding oldest segment {}", this, oldest);
+
+            if (oldest == writeSegment)
+                rollWriteSegment();
+
+            deleteSegment(oldest);
+        }
+    }
+
+    /**
+     * Once everything written has been replayed, starts over with an empty segment so the replayed
+     * records stop taking up disk space.
+     */
+    private void discardDrainedWriteSegment() throws IOException {
+
+        if (readPosition == 0L)
+            return;
+
+        final long drained = writeSegment;
+        rollWriteSegment();
+        deleteSegment(drained);
+    }
+
+    private void rollWriteSegment() throws IOException {
+        writeChannel.close();
+        writeSegment++;
+        openWriteSegment();
+    }
+
+    private void deleteSegment(long sequence) throws IOException {
+
+        if (sequence == readSegment)
+            nextReadSegment(false);
+
+        final Long size = segments.remove(sequence);
+        if (size != null)
+            totalBytes -= size;
+
+        Files.deleteIfExists(segmentPath(sequence));
+    }
+
+    private void nextReadSegment(boolean deleteCurrent) throws IOException {
+
+        closeQuietly(readChannel);
+        readChannel = null;
+
+        final long current = readSegment;
+        final Long next = segments.higherKey(current);
+
+        readSegment = next == null ? writeSegment : next;
+        readPosition = 0L;
+
+        if (deleteCurrent && current != writeSegment) {
+            final Long size = segments.remove(current);
+            if (size != null)
+                totalBytes -= size;
+            Files.deleteIfExists(segmentPath(current));
+        }
+
+        writeCursor();
+    }
+
+    private void openWriteSegment() throws IOException {
+        writeChannel = FileChannel.open(segmentPath(writeSegment),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.put(writeSegment, writeChannel.size());
+
+        if (readSegment < 0)
+            readSegment = writeSegment;
+    }
+
+    private void readCursor() throws IOException {
+
+        readSegment = segments.isEmpty() ? -1L : segments.firstKey();
+        readPosition = 0L;
+
+        final Path cursorPath = directory.resolve(CURSOR_FILE);
+        if (!Files.exists(cursorPath))
+            return;
+
+        try (FileChannel channel = FileChannel.open(cursorPath, StandardOpenOption.READ)) {
+            cursor.clear();
+            if (readFully(channel, cursor, 0L) == cursor.capacity()) {
+                cursor.flip();
+                final long segment = cursor.getLong();
+                final long position = cursor.getLong();
+
+                if (segments.containsKey(segment) && position <= segments.get(segment)) {
+                    for (Map.Entry<Long, Long> entry : segments.headMap(segment).entrySet()) {
+                        totalBytes -= entry.getValue();
+                        Files.deleteIfExists(segmentPath(entry.getKey()));
+                    }
+                    segments.headMap(segment).clear();
+                    readSegment = segment;
+                    readPosition = position;
+                }
+            }
+        }
+    }
+
+    private void writeCursor() throws IOException {
+        cursor.clear();
+        cursor.putLong(readSegment).putLong(readPosition);
+        cursor.flip();
+
+        try (FileChannel channel = FileChannel.open(directory.resolve(CURSOR_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            while (cursor.hasRemaining())
+                channel.write(cursor, cursor.position());
+        }
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format(Locale.ROOT, "%020d%s", sequence, SEGMENT_SUFFIX));
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0)
+                break;
+            total += read;
+        }
+        return total;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null)
+            return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("Error closing spool file: {}", e);
+        }
+    }
+}
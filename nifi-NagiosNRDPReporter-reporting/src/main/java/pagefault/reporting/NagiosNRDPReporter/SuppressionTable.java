@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+/**
+ * Remembers the last state and value sent to Nagios for every (process group, metric) series and
+ * decides whether a new result needs to be sent: on a state change, when the value moved by more
+ * than the relative delta, or when the heartbeat interval of the series expired.
+ *
+ * A result counts as sent once it is encoded. When its submission is lost instead of delivered or
+ * spooled, the results recorded in that run are rolled back, so the next run sends them again.
+ *
+ * Series are keyed by a 64 bit hash and stored in open addressing tables of primitive arrays.
+ * The table is split into independently locked stripes so process groups can be evaluated in parallel.
+ */
+final class SuppressionTable {
+
+    private static final long EMPTY = 0L;
+    private static final int UNSENT = -1;
+    private static final int STRIPES = 16;
+
+    private final double relativeDelta;
+    private final long heartbeatMillis;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private volatile long run = 0L;
+
+    SuppressionTable(double relativeDelta, long heartbeatMillis) {
+        this(relativeDelta, heartbeatMillis, 1024);
+    }
+
+    SuppressionTable(double relativeDelta, long heartbeatMillis, int initialCapacity) {
+        this.relativeDelta = relativeDelta;
+        this.heartbeatMillis = heartbeatMillis;
+
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe(Integer.highestOneBit(Math.max(16, initialCapacity / STRIPES - 1) << 1));
+    }
+
+    static long hash(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            h ^= id.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    static long key(long groupHash, int metricId) {
+        long k = mix(groupHash + 0x9E3779B97F4A7C15L * (metricId + 1));
+        return k == EMPTY ? 1L : k;
+    }
+
+    /**
+     * Starts a new reporting run, series that are not seen for a whole run are dropped eventually.
+     *
+     * @param run the id of the run, increasing from run to run
+     */
+    void beginRun(long run) {
+        this.run = run;
+    }
+
+    /**
+     * @return true when the result must be sent, in which case it is recorded as the last sent result
+     */
+    boolean shouldSend(long key, int state, long value, long nowMillis) {
+        final long heartbeat = heartbeatMillis - (heartbeatMillis / 10) * (key & 0xFF) / 0xFF;
+        return stripes[(int) (key >>> 60)].shouldSend(key, state, value, nowMillis, heartbeat, run);
+    }
+
+    /**
+     * Forgets the results recorded as sent in the given run, so they are sent again by the next run.
+     */
+    void rollback(long run) {
+        for (Stripe stripe : stripes)
+            stripe.rollback(run);
+    }
+
+    /**
+     * Forgets every result recorded as sent, so the next run sends them all again.
+     */
+    void rollbackAll() {
+        for (Stripe stripe : stripes)
+            stripe.rollback(-1L);
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    /**
+     * Drops the series that were not seen during the current run, when they make up most of a stripe.
+     */
+    void sweep() {
+        for (Stripe stripe : stripes)
+            stripe.sweep(run);
+    }
+
+    private final class Stripe {
+
+        private long[] keys;
+        private long[] values;
+        private long[] sentMillis;
+        private int[] states;
+        private long[] seenRun;
+        private long[] sentRun;
+        private int size = 0;
+
+        Stripe(int capacity) {
+            allocate(capacity);
+        }
+
+        synchronized boolean shouldSend(long key, int state, long value, long nowMillis, long heartbeat, long run) {
+
+            int slot = slot(key);
+
+            if (keys[slot] == EMPTY) {
+                if ((size + 1) << 1 > keys.length) {
+                    rehash(keys.length << 1, -1L);
+                    slot = slot(key);
+                }
+                keys[slot] = key;
+                size++;
+                record(slot, state, value, nowMillis, run);
+                return true;
+            }
+
+            seenRun[slot] = run;
+
+            final long lastValue = values[slot];
+
+            if (states[slot] != state
+                    || Math.abs((double) value - lastValue) > relativeDelta * Math.max(1.0, Math.abs((double) lastValue))
+                    || nowMillis - sentMillis[slot] >= heartbeat) {
+                record(slot, state, value, nowMillis, run);
+                return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Rolls back the results sent in the given run, or every result when run is negative.
+         */
+        synchronized void rollback(long run) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY && (run < 0 || sentRun[i] == run))
+                    states[i] = UNSENT;
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void sweep(long run) {
+
+            int seen = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY && seenRun[i] == run)
+                    seen++;
+            }
+
+            if (seen << 1 < size)
+                rehash(Math.max(16, Integer.highestOneBit(Math.max(1, seen) << 2)), run);
+        }
+
+        private void record(int slot, int state, long value, long nowMillis, long run) {
+            states[slot] = state;
+            values[slot] = value;
+            sentMillis[slot] = nowMillis;
+            seenRun[slot] = run;
+            sentRun[slot] = run;
+        }
+
+        private int slot(long key) {
+            final int mask = keys.length - 1;
+            int slot = (int) key & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        /**
+         * Rebuilds the stripe with a new capacity, keeping only the series seen in the given run
+         * or every series when run is negative.
+         */
+        private void rehash(int capacity, long run) {
+            final long[] oldKeys = keys;
+            final long[] oldValues = values;
+            final long[] oldSent = sentMillis;
+            final int[] oldStates = states;
+            final long[] oldSeen = seenRun;
+            final long[] oldSentRun = sentRun;
+
+            allocate(capacity);
+            size = 0;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY || (run >= 0 && oldSeen[i] != run))
+                    continue;
+
+                final int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                states[slot] = oldStates[i];
+                values[slot] = oldValues[i];
+                sentMillis[slot] = oldSent[i];
+                seenRun[slot] = oldSeen[i];
+                sentRun[slot] = oldSentRun[i];
+                size++;
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new long[capacity];
+            sentMillis = new long[capacity];
+            states = new int[capacity];
+            seenRun = new long[capacity];
+            sentRun = new long[capacity];
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9a53e3fd3e5L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the items with the highest scores out of a stream, in a bounded min-heap, so selecting
+ * the k largest of n items costs O(n log k) time and O(k) space.
+ */
+final class TopN<T> {
+
+    private final int limit;
+
+    private long[] scores;
+    private Object[] items;
+    private int size = 0;
+    private boolean sorted = false;
+
+    /**
+     * @param limit maximum number of items kept, 0 keeps every item
+     */
+    TopN(int limit) {
+        this.limit = limit > 0 ? limit : Integer.MAX_VALUE;
+
+        final int capacity = limit > 0 ? Math.min(limit, 1024) : 64;
+        this.scores = new long[capacity];
+        this.items = new Object[capacity];
+    }
+
+    void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        sorted = false;
+    }
+
+    /**
+     * @return true when an item with this score would be kept, so callers can skip building items that would not
+     */
+    boolean accepts(long score) {
+        return size < limit || score > scores[0];
+    }
+
+    void offer(long score, T item) {
+
+        if (size < limit) {
+            if (size == scores.length) {
+                final int capacity = (int) Math.min(limit, (long) size << 1);
+                scores = Arrays.copyOf(scores, capacity);
+                items = Arrays.copyOf(items, capacity);
+            }
+            scores[size] = score;
+            items[size] = item;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            scores[0] = score;
+            items[0] = item;
+            siftDown(0, size);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Orders the kept items by descending score. No items may be offered afterwards until the next clear.
+     */
+    void sortDescending() {
+        // heap sort on the min-heap moves the smallest scores to the back
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        sorted = true;
+    }
+
+    long score(int i) {
+        return scores[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    T item(int i) {
+        if (!sorted)
+            throw new IllegalStateException("Items must be sorted before they are read");
+        return (T) items[i];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i])
+                return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            final int left = (i << 1) + 1;
+            if (left >= end)
+                return;
+            final int right = left + 1;
+            final int smallest = right < end && scores[right] < scores[left] ? right : left;
+            if (scores[i] <= scores[smallest])
+                return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        final long score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+
+        final Object item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+    }
+}
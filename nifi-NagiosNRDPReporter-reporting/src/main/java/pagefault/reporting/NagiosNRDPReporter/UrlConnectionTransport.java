@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Transport based on the JDK HttpURLConnection. Connection reuse relies on the JDK keep-alive
+ * cache, which is only possible because both the response and the error streams are drained.
+ */
+final class UrlConnectionTransport implements NrdpTransport {
+
+    private final URL url;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    UrlConnectionTransport(String url, int connectTimeoutMillis, int readTimeoutMillis) throws IOException {
+        this.url = new URL(url);
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public void post(byte[] body, int length, String contentEncoding, ResponseHandler handler) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(length);
+        connection.setRequestProperty("Accept-Charset", "UTF-8");
+        connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+        if (contentEncoding != null)
+            connection.setRequestProperty("Content-Encoding", contentEncoding);
+
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body, 0, length);
+        }
+
+        final int statusCode = connection.getResponseCode();
+        InputStream response = statusCode < 400 ? connection.getInputStream() : connection.getErrorStream();
+
+        if (response == null)
+            response = new ByteArrayInputStream(new byte[0]);
+
+        try (InputStream in = response) {
+            // parsers close the stream they are given, keep it open so the remainder can be drained
+            handler.handle(statusCode, new FilterInputStream(in) {
+                @Override
+                public void close() {
+                }
+            });
+            drain(in);
+        }
+    }
+
+    static void drain(InputStream in) throws IOException {
+        final byte[] skip = new byte[1024];
+        while (in.read(skip) >= 0) {
+            // discard the remainder so the connection can be kept alive
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
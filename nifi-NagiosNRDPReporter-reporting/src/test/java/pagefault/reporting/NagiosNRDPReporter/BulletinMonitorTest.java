@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.group;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.reporting.Bulletin;
+import org.apache.nifi.reporting.BulletinQuery;
+import org.apache.nifi.util.MockBulletinRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulletinMonitorTest {
+
+    private static final long WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private final Repository repository = new Repository();
+    private final FlowIndex index = new FlowIndex();
+    private final BulletinMonitor monitor = new BulletinMonitor(MetricCheck.Mode.ALERTING, WINDOW_MILLIS, "10 mins", 1L, 3L);
+    private final long now = System.currentTimeMillis();
+
+    private List<ProcessGroupStatus> groups;
+
+    @Before
+    public void setUp() {
+        index.clear(true);
+        groups = ProcessGroupTraversal.flatten(group("root", group("ingest", group("kafka")), group("archive")), GroupFilter.ALL, index);
+    }
+
+    @Test
+    public void testCountsTheBulletinsTowardsTheGroupsAbove() {
+        repository.add("kafka", "ERROR");
+        repository.add("kafka", "ERROR");
+        repository.add("ingest", "WARNING");
+        repository.add("root", "INFO");
+
+        final Map<String, NagiosNRDPReporter.nagiosResult> results = report(now);
+
+        assertEquals(3, results.size());
+        assertResult(results, "root", MetricCheck.STATE_WARNING, 2, 1);
+        assertResult(results, "ingest", MetricCheck.STATE_WARNING, 2, 1);
+        assertResult(results, "kafka", MetricCheck.STATE_WARNING, 2, 0);
+    }
+
+    @Test
+    public void testAlertsOnTheErrorsInTheWindow() {
+        for (int i = 0; i < 3; i++)
+            repository.add("archive", "ERROR");
+
+        assertEquals(MetricCheck.STATE_CRITICAL, report(now).get("archive").getState());
+
+        final NagiosNRDPReporter.nagiosResult archive = report(now).get("archive");
+        assertEquals(MetricCheck.STATE_CRITICAL, archive.getState());
+        assertTrue(archive.getPerformance(), archive.getPerformance().startsWith("error_bulletins=3 warning_bulletins=0 "));
+    }
+
+    @Test
+    public void testSkipsRunsWithoutBulletins() {
+        assertEquals(0, report(now).size());
+        assertEquals(1, repository.queries);
+    }
+
+    @Test
+    public void testReportsOnceMoreWhenTheLastBulletinExpired() {
+        repository.add("archive", "ERROR");
+
+        assertEquals(2, report(now).size());
+        assertEquals(2, report(now + WINDOW_MILLIS / 2).size());
+
+        // the service recovers with a last OK result, then the group is no longer reported
+        final Map<String, NagiosNRDPReporter.nagiosResult> recovered = report(now + WINDOW_MILLIS + TimeUnit.MINUTES.toMillis(1));
+        assertEquals(2, recovered.size());
+        assertResult(recovered, "archive", MetricCheck.STATE_OK, 0, 0);
+        assertResult(recovered, "root", MetricCheck.STATE_OK, 0, 0);
+
+        assertEquals(0, report(now + WINDOW_MILLIS + TimeUnit.MINUTES.toMillis(2)).size());
+    }
+
+    @Test
+    public void testQueriesOnlyTheBulletinsAfterTheLastOneSeen() {
+        repository.add("archive", "ERROR");
+        report(now);
+
+        repository.add("archive", "ERROR");
+        assertResult(report(now), "archive", MetricCheck.STATE_WARNING, 2, 0);
+        assertResult(report(now), "archive", MetricCheck.STATE_WARNING, 2, 0);
+    }
+
+    private Map<String, NagiosNRDPReporter.nagiosResult> report(long nowMillis) {
+        final Map<String, NagiosNRDPReporter.nagiosResult> results = new LinkedHashMap<>();
+
+        final int reported = monitor.report(repository, index, groups, new CheckResultSink() {
+            @Override
+            public void accept(String servicename, NagiosNRDPReporter.nagiosResult result) {
+                results.put(servicename.substring(0, servicename.length() - BulletinMonitor.SERVICE_SUFFIX.length()), result);
+            }
+        }, nowMillis);
+
+        assertEquals(results.size(), reported);
+        return results;
+    }
+
+    private static void assertResult(Map<String, NagiosNRDPReporter.nagiosResult> results, String group, int state, long errors, long warnings) {
+        final NagiosNRDPReporter.nagiosResult result = results.get(group);
+        assertEquals(state, result.getState());
+        assertTrue(result.getPerformance(), result.getPerformance().startsWith("error_bulletins=" + errors + " warning_bulletins=" + warnings + " "));
+    }
+
+    /**
+     * Answers bulletin queries by id like the NiFi repository, which ignores any order.
+     */
+    private static final class Repository extends MockBulletinRepository {
+
+        private final List<Bulletin> bulletins = new ArrayList<>();
+        private int queries = 0;
+
+        void add(String groupId, String level) {
+            final Bulletin bulletin = new Bulletin(bulletins.size()) {
+            };
+            bulletin.setGroupId(groupId);
+            bulletin.setLevel(level);
+            bulletins.add(0, bulletin);
+        }
+
+        @Override
+        public List<Bulletin> findBulletins(BulletinQuery query) {
+            queries++;
+
+            final List<Bulletin> found = new ArrayList<>();
+            for (Bulletin bulletin : bulletins) {
+                if (query.getAfter() == null || bulletin.getId() > query.getAfter())
+                    found.add(bulletin);
+            }
+            return found;
+        }
+    }
+}
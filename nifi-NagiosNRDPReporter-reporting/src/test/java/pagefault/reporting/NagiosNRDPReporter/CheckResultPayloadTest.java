@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class CheckResultPayloadTest {
+
+    @Test
+    public void testEscapesXml() throws Exception {
+        final CheckResultPayload payload = new CheckResultPayload(16);
+        payload.begin("s3cret&=", CheckResultPayload.Format.XML);
+        payload.addCheckResult("Route & Filter <geo> - \"NiFi\" 'Queue'", "host", 2, "CRITICAL: Zürich 😀", "count=1");
+        payload.end();
+
+        assertEquals(1, payload.getChecks());
+        assertEquals("token=s3cret&=&cmd=submitcheck&XMLDATA=<?xml version=\"1.0\" encoding=\"UTF-8\"?><checkresults>"
+            + "<checkresult checktype=\"1\" type=\"service\"><servicename>Route &amp; Filter &lt;geo&gt; - &quot;NiFi&quot; &apos;Queue&apos;</servicename>"
+            + "<hostname>host</hostname><state>2</state><output>CRITICAL: Zürich 😀 | count=1</output></checkresult></checkresults>",
+            decode(payload));
+    }
+
+    @Test
+    public void testEscapesJson() throws Exception {
+        final CheckResultPayload payload = new CheckResultPayload();
+        payload.begin("token", CheckResultPayload.Format.JSON);
+        payload.addCheckResult("a \"quoted\" \\ name", "host", 0, "line\nbreak\ttab\u0001", null);
+        payload.addCheckResult("second", "host", 12, "OK", "value=1");
+        payload.end();
+
+        assertEquals(2, payload.getChecks());
+        assertEquals("token=token&cmd=submitcheck&JSONDATA={\"checkresults\":["
+            + "{\"checkresult\":{\"type\":\"service\",\"checktype\":\"1\"},\"servicename\":\"a \\\"quoted\\\" \\\\ name\","
+            + "\"hostname\":\"host\",\"state\":\"0\",\"output\":\"line\\nbreak\\ttab\\u0001\"},"
+            + "{\"checkresult\":{\"type\":\"service\",\"checktype\":\"1\"},\"servicename\":\"second\","
+            + "\"hostname\":\"host\",\"state\":\"12\",\"output\":\"OK | value=1\"}]}",
+            decode(payload));
+    }
+
+    @Test
+    public void testReplacesUnpairedSurrogates() throws Exception {
+        final CheckResultPayload payload = new CheckResultPayload();
+        payload.begin("token", CheckResultPayload.Format.XML);
+        payload.addCheckResult("broken \uD83D", "host", 0, "OK", null);
+        payload.end();
+
+        assertTrue(decode(payload).contains("<servicename>broken ?</servicename>"));
+    }
+
+    @Test
+    public void testWithTokenReplacesOnlyTheToken() throws Exception {
+        final CheckResultPayload payload = new CheckResultPayload();
+        payload.begin("first", CheckResultPayload.Format.XML);
+        payload.addCheckResult("service", "host", 1, "token=first", null);
+        payload.end();
+
+        final byte[] body = Arrays.copyOf(payload.buffer(), payload.length() + 10);
+        final byte[] replaced = CheckResultPayload.withToken(body, payload.length(), "sécond & more");
+
+        assertEquals(decode(payload).replaceFirst("^token=first", "token=sécond & more"), decode(replaced, replaced.length));
+    }
+
+    @Test
+    public void testWithTokenOfEmptyToken() throws Exception {
+        final CheckResultPayload payload = new CheckResultPayload();
+        payload.begin("", CheckResultPayload.Format.JSON);
+        payload.end();
+
+        final byte[] replaced = CheckResultPayload.withToken(payload.buffer(), payload.length(), "new");
+
+        assertEquals("token=new&cmd=submitcheck&JSONDATA={\"checkresults\":[]}", decode(replaced, replaced.length));
+    }
+
+    private static String decode(CheckResultPayload payload) throws UnsupportedEncodingException {
+        return decode(payload.buffer(), payload.length());
+    }
+
+    /**
+     * Decodes the form parameters separately, so the ampersands separating them stay intact.
+     */
+    private static String decode(byte[] body, int length) throws UnsupportedEncodingException {
+        final StringBuilder decoded = new StringBuilder();
+        for (final String parameter : new String(body, 0, length, StandardCharsets.US_ASCII).split("&")) {
+            if (decoded.length() > 0)
+                decoded.append('&');
+            final int equals = parameter.indexOf('=');
+            decoded.append(parameter, 0, equals + 1).append(URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+        }
+        return decoded.toString();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+    private static final long BACKOFF = 1000L;
+    private static final long MAX_BACKOFF = 4000L;
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        final CircuitBreaker breaker = new CircuitBreaker(3, BACKOFF, MAX_BACKOFF);
+
+        assertTrue(breaker.tryAcquire(0L));
+        assertNull(breaker.onFailure(0L));
+        assertNull(breaker.onFailure(0L));
+        assertNull(breaker.onSuccess());
+        assertNull(breaker.onFailure(0L));
+        assertNull(breaker.onFailure(0L));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.onFailure(0L));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testRejectsWhileOpenAndProbesOnce() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, BACKOFF, MAX_BACKOFF);
+        breaker.onFailure(0L);
+
+        // jittered between half and all of the backoff
+        assertFalse(breaker.tryAcquire(BACKOFF / 2 - 1));
+        assertTrue(breaker.remainingOpenNanos(0L) >= BACKOFF / 2);
+        assertTrue(breaker.remainingOpenNanos(0L) <= BACKOFF);
+        assertEquals(1L, breaker.getAndResetRejected());
+        assertEquals(0L, breaker.getAndResetRejected());
+
+        assertTrue(breaker.tryAcquire(BACKOFF));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire(BACKOFF));
+        assertEquals(0L, breaker.remainingOpenNanos(BACKOFF));
+    }
+
+    @Test
+    public void testSuccessfulProbeCloses() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, BACKOFF, MAX_BACKOFF);
+        breaker.onFailure(0L);
+
+        assertTrue(breaker.tryAcquire(BACKOFF));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.onSuccess());
+        assertTrue(breaker.tryAcquire(BACKOFF));
+        assertTrue(breaker.tryAcquire(BACKOFF));
+    }
+
+    @Test
+    public void testFailedProbeDoublesTheBackoffUpToTheMaximum() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, BACKOFF, MAX_BACKOFF);
+        breaker.onFailure(0L);
+
+        long now = 0L;
+        for (long expected = BACKOFF * 2; expected <= MAX_BACKOFF * 2; expected <<= 1) {
+            now += MAX_BACKOFF;
+            assertTrue(breaker.tryAcquire(now));
+            assertEquals(CircuitBreaker.State.OPEN, breaker.onFailure(now));
+
+            final long backoff = Math.min(MAX_BACKOFF, expected);
+            assertTrue(breaker.remainingOpenNanos(now) >= backoff / 2);
+            assertTrue(breaker.remainingOpenNanos(now) <= backoff);
+        }
+    }
+
+    @Test
+    public void testSuccessResetsTheBackoff() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, BACKOFF, MAX_BACKOFF);
+        breaker.onFailure(0L);
+        assertTrue(breaker.tryAcquire(BACKOFF));
+        breaker.onFailure(BACKOFF);
+        assertTrue(breaker.tryAcquire(BACKOFF * 3));
+        breaker.onSuccess();
+
+        breaker.onFailure(BACKOFF * 3);
+        assertTrue(breaker.remainingOpenNanos(BACKOFF * 3) <= BACKOFF);
+    }
+
+    @Test
+    public void testLostProbeIsRetriedAfterTheMaximumBackoff() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, BACKOFF, MAX_BACKOFF);
+        breaker.onFailure(0L);
+
+        assertTrue(breaker.tryAcquire(BACKOFF));
+        assertFalse(breaker.tryAcquire(BACKOFF + MAX_BACKOFF - 1));
+        assertTrue(breaker.tryAcquire(BACKOFF + MAX_BACKOFF));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+}
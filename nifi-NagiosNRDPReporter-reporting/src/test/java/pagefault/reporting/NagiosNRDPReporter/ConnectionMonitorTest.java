@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.group;
+
+import java.util.Arrays;
+
+import org.apache.nifi.controller.status.ConnectionStatus;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.junit.Test;
+
+public class ConnectionMonitorTest {
+
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    public void testMeasuresTheFullerOfBothThresholds() {
+        final ConnectionMonitor monitor = new ConnectionMonitor(MetricCheck.Mode.ALERTING, 80L, 95L, 0);
+
+        assertEquals(5000L, monitor.fillBasisPoints(connection("a", 5000, 0L, 10000L, "1 GB")));
+        assertEquals(9000L, monitor.fillBasisPoints(connection("b", 5000, 966367642L, 10000L, "1 GB")));
+        assertEquals(2500L, monitor.fillBasisPoints(connection("c", 0, 256L, 0L, "1 KB")));
+        assertEquals(0L, monitor.fillBasisPoints(connection("d", 5000, 5000L, 0L, null)));
+        assertEquals(0L, monitor.fillBasisPoints(connection("e", 5000, 5000L, 0L, "lots")));
+    }
+
+    @Test
+    public void testReportsTheFullestConnections() {
+        final ConnectionMonitor monitor = new ConnectionMonitor(MetricCheck.Mode.ALERTING, 80L, 95L, 2);
+
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getConnectionStatus().add(connection("low", 100, 0L, 10000L, null));
+        ingest.getConnectionStatus().add(connection("full", 9600, 0L, 10000L, null));
+        final ProcessGroupStatus archive = group("archive");
+        archive.getConnectionStatus().add(connection("half", 5000, 0L, 10000L, null));
+        archive.getConnectionStatus().add(connection("high", 8500, 0L, 10000L, null));
+
+        monitor.collect(ingest);
+        monitor.collect(archive);
+
+        assertEquals(2, monitor.report(sink));
+        assertEquals(Arrays.asList(service("ingest", "full"), service("archive", "high")), sink.getServices());
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get(service("ingest", "full")).getState());
+        assertEquals(MetricCheck.STATE_WARNING, sink.get(service("archive", "high")).getState());
+        assertEquals("backpressure_fill=96% flowfiles_queued=9600 bytes_queued=0B", sink.get(service("ingest", "full")).getPerformance());
+    }
+
+    @Test
+    public void testKeepsReportingAnAlertingConnectionUntilItRecovers() {
+        final ConnectionMonitor monitor = new ConnectionMonitor(MetricCheck.Mode.ALERTING, 80L, 95L, 1);
+        final ConnectionStatus draining = connection("draining", 9000, 0L, 10000L, null);
+        final ConnectionStatus filling = connection("filling", 100, 0L, 10000L, null);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getConnectionStatus().addAll(Arrays.asList(draining, filling));
+
+        monitor.collect(ingest);
+        monitor.report(sink);
+        assertEquals(Arrays.asList(service("ingest", "draining")), sink.getServices());
+
+        // the other connection takes the top spot while the first one is still in warning
+        draining.setQueuedCount(8500);
+        filling.setQueuedCount(9900);
+        sink.clear();
+        monitor.collect(ingest);
+        assertEquals(2, monitor.report(sink));
+        assertEquals(Arrays.asList(service("ingest", "filling"), service("ingest", "draining")), sink.getServices());
+        assertEquals(MetricCheck.STATE_WARNING, sink.get(service("ingest", "draining")).getState());
+
+        // reported once more when it recovered, then left out
+        draining.setQueuedCount(1000);
+        sink.clear();
+        monitor.collect(ingest);
+        assertEquals(2, monitor.report(sink));
+        assertEquals(MetricCheck.STATE_OK, sink.get(service("ingest", "draining")).getState());
+
+        sink.clear();
+        monitor.collect(ingest);
+        assertEquals(1, monitor.report(sink));
+        assertEquals(Arrays.asList(service("ingest", "filling")), sink.getServices());
+    }
+
+    @Test
+    public void testOnlyReportsInReportingMode() {
+        final ConnectionMonitor monitor = new ConnectionMonitor(MetricCheck.Mode.REPORTING, 80L, 95L, 0);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getConnectionStatus().add(connection("full", 10000, 0L, 10000L, null));
+
+        monitor.collect(ingest);
+        monitor.report(sink);
+
+        assertEquals(MetricCheck.STATE_OK, sink.get(service("ingest", "full")).getState());
+    }
+
+    @Test
+    public void testNamesTheServiceAfterTheConnection() {
+        final ConnectionMonitor monitor = new ConnectionMonitor(MetricCheck.Mode.REPORTING, 80L, 95L, 0);
+        final ConnectionStatus named = connection("named", 1, 0L, 10000L, null);
+        named.setName("retries");
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getConnectionStatus().add(named);
+
+        monitor.collect(ingest);
+        monitor.report(sink);
+
+        assertEquals(Arrays.asList("ingest / named-source -> named-destination [retries]" + ConnectionMonitor.SERVICE_SUFFIX), sink.getServices());
+    }
+
+    private static ConnectionStatus connection(String id, int queuedCount, long queuedBytes, long objectThreshold, String dataSizeThreshold) {
+        final ConnectionStatus connection = new ConnectionStatus();
+        connection.setId(id);
+        connection.setSourceName(id + "-source");
+        connection.setDestinationName(id + "-destination");
+        connection.setQueuedCount(queuedCount);
+        connection.setQueuedBytes(queuedBytes);
+        connection.setBackPressureObjectThreshold(objectThreshold);
+        connection.setBackPressureDataSizeThreshold(dataSizeThreshold);
+        return connection;
+    }
+
+    private static String service(String group, String connection) {
+        return group + " / " + connection + "-source -> " + connection + "-destination" + ConnectionMonitor.SERVICE_SUFFIX;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class EndpointRouterTest {
+
+    private static final long SLOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Records the endpoints it posts to and fails on the ones listed as down.
+     */
+    private static final class RecordingPoster implements EndpointRouter.Poster {
+
+        private final List<String> posted = new ArrayList<>();
+        private final HashSet<String> down = new HashSet<>();
+
+        RecordingPoster(String... down) {
+            this.down.addAll(Arrays.asList(down));
+        }
+
+        @Override
+        public boolean post(NrdpEndpoint endpoint) {
+            posted.add(endpoint.getUrl());
+            return !down.contains(endpoint.getUrl());
+        }
+    }
+
+    @Test
+    public void testFailoverTriesEndpointsInOrder() {
+        final EndpointRouter router = new EndpointRouter(endpoints("a", "b", "c"), EndpointRouter.Mode.FAILOVER);
+
+        final RecordingPoster poster = new RecordingPoster("a");
+        assertTrue(router.route(poster));
+        assertEquals(Arrays.asList("a", "b"), poster.posted);
+    }
+
+    @Test
+    public void testRoundRobinRotatesTheFirstEndpoint() {
+        final EndpointRouter router = new EndpointRouter(endpoints("a", "b", "c"), EndpointRouter.Mode.ROUND_ROBIN);
+
+        final RecordingPoster poster = new RecordingPoster();
+        for (int i = 0; i < 4; i++)
+            assertTrue(router.route(poster));
+        assertEquals(Arrays.asList("a", "b", "c", "a"), poster.posted);
+    }
+
+    @Test
+    public void testBroadcastSendsToEveryEndpoint() {
+        final EndpointRouter router = new EndpointRouter(endpoints("a", "b", "c"), EndpointRouter.Mode.BROADCAST);
+
+        final RecordingPoster poster = new RecordingPoster("b");
+        assertTrue(router.route(poster));
+        assertEquals(Arrays.asList("a", "b", "c"), poster.posted);
+
+        assertFalse(router.route(new RecordingPoster("a", "b", "c")));
+    }
+
+    @Test
+    public void testFailingEndpointIsTriedLast() {
+        final NrdpEndpoint[] endpoints = endpoints("a", "b");
+        final EndpointRouter router = new EndpointRouter(endpoints, EndpointRouter.Mode.FAILOVER);
+
+        // below the breaker threshold, but failing every submission
+        endpoints[0].record(1000L, false, System.nanoTime());
+        endpoints[0].record(1000L, false, System.nanoTime());
+        endpoints[0].record(1000L, false, System.nanoTime());
+        endpoints[0].record(1000L, false, System.nanoTime());
+
+        final RecordingPoster poster = new RecordingPoster("b");
+        assertTrue(router.route(poster));
+        assertEquals(Arrays.asList("b", "a"), poster.posted);
+    }
+
+    @Test
+    public void testSlowEndpointIsTriedLast() {
+        final NrdpEndpoint[] endpoints = endpoints("a", "b");
+        final EndpointRouter router = new EndpointRouter(endpoints, EndpointRouter.Mode.FAILOVER);
+
+        endpoints[0].record(SLOW_NANOS * 2, true, System.nanoTime());
+
+        final RecordingPoster poster = new RecordingPoster();
+        assertTrue(router.route(poster));
+        assertEquals(Arrays.asList("b"), poster.posted);
+    }
+
+    @Test
+    public void testOpenBreakerIsSkipped() {
+        final NrdpEndpoint[] endpoints = endpoints("a", "b");
+        final EndpointRouter router = new EndpointRouter(endpoints, EndpointRouter.Mode.BROADCAST);
+
+        for (int i = 0; i < 5; i++)
+            endpoints[0].record(1000L, false, System.nanoTime());
+        assertEquals(CircuitBreaker.State.OPEN, endpoints[0].getBreaker().getState());
+
+        final RecordingPoster poster = new RecordingPoster();
+        assertTrue(router.route(poster));
+        assertEquals(Arrays.asList("b"), poster.posted);
+    }
+
+    private static NrdpEndpoint[] endpoints(String... urls) {
+        final NrdpEndpoint[] endpoints = new NrdpEndpoint[urls.length];
+        for (int i = 0; i < urls.length; i++) {
+            final CircuitBreaker breaker = new CircuitBreaker(5, TimeUnit.MINUTES.toNanos(1), TimeUnit.MINUTES.toNanos(10));
+            endpoints[i] = new NrdpEndpoint(urls[i], "token", null, breaker, SLOW_NANOS);
+        }
+        return endpoints;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileMetricExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendsCsvRowsBelowOneHeader() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("metrics.csv");
+        final FileMetricExporter exporter = new FileMetricExporter(file, FileMetricExporter.Format.CSV);
+
+        exporter.export(MetricSnapshotTest.snapshot());
+        exporter.export(MetricSnapshotTest.snapshot());
+
+        // growth metrics are left out, names with separators or quotes are quoted
+        final String rows = "1500000000000,root,root,active_thread_count,3\n"
+            + "1500000000000,root,root,flowfiles_queued,7\n"
+            + "1500000000000,ingest,\"ingest, \"\"raw\"\"\",active_thread_count,1\n"
+            + "1500000000000,ingest,\"ingest, \"\"raw\"\"\",flowfiles_queued,40\n";
+        assertEquals(FileMetricExporter.CSV_HEADER + rows + rows, read(file));
+    }
+
+    @Test
+    public void testWritesOneLineProtocolLinePerGroup() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("metrics.lp");
+        final FileMetricExporter exporter = new FileMetricExporter(file, FileMetricExporter.Format.LINE_PROTOCOL);
+
+        exporter.export(MetricSnapshotTest.snapshot());
+
+        assertEquals("nifi_process_group,group_id=root,group_name=root active_thread_count=3i,flowfiles_queued=7i 1500000000000000000\n"
+            + "nifi_process_group,group_id=ingest,group_name=ingest\\,\\ \"raw\" active_thread_count=1i,flowfiles_queued=40i 1500000000000000000\n",
+            read(file));
+    }
+
+    @Test
+    public void testSkipsLinesWithoutFields() throws Exception {
+        final Path file = folder.getRoot().toPath().resolve("metrics.lp");
+        final FileMetricExporter exporter = new FileMetricExporter(file, FileMetricExporter.Format.LINE_PROTOCOL);
+
+        exporter.export(MetricSnapshot.build(Collections.singletonList(MetricSnapshotTest.status("root", "root", 3, 7)),
+            new GroupMetric[] { GroupMetric.FLOWFILES_QUEUED_GROWTH }, MetricSnapshotTest.TIMESTAMP));
+
+        assertEquals("", read(file));
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
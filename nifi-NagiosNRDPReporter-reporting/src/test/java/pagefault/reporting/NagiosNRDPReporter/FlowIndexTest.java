@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.group;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.ids;
+
+import java.util.Arrays;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.ProcessorStatus;
+import org.junit.Test;
+
+public class FlowIndexTest {
+
+    @Test
+    public void testIndexesPrunedSubtreesWithoutReportingThem() {
+        final ProcessGroupStatus root = group("root", group("ingest", group("kafka")), group("archive"));
+        root.getProcessGroupStatus().iterator().next().getProcessGroupStatus().iterator().next()
+            .getProcessorStatus().add(processor("consume"));
+
+        final FlowIndex index = new FlowIndex();
+        index.clear(true);
+
+        assertEquals(Arrays.asList("root", "archive"),
+            ids(ProcessGroupTraversal.flatten(root, GroupFilter.compile(null, "root/ingest/**", Integer.MAX_VALUE), index)));
+
+        assertEquals(4, index.size());
+        final int kafka = index.indexOf("kafka");
+        assertEquals("kafka", index.getId(kafka));
+        assertEquals("ingest", index.getId(index.getParent(kafka)));
+        assertEquals("root", index.getId(index.getParent(index.getParent(kafka))));
+        assertEquals(-1, index.getParent(index.indexOf("root")));
+        assertEquals(kafka, index.groupOf("consume"));
+        assertEquals(-1, index.indexOf("unknown"));
+    }
+
+    @Test
+    public void testClearForgetsThePreviousRun() {
+        final ProcessGroupStatus root = group("root", group("a"));
+        root.getProcessorStatus().add(processor("p"));
+
+        final FlowIndex index = new FlowIndex();
+        index.clear(true);
+        ProcessGroupTraversal.flatten(root, GroupFilter.ALL, index);
+
+        index.clear(false);
+        ProcessGroupTraversal.flatten(group("other"), GroupFilter.ALL, index);
+
+        assertEquals(1, index.size());
+        assertEquals(-1, index.indexOf("a"));
+        assertEquals(-1, index.groupOf("p"));
+    }
+
+    private static ProcessorStatus processor(String id) {
+        final ProcessorStatus processor = new ProcessorStatus();
+        processor.setId(id);
+        return processor;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.group;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.ids;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.junit.Test;
+
+public class GroupFilterTest {
+
+    /**
+     * root, ingest, ingest/kafka, ingest/kafka/parse, ingest/http, publish-prod, archive, archive/cold
+     */
+    private final ProcessGroupStatus root = group("NiFi Flow",
+        group("ingest", group("kafka", group("parse")), group("http")),
+        group("publish-prod"),
+        group("archive", group("cold")));
+
+    @Test
+    public void testNoRulesReportEveryGroup() {
+        assertEquals(Arrays.asList("NiFi Flow", "ingest", "kafka", "parse", "http", "publish-prod", "archive", "cold"),
+            reported(null, null, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testIncludePathWithRecursiveWildcard() {
+        assertEquals(Arrays.asList("ingest", "kafka", "parse", "http"), reported("root/ingest/**", null, Integer.MAX_VALUE));
+        assertEquals(Arrays.asList("parse"), reported("root/**/parse", null, Integer.MAX_VALUE));
+        assertEquals(Arrays.asList("NiFi Flow", "ingest", "kafka", "parse", "http", "publish-prod", "archive", "cold"),
+            reported("**", null, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testIncludePathWithSegmentWildcards() {
+        assertEquals(Arrays.asList("kafka"), reported("root/*/kafka", null, Integer.MAX_VALUE));
+        assertEquals(Arrays.asList("kafka"), reported("path:root/ingest/k?fka", null, Integer.MAX_VALUE));
+        assertEquals(Arrays.asList("publish-prod", "archive"), reported("root/p*, root/archive", null, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testExcludePathAppliesExactlyAsWritten() {
+        assertEquals(Arrays.asList("NiFi Flow", "publish-prod", "archive", "cold"), reported(null, "root/ingest/**", Integer.MAX_VALUE));
+        assertEquals(Arrays.asList("NiFi Flow", "ingest", "parse", "http", "publish-prod", "archive", "cold"),
+            reported(null, "root/ingest/kafka", Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testNameAndIdRulesApplyToSubtrees() {
+        assertEquals(Arrays.asList("publish-prod"), reported("name:.*-prod", null, Integer.MAX_VALUE));
+        assertEquals(Arrays.asList("archive", "cold"), reported("id:archive", null, Integer.MAX_VALUE));
+        assertEquals(Arrays.asList("NiFi Flow", "publish-prod", "archive", "cold"), reported(null, "id:ingest", Integer.MAX_VALUE));
+        assertEquals(Arrays.asList("NiFi Flow", "ingest", "http", "publish-prod", "archive", "cold"),
+            reported(null, "name:kaf.*", Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testExcludeWinsOverInclude() {
+        assertEquals(Arrays.asList("ingest", "http"), reported("root/ingest/**", "name:kafka", Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testMaxDepth() {
+        assertEquals(Arrays.asList("NiFi Flow"), reported(null, null, 0));
+        assertEquals(Arrays.asList("NiFi Flow", "ingest", "publish-prod", "archive"), reported(null, null, 1));
+        assertEquals(Arrays.asList("ingest", "kafka", "http"), reported("root/ingest/**", null, 2));
+    }
+
+    @Test
+    public void testRulesAreSeparatedByCommasAndNewLines() {
+        assertEquals(Arrays.asList("http", "publish-prod", "cold"), reported(" root/ingest/http ,\nname:publish-.*\n\nid:cold ", null, Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRegexIsRejected() {
+        GroupFilter.compile("name:(", null, Integer.MAX_VALUE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPathIsRejected() {
+        GroupFilter.compile(null, "path:/", Integer.MAX_VALUE);
+    }
+
+    private List<String> reported(String include, String exclude, int maxDepth) {
+        return ids(ProcessGroupTraversal.flatten(root, GroupFilter.compile(include, exclude, maxDepth), null));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class GrowthTableTest {
+
+    private final long first = SuppressionTable.key(SuppressionTable.hash("group-1"), GroupMetric.FLOWFILES_QUEUED_GROWTH.ordinal());
+    private final long second = SuppressionTable.key(SuppressionTable.hash("group-2"), GroupMetric.FLOWFILES_QUEUED_GROWTH.ordinal());
+
+    @Test
+    public void testReportsTheChangePerMinute() {
+        final GrowthTable table = new GrowthTable();
+
+        assertEquals(GrowthTable.NO_SAMPLE, table.perMinute(first, 100L, 0L));
+        assertEquals(600L, table.perMinute(first, 400L, 30000L));
+        assertEquals(0L, table.perMinute(first, 400L, 90000L));
+        assertEquals(-50L, table.perMinute(first, 300L, 210000L));
+    }
+
+    @Test
+    public void testSuppressesTheFirstSampleOfEverySeries() {
+        final GrowthTable table = new GrowthTable();
+
+        assertEquals(GrowthTable.NO_SAMPLE, table.perMinute(first, 100L, 0L));
+        assertEquals(GrowthTable.NO_SAMPLE, table.perMinute(second, 5000L, 0L));
+
+        // a second sample of the same run is ignored, the next run still compares with the first one
+        assertEquals(GrowthTable.NO_SAMPLE, table.perMinute(first, 700L, 0L));
+        assertEquals(60L, table.perMinute(first, 160L, 60000L));
+        assertEquals(-5000L, table.perMinute(second, 0L, 60000L));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void testRestartsFromACounterReset() {
+        final GrowthTable table = new GrowthTable();
+
+        table.perMinute(first, 1000000L, 0L);
+
+        // the queue emptied, e.g. after a restart, which shows as shrinking once
+        assertEquals(-1000000L, table.perMinute(first, 0L, 60000L));
+        assertEquals(50L, table.perMinute(first, 50L, 120000L));
+    }
+
+    @Test
+    public void testKeepsTheSamplesWhenGrowing() {
+        final GrowthTable table = new GrowthTable(16);
+
+        for (long key = 1; key <= 1000; key++)
+            assertEquals(GrowthTable.NO_SAMPLE, table.perMinute(key, key, 0L));
+
+        assertEquals(1000, table.size());
+
+        for (long key = 1; key <= 1000; key++)
+            assertEquals(key, table.perMinute(key, key * 2, 60000L));
+    }
+
+    @Test
+    public void testSweepDropsTheSeriesNotSampledInTheRun() {
+        final GrowthTable table = new GrowthTable(16);
+
+        for (long key = 1; key <= 40; key++)
+            table.perMinute(key, 100L, 0L);
+
+        for (long key = 1; key <= 5; key++)
+            table.perMinute(key, 160L, 60000L);
+
+        table.sweep(60000L);
+        assertEquals(5, table.size());
+
+        // a dropped series starts over, the others keep their samples
+        assertEquals(GrowthTable.NO_SAMPLE, table.perMinute(6L, 100L, 120000L));
+        assertEquals(40L, table.perMinute(1L, 200L, 120000L));
+    }
+
+    @Test
+    public void testSweepKeepsTheSeriesWhenMostWereSampled() {
+        final GrowthTable table = new GrowthTable(16);
+
+        for (long key = 1; key <= 40; key++)
+            table.perMinute(key, 100L, 0L);
+
+        for (long key = 1; key <= 30; key++)
+            table.perMinute(key, 100L, 60000L);
+
+        table.sweep(60000L);
+        assertEquals(40, table.size());
+        assertEquals(100L, table.perMinute(40L, 300L, 120000L));
+    }
+}
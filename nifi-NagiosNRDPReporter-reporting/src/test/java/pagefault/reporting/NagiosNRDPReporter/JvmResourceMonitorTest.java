@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JvmResourceMonitorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    public void testReportsTheHeapCollectionsThreadsAndRepositories() throws Exception {
+        final Path content = folder.newFolder("content").toPath();
+        final JvmResourceMonitor monitor = monitor(MetricCheck.Mode.ALERTING, Long.MAX_VALUE, Collections.singletonList(content), -1L);
+
+        assertEquals(4, monitor.report(sink));
+
+        final String repository = JvmResourceMonitor.REPOSITORY_SERVICE_PREFIX + content;
+        assertEquals(Arrays.asList(JvmResourceMonitor.HEAP_SERVICE, JvmResourceMonitor.GC_SERVICE, JvmResourceMonitor.THREADS_SERVICE, repository),
+            sink.getServices());
+        for (final String service : sink.getServices())
+            assertEquals(service, MetricCheck.STATE_OK, sink.get(service).getState());
+
+        assertTrue(sink.get(JvmResourceMonitor.HEAP_SERVICE).getPerformance().startsWith("heap_used="));
+        assertTrue(sink.get(JvmResourceMonitor.GC_SERVICE).getPerformance().startsWith("gc_time_percent="));
+        assertTrue(sink.get(JvmResourceMonitor.THREADS_SERVICE).getPerformance().startsWith("threads="));
+        assertTrue(sink.get(repository).getPerformance().startsWith("free="));
+    }
+
+    @Test
+    public void testAlertsOnTheThresholds() throws Exception {
+        final Path content = folder.newFolder("content").toPath();
+        final JvmResourceMonitor monitor = monitor(MetricCheck.Mode.ALERTING, 0L, Collections.singletonList(content), 100L);
+
+        monitor.report(sink);
+
+        // the thresholds are inclusive, so a zero threshold always alerts
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get(JvmResourceMonitor.HEAP_SERVICE).getState());
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get(JvmResourceMonitor.GC_SERVICE).getState());
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get(JvmResourceMonitor.THREADS_SERVICE).getState());
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get(JvmResourceMonitor.REPOSITORY_SERVICE_PREFIX + content).getState());
+    }
+
+    @Test
+    public void testOnlyReportsInReportingMode() throws Exception {
+        final Path content = folder.newFolder("content").toPath();
+        final JvmResourceMonitor monitor = monitor(MetricCheck.Mode.REPORTING, 0L, Collections.singletonList(content), 100L);
+
+        monitor.report(sink);
+
+        for (final String service : sink.getServices())
+            assertEquals(service, MetricCheck.STATE_OK, sink.get(service).getState());
+    }
+
+    @Test
+    public void testRepositoryIsUnknownUntilItsDirectoryIsReadable() throws Exception {
+        final File provenance = new File(folder.getRoot(), "provenance");
+        final String service = JvmResourceMonitor.REPOSITORY_SERVICE_PREFIX + provenance.toPath();
+        final JvmResourceMonitor monitor = monitor(MetricCheck.Mode.ALERTING, Long.MAX_VALUE, Collections.singletonList(provenance.toPath()), -1L);
+
+        monitor.report(sink);
+        assertEquals(MetricCheck.STATE_UNKNOWN, sink.get(service).getState());
+        assertNull(sink.get(service).getPerformance());
+
+        // the file store is looked up again on the next run
+        assertTrue(provenance.mkdir());
+        monitor.report(sink);
+        assertEquals(MetricCheck.STATE_OK, sink.get(service).getState());
+    }
+
+    private static JvmResourceMonitor monitor(MetricCheck.Mode mode, long threshold, List<Path> directories, long freeThreshold) {
+        return new JvmResourceMonitor(mode, threshold, threshold, threshold, threshold, threshold, threshold, directories, freeThreshold, freeThreshold);
+    }
+}
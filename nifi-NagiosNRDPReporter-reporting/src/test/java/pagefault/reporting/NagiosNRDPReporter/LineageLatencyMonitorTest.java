@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.group;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.components.state.Scope;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.ProcessorStatus;
+import org.apache.nifi.provenance.MockProvenanceRepository;
+import org.apache.nifi.provenance.ProvenanceEventRecord;
+import org.apache.nifi.provenance.ProvenanceEventRepository;
+import org.apache.nifi.provenance.ProvenanceEventType;
+import org.apache.nifi.provenance.StandardProvenanceEventRecord;
+import org.apache.nifi.state.MockStateManager;
+import org.apache.nifi.util.MockEventAccess;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LineageLatencyMonitorTest {
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Provenance provenance = new Provenance();
+    private final MockStateManager state = new MockStateManager(new NagiosNRDPReporter());
+    private final FlowIndex index = new FlowIndex();
+    private final RecordingSink sink = new RecordingSink();
+
+    private List<ProcessGroupStatus> groups;
+
+    @Before
+    public void setUp() {
+        final ProcessGroupStatus kafka = group("kafka");
+        kafka.getProcessorStatus().add(processor("consume"));
+        final ProcessGroupStatus archive = group("archive");
+        archive.getProcessorStatus().add(processor("compress"));
+
+        index.clear(true);
+        groups = ProcessGroupTraversal.flatten(group("root", group("ingest", kafka), archive), GroupFilter.ALL, index);
+    }
+
+    @Test
+    public void testStartsAfterTheNewestEventAndPersistsTheCursor() throws IOException {
+        final LineageLatencyMonitor monitor = monitor(100, Long.MAX_VALUE);
+
+        provenance.add("consume", 5000L);
+        provenance.add("consume", 5000L);
+
+        assertEquals(0, report(monitor));
+        assertEquals(0L, monitor.getLastEvents());
+        assertNull(state.getState(Scope.LOCAL).get(LineageLatencyMonitor.CURSOR_KEY));
+
+        provenance.add("consume", 1000L);
+        provenance.add("consume", 3000L);
+        provenance.add("compress", 60000L);
+
+        assertEquals(4, report(monitor));
+        assertEquals(3L, monitor.getLastEvents());
+        assertTrue(monitor.isCaughtUp());
+        assertEquals("5", state.getState(Scope.LOCAL).get(LineageLatencyMonitor.CURSOR_KEY));
+
+        // a group covers the events of every group below it
+        assertTrue(performance("kafka").endsWith(" events=2"));
+        assertTrue(performance("ingest").endsWith(" events=2"));
+        assertTrue(performance("archive").endsWith(" events=1"));
+        assertTrue(performance("root").endsWith(" events=3"));
+    }
+
+    @Test
+    public void testResumesFromThePersistedCursor() throws IOException {
+        provenance.add("consume", 1000L);
+        provenance.add("consume", 2000L);
+        provenance.add("consume", 3000L);
+        state.setState(Collections.singletonMap(LineageLatencyMonitor.CURSOR_KEY, "1"), Scope.LOCAL);
+
+        final LineageLatencyMonitor monitor = monitor(100, Long.MAX_VALUE);
+        report(monitor);
+
+        assertEquals(2L, monitor.getLastEvents());
+        assertEquals("3", state.getState(Scope.LOCAL).get(LineageLatencyMonitor.CURSOR_KEY));
+    }
+
+    @Test
+    public void testStartsOverWhenTheRepositoryWasReset() throws IOException {
+        provenance.add("consume", 1000L);
+        state.setState(Collections.singletonMap(LineageLatencyMonitor.CURSOR_KEY, "100"), Scope.LOCAL);
+
+        final LineageLatencyMonitor monitor = monitor(100, Long.MAX_VALUE);
+        report(monitor);
+        assertEquals(0L, monitor.getLastEvents());
+
+        provenance.add("consume", 1000L);
+        report(monitor);
+        assertEquals(1L, monitor.getLastEvents());
+        assertEquals("2", state.getState(Scope.LOCAL).get(LineageLatencyMonitor.CURSOR_KEY));
+    }
+
+    @Test
+    public void testLeavesTheBacklogBeyondTheTimeBudgetForTheNextRuns() throws IOException {
+        final LineageLatencyMonitor monitor = monitor(2, 0L);
+        report(monitor);
+
+        for (int i = 0; i < 5; i++)
+            provenance.add("consume", 1000L);
+
+        report(monitor);
+        assertEquals(2L, monitor.getLastEvents());
+        assertFalse(monitor.isCaughtUp());
+
+        report(monitor);
+        assertEquals(2L, monitor.getLastEvents());
+
+        report(monitor);
+        assertEquals(1L, monitor.getLastEvents());
+        assertTrue(monitor.isCaughtUp());
+    }
+
+    @Test
+    public void testIgnoresEventsThatStartALineage() throws IOException {
+        final LineageLatencyMonitor monitor = monitor(100, Long.MAX_VALUE);
+        report(monitor);
+
+        provenance.add("consume", 0L, ProvenanceEventType.RECEIVE);
+        provenance.add("consume", 0L, ProvenanceEventType.CREATE);
+        provenance.add("unknown", 1000L, ProvenanceEventType.ATTRIBUTES_MODIFIED);
+
+        assertEquals(0, report(monitor));
+        assertEquals(3L, monitor.getLastEvents());
+    }
+
+    @Test
+    public void testAlertsOnTheLatencyQuantileUntilDataStopsMoving() throws IOException {
+        final LineageLatencyMonitor monitor = new LineageLatencyMonitor(MetricCheck.Mode.ALERTING, 0.95,
+            60 * SECOND_NANOS, 300 * SECOND_NANOS, 100, SECOND_NANOS);
+        report(monitor);
+
+        for (int i = 0; i < 19; i++)
+            provenance.add("compress", 1000L);
+        provenance.add("compress", 120000L);
+
+        report(monitor);
+        assertEquals(MetricCheck.STATE_OK, sink.get("archive" + LineageLatencyMonitor.SERVICE_SUFFIX).getState());
+
+        provenance.add("compress", 120000L);
+        report(monitor);
+        assertEquals(MetricCheck.STATE_WARNING, sink.get("archive" + LineageLatencyMonitor.SERVICE_SUFFIX).getState());
+
+        // no events at all, the alerting groups recover
+        assertEquals(2, report(monitor));
+        assertEquals(MetricCheck.STATE_OK, sink.get("archive" + LineageLatencyMonitor.SERVICE_SUFFIX).getState());
+        assertEquals("events=0", performance("archive"));
+
+        assertEquals(0, report(monitor));
+    }
+
+    private LineageLatencyMonitor monitor(int batchSize, long timeBudgetNanos) {
+        return new LineageLatencyMonitor(MetricCheck.Mode.REPORTING, 0.95, Long.MAX_VALUE, Long.MAX_VALUE, batchSize, timeBudgetNanos);
+    }
+
+    private int report(LineageLatencyMonitor monitor) throws IOException {
+        sink.clear();
+        return monitor.report(provenance, state, index, groups, sink);
+    }
+
+    private String performance(String group) {
+        return sink.get(group + LineageLatencyMonitor.SERVICE_SUFFIX).getPerformance();
+    }
+
+    private static ProcessorStatus processor(String id) {
+        final ProcessorStatus processor = new ProcessorStatus();
+        processor.setId(id);
+        return processor;
+    }
+
+    /**
+     * Serves the events of a provenance repository, which numbers them from 0.
+     */
+    private static final class Provenance extends MockEventAccess {
+
+        private final MockProvenanceRepository repository = new MockProvenanceRepository();
+
+        void add(String componentId, long latencyMillis) {
+            add(componentId, latencyMillis, ProvenanceEventType.ATTRIBUTES_MODIFIED);
+        }
+
+        void add(String componentId, long latencyMillis, ProvenanceEventType type) {
+            final long now = System.currentTimeMillis();
+            repository.registerEvent(new StandardProvenanceEventRecord.Builder()
+                .setEventType(type)
+                .setFlowFileUUID(UUID.randomUUID().toString())
+                .setComponentId(componentId)
+                .setComponentType("Processor")
+                .setTransitUri("nifi://test")
+                .setEventTime(now)
+                .setLineageStartDate(now - latencyMillis)
+                .setCurrentContentClaim(null, null, null, null, 0L)
+                .build());
+        }
+
+        @Override
+        public List<ProvenanceEventRecord> getProvenanceEvents(long firstEventId, int maxRecords) throws IOException {
+            return repository.getEvents(firstEventId, maxRecords);
+        }
+
+        @Override
+        public ProvenanceEventRepository getProvenanceRepository() {
+            return repository;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.group;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.junit.Test;
+
+public class MetricSnapshotTest {
+
+    static final long TIMESTAMP = 1500000000000L;
+
+    static final GroupMetric[] METRICS = { GroupMetric.ACTIVE_THREAD_COUNT, GroupMetric.FLOWFILES_QUEUED_GROWTH, GroupMetric.FLOWFILES_QUEUED };
+
+    @Test
+    public void testReadsEveryMetricOfEveryGroupOnce() {
+        final MetricSnapshot snapshot = snapshot();
+
+        assertEquals(TIMESTAMP, snapshot.getTimestampMillis());
+        assertEquals(2, snapshot.getGroupCount());
+        assertEquals(3, snapshot.getMetricCount());
+        assertSame(GroupMetric.FLOWFILES_QUEUED, snapshot.getMetric(2));
+
+        assertEquals("root", snapshot.getGroupId(0));
+        assertEquals("root", snapshot.getGroupName(0));
+        assertEquals("ingest", snapshot.getGroupId(1));
+        assertEquals("ingest, \"raw\"", snapshot.getGroupName(1));
+
+        assertEquals(3L, snapshot.value(0, 0));
+        assertEquals(7L, snapshot.value(0, 1));
+        assertEquals(7L, snapshot.value(0, 2));
+        assertEquals(1L, snapshot.value(1, 0));
+        assertEquals(40L, snapshot.value(1, 2));
+    }
+
+    @Test
+    public void testTakesTheValuesWhenBuilt() {
+        final ProcessGroupStatus root = status("root", "root", 3, 7);
+        final MetricSnapshot snapshot = MetricSnapshot.build(Collections.singletonList(root), METRICS, TIMESTAMP);
+
+        root.setActiveThreadCount(9);
+
+        assertEquals(3L, snapshot.value(0, 0));
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        assertEquals(0, MetricSnapshot.EMPTY.getGroupCount());
+        assertEquals(0, MetricSnapshot.EMPTY.getMetricCount());
+    }
+
+    /**
+     * The root group, and a group whose name needs quoting or escaping in every output format.
+     */
+    static MetricSnapshot snapshot() {
+        return MetricSnapshot.build(Arrays.asList(status("root", "root", 3, 7), status("ingest", "ingest, \"raw\"", 1, 40)), METRICS, TIMESTAMP);
+    }
+
+    static ProcessGroupStatus status(String id, String name, int activeThreads, int queued) {
+        final ProcessGroupStatus status = group(id);
+        status.setName(name);
+        status.setActiveThreadCount(activeThreads);
+        status.setQueuedCount(queued);
+        return status;
+    }
+}
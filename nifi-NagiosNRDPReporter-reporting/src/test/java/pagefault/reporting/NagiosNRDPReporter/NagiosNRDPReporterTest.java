@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.ValidationResult;
+import org.apache.nifi.controller.ControllerService;
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.registry.VariableRegistry;
+import org.apache.nifi.reporting.InitializationException;
+import org.apache.nifi.state.MockStateManager;
+import org.apache.nifi.util.MockComponentLog;
+import org.apache.nifi.util.MockConfigurationContext;
+import org.apache.nifi.util.MockProcessContext;
+import org.apache.nifi.util.MockReportingContext;
+import org.apache.nifi.util.MockReportingInitializationContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NagiosNRDPReporterTest {
+
+    private static final Pattern ACTIVE_THREADS = Pattern.compile("active_thread_count=(\\d+)");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubNrdpServer server;
+    private NagiosNRDPReporter reporter;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StubNrdpServer();
+        reporter = new NagiosNRDPReporter();
+    }
+
+    @After
+    public void tearDown() {
+        reporter.onStopped();
+        server.close();
+    }
+
+    @Test
+    public void testBatchesTheChecksOfAllGroups() throws Exception {
+        final Map<PropertyDescriptor, String> properties = properties();
+        properties.put(NagiosNRDPReporter.PROCESS_ALL_GROUPS, NagiosNRDPReporter.ENABLED_VALUE);
+        properties.put(NagiosNRDPReporter.SUBMISSION_MODE, NagiosNRDPReporter.BATCHED_VALUE);
+        properties.put(NagiosNRDPReporter.MAX_CHECKS_PER_SUBMISSION, "2");
+
+        reporter.onTrigger(schedule(properties, flow()));
+
+        assertEquals(Arrays.asList(2, 1), checksPerSubmission(server.getSubmissions()));
+    }
+
+    @Test
+    public void testSendsOneSubmissionPerGroup() throws Exception {
+        final Map<PropertyDescriptor, String> properties = properties();
+        properties.put(NagiosNRDPReporter.PROCESS_ALL_GROUPS, NagiosNRDPReporter.ENABLED_VALUE);
+        properties.put(NagiosNRDPReporter.SUBMISSION_MODE, NagiosNRDPReporter.PER_GROUP_VALUE);
+
+        reporter.onTrigger(schedule(properties, flow()));
+
+        final List<String> submissions = server.getSubmissions();
+        assertEquals(Arrays.asList(1, 1, 1), checksPerSubmission(submissions));
+        assertTrue(submissions.get(0).contains("root - NiFi Active Thread Count"));
+        assertTrue(submissions.get(1).contains("a - NiFi Active Thread Count"));
+        assertTrue(submissions.get(2).contains("b - NiFi Active Thread Count"));
+    }
+
+    @Test
+    public void testReportsOnlyTheRootGroupUnlessReportingAllGroups() throws Exception {
+        reporter.onTrigger(schedule(properties(), flow()));
+
+        final List<String> submissions = server.getSubmissions();
+        assertEquals(Arrays.asList(1), checksPerSubmission(submissions));
+        assertTrue(submissions.get(0).contains("root - NiFi Active Thread Count"));
+    }
+
+    @Test
+    public void testSpoolsFailedSubmissionsAndReplaysThemFromIdleSenders() throws Exception {
+        final Map<PropertyDescriptor, String> properties = properties();
+        properties.put(NagiosNRDPReporter.DELIVERY_MODE, NagiosNRDPReporter.ASYNCHRONOUS_VALUE);
+        properties.put(NagiosNRDPReporter.SPOOL_DIRECTORY, folder.newFolder("spool").getAbsolutePath());
+
+        final ProcessGroupStatus root = ProcessGroupTraversalTest.group("root");
+        final MockReportingContext context = schedule(properties, root);
+
+        server.respond(503, "down");
+        root.setActiveThreadCount(1);
+        reporter.onTrigger(context);
+        root.setActiveThreadCount(2);
+        reporter.onTrigger(context);
+
+        final File spool = new File(properties.get(NagiosNRDPReporter.SPOOL_DIRECTORY));
+        final long deadline = System.currentTimeMillis() + 5000L;
+        while (spooledBytes(spool) == 0L && System.currentTimeMillis() < deadline)
+            Thread.sleep(50L);
+        assertTrue(spooledBytes(spool) > 0L);
+
+        // no further run, the sender threads replay the spool on their own
+        server.respond(200, StubNrdpServer.OK);
+        while (server.getSubmissions().size() < 2 && System.currentTimeMillis() < deadline + 5000L)
+            Thread.sleep(50L);
+
+        assertEquals(Arrays.asList(1, 2), activeThreads(server.getSubmissions()));
+    }
+
+    @Test
+    public void testRequiresTheThresholdsOfAlertingMetrics() {
+        final MockProcessContext context = validationContext();
+        context.setProperty(NagiosNRDPReporter.ACTIVE_THREAD_COUNT, NagiosNRDPReporter.ALERTING_VALUE);
+        context.setProperty(NagiosNRDPReporter.ACTIVE_THREAD_COUNT_WARN, "8");
+
+        assertEquals(Collections.singletonList(NagiosNRDPReporter.ACTIVE_THREAD_COUNT_CRIT.getDisplayName()), invalidSubjects(context));
+
+        context.setProperty(NagiosNRDPReporter.ACTIVE_THREAD_COUNT_CRIT, "14");
+        assertTrue(invalidSubjects(context).isEmpty());
+    }
+
+    @Test
+    public void testRejectsMoreSamplesOverThresholdThanTheWindowHolds() {
+        final MockProcessContext context = validationContext();
+        context.setProperty(NagiosNRDPReporter.THRESHOLD_EVALUATION, NagiosNRDPReporter.N_OF_M_VALUE);
+        context.setProperty(NagiosNRDPReporter.EVALUATION_WINDOW, "3");
+        context.setProperty(NagiosNRDPReporter.SAMPLES_OVER_THRESHOLD, "4");
+
+        assertEquals(Collections.singletonList(NagiosNRDPReporter.SAMPLES_OVER_THRESHOLD.getDisplayName()), invalidSubjects(context));
+    }
+
+    @Test
+    public void testRejectsRepositoryDirectoriesThatDoNotExist() throws IOException {
+        final MockProcessContext context = validationContext();
+        context.setProperty(NagiosNRDPReporter.REPOSITORY_DIRECTORIES,
+            folder.getRoot().getAbsolutePath() + "," + new File(folder.getRoot(), "missing").getAbsolutePath());
+
+        assertEquals(Collections.singletonList(NagiosNRDPReporter.REPOSITORY_DIRECTORIES.getDisplayName()), invalidSubjects(context));
+    }
+
+    @Test
+    public void testReplaysAnOutageLongerThanTheReplayPermitsInOrder() throws Exception {
+        final Map<PropertyDescriptor, String> properties = properties();
+        properties.put(NagiosNRDPReporter.SPOOL_DIRECTORY, folder.newFolder("spool").getAbsolutePath());
+        properties.put(NagiosNRDPReporter.SPOOL_REPLAY_RATE, "4");
+        properties.put(NagiosNRDPReporter.CIRCUIT_BREAKER_FAILURES, "1000");
+
+        final ProcessGroupStatus root = ProcessGroupTraversalTest.group("root");
+        final MockReportingContext context = schedule(properties, root);
+
+        // three times the permits the spool holds
+        final int outageRuns = 12;
+
+        server.respond(503, "down");
+        for (int run = 0; run < outageRuns; run++) {
+            root.setActiveThreadCount(run);
+            reporter.onTrigger(context);
+        }
+        assertTrue(server.getSubmissions().isEmpty());
+
+        server.respond(200, StubNrdpServer.OK);
+
+        // every run spools one more submission behind the backlog while the replay drains two
+        int run = outageRuns;
+        while (!activeThreads(server.getSubmissions()).contains(run - 1) && run < outageRuns + 40) {
+            root.setActiveThreadCount(run++);
+            reporter.onTrigger(context);
+            Thread.sleep(500L);
+        }
+
+        final List<Integer> delivered = activeThreads(server.getSubmissions());
+        assertEquals(run, delivered.size());
+        for (int i = 0; i < run; i++)
+            assertEquals(i, (int) delivered.get(i));
+    }
+
+    @Test
+    public void testSpoolsSubmissionsAnsweredWithAnUnreadableResponse() throws Exception {
+        assertRetriedAfter("<html><body>Service Unavailable</body></html>");
+    }
+
+    @Test
+    public void testSpoolsSubmissionsAnsweredWithoutAResultStatus() throws Exception {
+        assertRetriedAfter("<?xml version=\"1.0\"?><result><message>OK</message></result>");
+    }
+
+    /**
+     * Asserts that a run answered with a 200 and the given body is not counted as delivered but replayed by the next run.
+     */
+    private void assertRetriedAfter(String response) throws Exception {
+        final Map<PropertyDescriptor, String> properties = properties();
+        properties.put(NagiosNRDPReporter.SPOOL_DIRECTORY, folder.newFolder("spool").getAbsolutePath());
+
+        final ProcessGroupStatus root = ProcessGroupTraversalTest.group("root");
+        final MockReportingContext context = schedule(properties, root);
+
+        server.respond(200, response);
+        root.setActiveThreadCount(1);
+        reporter.onTrigger(context);
+
+        // enough time for the default replay rate to grant a permit
+        Thread.sleep(200L);
+
+        server.respond(200, StubNrdpServer.OK);
+        root.setActiveThreadCount(2);
+        reporter.onTrigger(context);
+
+        assertEquals(Arrays.asList(1, 1, 2), activeThreads(server.getSubmissions()));
+    }
+
+    /**
+     * @return the properties of a synchronous reporter sending the active thread count of the root group to the stub server
+     */
+    private Map<PropertyDescriptor, String> properties() {
+        final Map<PropertyDescriptor, String> properties = new HashMap<>();
+        properties.put(NagiosNRDPReporter.URL, server.getUrl());
+        properties.put(NagiosNRDPReporter.TOKEN, "test-token");
+        properties.put(NagiosNRDPReporter.HOSTNAME, "nifi-test.example.com");
+        properties.put(NagiosNRDPReporter.PROCESS_ALL_GROUPS, NagiosNRDPReporter.DISABLED_VALUE);
+        properties.put(NagiosNRDPReporter.DELIVERY_MODE, NagiosNRDPReporter.SYNCHRONOUS_VALUE);
+        properties.put(NagiosNRDPReporter.ACTIVE_THREAD_COUNT, NagiosNRDPReporter.REPORTING_VALUE);
+        return properties;
+    }
+
+    private MockReportingContext schedule(Map<PropertyDescriptor, String> properties, ProcessGroupStatus root)
+            throws InitializationException, IOException {
+        reporter.initialize(new MockReportingInitializationContext("test", "NagiosNRDPReporter", new MockComponentLog("test", reporter)));
+
+        final MockReportingContext context = new MockReportingContext(Collections.<String, ControllerService>emptyMap(),
+            new MockStateManager(reporter), VariableRegistry.EMPTY_REGISTRY);
+        context.setProperties(properties);
+        context.getEventAccess().setProcessGroupStatus(root);
+
+        reporter.onScheduled(new MockConfigurationContext(properties, null));
+        return context;
+    }
+
+    private MockProcessContext validationContext() {
+        final MockProcessContext context = new MockProcessContext(reporter);
+        context.setProperty(NagiosNRDPReporter.URL, server.getUrl());
+        context.setProperty(NagiosNRDPReporter.TOKEN, "test-token");
+        context.setProperty(NagiosNRDPReporter.HOSTNAME, "nifi-test.example.com");
+        return context;
+    }
+
+    private static List<String> invalidSubjects(MockProcessContext context) {
+        final List<String> subjects = new ArrayList<>();
+        for (ValidationResult result : context.validate()) {
+            if (!result.isValid())
+                subjects.add(result.getSubject());
+        }
+        return subjects;
+    }
+
+    /**
+     * @return a root group with the child groups a and b, each running one thread
+     */
+    private static ProcessGroupStatus flow() {
+        final ProcessGroupStatus a = ProcessGroupTraversalTest.group("a");
+        final ProcessGroupStatus b = ProcessGroupTraversalTest.group("b");
+        final ProcessGroupStatus root = ProcessGroupTraversalTest.group("root", a, b);
+
+        for (ProcessGroupStatus group : Arrays.asList(root, a, b))
+            group.setActiveThreadCount(1);
+
+        return root;
+    }
+
+    private static long spooledBytes(File directory) {
+        long bytes = 0L;
+        for (File file : directory.listFiles()) {
+            if (file.getName().endsWith(".spool"))
+                bytes += file.length();
+        }
+        return bytes;
+    }
+
+    private static List<Integer> checksPerSubmission(List<String> submissions) {
+        final List<Integer> checks = new ArrayList<>();
+        for (String submission : submissions) {
+            final Matcher matcher = ACTIVE_THREADS.matcher(submission);
+            int count = 0;
+            while (matcher.find())
+                count++;
+            checks.add(count);
+        }
+        return checks;
+    }
+
+    private static List<Integer> activeThreads(List<String> submissions) {
+        final List<Integer> values = new ArrayList<>();
+        for (String submission : submissions) {
+            final Matcher matcher = ACTIVE_THREADS.matcher(submission);
+            while (matcher.find())
+                values.add(Integer.valueOf(matcher.group(1)));
+        }
+        return values;
+    }
+}
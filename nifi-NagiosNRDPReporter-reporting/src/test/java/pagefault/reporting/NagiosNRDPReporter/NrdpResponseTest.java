@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+
+public class NrdpResponseTest {
+
+    @Test
+    public void testReadsAnAcceptedSubmission() throws XMLStreamException {
+        final NrdpResponse response = read("<?xml version=\"1.0\"?><result><status>0</status><message>OK</message></result>");
+
+        assertEquals(0, response.getStatus());
+        assertEquals("OK", response.getMessage());
+    }
+
+    @Test
+    public void testReadsARejectedSubmission() throws XMLStreamException {
+        final NrdpResponse response = read("<?xml version=\"1.0\"?>\n<result>\n  <status> -1 </status>\n  <message>BAD TOKEN</message>\n"
+            + "  <meta><status>0</status></meta>\n</result>\n");
+
+        assertEquals(-1, response.getStatus());
+        assertEquals("BAD TOKEN", response.getMessage());
+    }
+
+    @Test
+    public void testIgnoresNestedElementsAndAMissingMessage() throws XMLStreamException {
+        final NrdpResponse response = read("<result><meta><message>nested</message></meta><status>0</status></result>");
+
+        assertEquals(0, response.getStatus());
+        assertNull(response.getMessage());
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testRejectsAnotherRootElement() throws XMLStreamException {
+        read("<html><status>0</status><message>OK</message></html>");
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testRejectsAResultWithoutStatus() throws XMLStreamException {
+        read("<result><message>OK</message></result>");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testRejectsANonNumericStatus() throws XMLStreamException {
+        read("<result><status>OK</status><message>OK</message></result>");
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testRejectsMalformedDocuments() throws XMLStreamException {
+        read("Service Unavailable");
+    }
+
+    private static NrdpResponse read(String document) throws XMLStreamException {
+        return NrdpResponse.read(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+    }
+}
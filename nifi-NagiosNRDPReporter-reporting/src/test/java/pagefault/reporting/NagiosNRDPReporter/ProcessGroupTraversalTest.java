@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.junit.Test;
+
+public class ProcessGroupTraversalTest {
+
+    @Test
+    public void testFlattensDepthFirstInNaturalOrder() {
+        final ProcessGroupStatus root = group("root", group("a", group("a1"), group("a2")), group("b"));
+
+        final List<ProcessGroupStatus> groups = ProcessGroupTraversal.flatten(root, GroupFilter.ALL, null);
+
+        assertEquals(Arrays.asList("root", "a", "a1", "a2", "b"), ids(groups));
+    }
+
+    @Test
+    public void testFlattensDeepTreesWithoutRecursion() {
+        final ProcessGroupStatus root = group("root");
+
+        ProcessGroupStatus parent = root;
+        for (int i = 0; i < 100000; i++) {
+            final ProcessGroupStatus child = group("g" + i);
+            parent.getProcessGroupStatus().add(child);
+            parent = child;
+        }
+
+        assertEquals(100001, ProcessGroupTraversal.flatten(root, GroupFilter.ALL, null).size());
+    }
+
+    @Test
+    public void testParallelEncodingMatchesSequentialOrder() {
+        for (final CheckResultPayload.Format format : CheckResultPayload.Format.values()) {
+            final int groups = 1000;
+
+            final CheckResultPayload sequential = new CheckResultPayload();
+            sequential.begin("token", format);
+            for (int i = 0; i < groups; i++)
+                addCheckResults(sequential, i);
+            sequential.end();
+
+            final CheckResultPayload parallel = new CheckResultPayload();
+            parallel.begin("token", format);
+
+            final ProcessGroupTraversal traversal = new ProcessGroupTraversal(4);
+            try {
+                traversal.encode(groups, format, new ProcessGroupTraversal.GroupEncoder() {
+                    @Override
+                    public int encode(int group, CheckResultPayload fragment) {
+                        return addCheckResults(fragment, group);
+                    }
+                }, new ProcessGroupTraversal.GroupSink() {
+                    @Override
+                    public void accept(CheckResultPayload fragment, int from, int to, int checks) {
+                        parallel.append(fragment, from, to, checks);
+                    }
+                });
+            } finally {
+                traversal.shutdown();
+            }
+
+            parallel.end();
+
+            assertEquals(sequential.getChecks(), parallel.getChecks());
+            assertArrayEquals(Arrays.copyOf(sequential.buffer(), sequential.length()), Arrays.copyOf(parallel.buffer(), parallel.length()));
+        }
+    }
+
+    /**
+     * Every third group has no check results, the others one or two.
+     */
+    private static int addCheckResults(CheckResultPayload payload, int group) {
+        final int checks = group % 3;
+        for (int i = 0; i < checks; i++)
+            payload.addCheckResult("Group " + group + " - Check " + i, "host", i, "OK", "value=" + group);
+        return checks;
+    }
+
+    static ProcessGroupStatus group(String name, ProcessGroupStatus... children) {
+        final ProcessGroupStatus group = new ProcessGroupStatus();
+        group.setId(name);
+        group.setName(name);
+        group.getProcessGroupStatus().addAll(Arrays.asList(children));
+        return group;
+    }
+
+    static List<String> ids(List<ProcessGroupStatus> groups) {
+        final String[] ids = new String[groups.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = groups.get(i).getId();
+        return Arrays.asList(ids);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.group;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.ProcessorStatus;
+import org.junit.Test;
+
+public class ProcessorMonitorTest {
+
+    private static final String TIME = " - NiFi Processor Time";
+    private static final String THREADS = " - NiFi Processor Threads";
+    private static final String TASKS = " - NiFi Processor Tasks";
+
+    private final RecordingSink sink = new RecordingSink();
+
+    @Test
+    public void testReportsTheTopProcessorOfEveryRanking() {
+        final ProcessorMonitor monitor = monitor(MetricCheck.Mode.REPORTING, 1);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getProcessorStatus().addAll(Arrays.asList(
+            processor("slow", TimeUnit.SECONDS.toNanos(5), 1, 10),
+            processor("busy", TimeUnit.SECONDS.toNanos(1), 4, 1000),
+            processor("idle", 0L, 0, 0)));
+
+        monitor.collect(ingest);
+
+        assertEquals(3, monitor.report(sink));
+        assertEquals(Arrays.asList("ingest / slow" + TIME, "ingest / busy" + THREADS, "ingest / busy" + TASKS), sink.getServices());
+        assertEquals("processing_time=5.000s tasks=10 active_threads=1", sink.get("ingest / slow" + TIME).getPerformance());
+        assertEquals(MetricCheck.STATE_OK, sink.get("ingest / busy" + THREADS).getState());
+    }
+
+    @Test
+    public void testReportsEveryBusyProcessorWithoutALimit() {
+        final ProcessorMonitor monitor = monitor(MetricCheck.Mode.REPORTING, 0);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getProcessorStatus().addAll(Arrays.asList(
+            processor("a", TimeUnit.SECONDS.toNanos(1), 0, 5),
+            processor("b", TimeUnit.SECONDS.toNanos(2), 0, 1),
+            processor("idle", 0L, 0, 0)));
+        final ProcessGroupStatus archive = group("archive");
+        archive.getProcessorStatus().add(processor("c", TimeUnit.SECONDS.toNanos(3), 0, 0));
+
+        monitor.collect(ingest);
+        monitor.collect(archive);
+
+        assertEquals(5, monitor.report(sink));
+        assertEquals(Arrays.asList("archive / c" + TIME, "ingest / b" + TIME, "ingest / a" + TIME, "ingest / a" + TASKS, "ingest / b" + TASKS),
+            sink.getServices());
+    }
+
+    @Test
+    public void testAlertsOnEveryRankingsThresholds() {
+        final ProcessorMonitor monitor = new ProcessorMonitor(MetricCheck.Mode.ALERTING, 0,
+            TimeUnit.SECONDS.toNanos(60), TimeUnit.SECONDS.toNanos(120), 4L, 8L, Long.MAX_VALUE, Long.MAX_VALUE);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getProcessorStatus().addAll(Arrays.asList(
+            processor("a", TimeUnit.SECONDS.toNanos(90), 8, 1000000),
+            processor("b", TimeUnit.SECONDS.toNanos(150), 2, 1)));
+
+        monitor.collect(ingest);
+        monitor.report(sink);
+
+        assertEquals(MetricCheck.STATE_WARNING, sink.get("ingest / a" + TIME).getState());
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get("ingest / b" + TIME).getState());
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get("ingest / a" + THREADS).getState());
+        assertEquals(MetricCheck.STATE_OK, sink.get("ingest / b" + THREADS).getState());
+        assertEquals(MetricCheck.STATE_OK, sink.get("ingest / a" + TASKS).getState());
+    }
+
+    @Test
+    public void testKeepsReportingAnAlertingProcessorUntilItRecovers() {
+        final ProcessorMonitor monitor = new ProcessorMonitor(MetricCheck.Mode.ALERTING, 1,
+            Long.MAX_VALUE, Long.MAX_VALUE, 4L, 8L, Long.MAX_VALUE, Long.MAX_VALUE);
+        final ProcessorStatus stuck = processor("stuck", 0L, 5, 0);
+        final ProcessorStatus other = processor("other", 0L, 1, 0);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getProcessorStatus().addAll(Arrays.asList(stuck, other));
+
+        monitor.collect(ingest);
+        monitor.report(sink);
+        assertEquals(Arrays.asList("ingest / stuck" + THREADS), sink.getServices());
+
+        // out of the top but still in warning
+        other.setActiveThreadCount(9);
+        sink.clear();
+        monitor.collect(ingest);
+        assertEquals(2, monitor.report(sink));
+        assertEquals(Arrays.asList("ingest / other" + THREADS, "ingest / stuck" + THREADS), sink.getServices());
+        assertEquals(MetricCheck.STATE_WARNING, sink.get("ingest / stuck" + THREADS).getState());
+
+        // reported once more when it recovered, even though it is idle now
+        stuck.setActiveThreadCount(0);
+        sink.clear();
+        monitor.collect(ingest);
+        assertEquals(2, monitor.report(sink));
+        assertEquals(MetricCheck.STATE_OK, sink.get("ingest / stuck" + THREADS).getState());
+
+        sink.clear();
+        monitor.collect(ingest);
+        assertEquals(1, monitor.report(sink));
+        assertEquals(Arrays.asList("ingest / other" + THREADS), sink.getServices());
+    }
+
+    private static ProcessorMonitor monitor(MetricCheck.Mode mode, int topN) {
+        return new ProcessorMonitor(mode, topN, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    private static ProcessorStatus processor(String name, long processingNanos, int activeThreads, int tasks) {
+        final ProcessorStatus processor = new ProcessorStatus();
+        processor.setId(name);
+        processor.setName(name);
+        processor.setProcessingNanos(processingNanos);
+        processor.setActiveThreadCount(activeThreads);
+        processor.setInvocations(tasks);
+        return processor;
+    }
+}
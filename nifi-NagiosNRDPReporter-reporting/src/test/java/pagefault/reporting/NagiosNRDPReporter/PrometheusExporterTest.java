@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrometheusExporterTest {
+
+    private PrometheusExporter exporter;
+
+    @Before
+    public void setUp() throws Exception {
+        exporter = new PrometheusExporter("localhost", 0);
+    }
+
+    @After
+    public void tearDown() {
+        exporter.close();
+    }
+
+    @Test
+    public void testServesTheLatestSnapshotInTheTextFormat() throws Exception {
+        assertEquals("", get("GET").body);
+
+        exporter.export(MetricSnapshotTest.snapshot());
+
+        final Response response = get("GET");
+        assertEquals(200, response.code);
+        assertEquals(PrometheusExporter.CONTENT_TYPE, response.contentType);
+        assertEquals("# HELP nifi_process_group_active_thread_count " + GroupMetric.ACTIVE_THREAD_COUNT.getComment() + "\n"
+            + "# TYPE nifi_process_group_active_thread_count gauge\n"
+            + "nifi_process_group_active_thread_count{group_id=\"root\",group_name=\"root\"} 3\n"
+            + "nifi_process_group_active_thread_count{group_id=\"ingest\",group_name=\"ingest, \\\"raw\\\"\"} 1\n"
+            + "# HELP nifi_process_group_flowfiles_queued " + GroupMetric.FLOWFILES_QUEUED.getComment() + "\n"
+            + "# TYPE nifi_process_group_flowfiles_queued gauge\n"
+            + "nifi_process_group_flowfiles_queued{group_id=\"root\",group_name=\"root\"} 7\n"
+            + "nifi_process_group_flowfiles_queued{group_id=\"ingest\",group_name=\"ingest, \\\"raw\\\"\"} 40\n",
+            response.body);
+    }
+
+    @Test
+    public void testAnswersHeadWithoutABodyAndRejectsOtherMethods() throws Exception {
+        exporter.export(MetricSnapshotTest.snapshot());
+
+        final Response head = get("HEAD");
+        assertEquals(200, head.code);
+        assertEquals("", head.body);
+
+        assertEquals(405, get("POST").code);
+    }
+
+    private static final class Response {
+
+        private final int code;
+        private final String contentType;
+        private final String body;
+
+        Response(int code, String contentType, String body) {
+            this.code = code;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    private Response get(String method) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + exporter.getPort() + PrometheusExporter.PATH).openConnection();
+        connection.setRequestMethod(method);
+
+        try {
+            final int code = connection.getResponseCode();
+            if (code != 200)
+                return new Response(code, null, null);
+
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                final byte[] buffer = new byte[4096];
+                for (int read; (read = in.read(buffer)) > 0;)
+                    body.write(buffer, 0, read);
+            }
+            return new Response(code, connection.getContentType(), new String(body.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class QuantileSketchTest {
+
+    private static final double[] QUANTILES = {0.01, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1.0};
+
+    @Test
+    public void testStaysWithinOnePercentOfTheExactQuantiles() {
+        final Random random = new Random(42L);
+        final long[] values = new long[100000];
+        final QuantileSketch sketch = new QuantileSketch();
+
+        for (int i = 0; i < values.length; i++) {
+            // log-normal latencies from milliseconds to hours
+            values[i] = 100L + (long) Math.exp(6.0 + 2.5 * random.nextGaussian());
+            sketch.add(values[i]);
+        }
+
+        assertEquals(values.length, sketch.count());
+        assertWithinOnePercent(values, sketch);
+    }
+
+    @Test
+    public void testMergesToTheSketchOfAllValues() {
+        final Random random = new Random(7L);
+        final long[] values = new long[20000];
+        final QuantileSketch low = new QuantileSketch();
+        final QuantileSketch high = new QuantileSketch();
+        final QuantileSketch all = new QuantileSketch();
+
+        for (int i = 0; i < values.length; i++) {
+            // disjoint ranges, so merging has to widen the buckets on both sides
+            values[i] = i % 2 == 0 ? 100L + random.nextInt(1000) : 10000000L + random.nextInt(1000000);
+            (i % 2 == 0 ? low : high).add(values[i]);
+            all.add(values[i]);
+        }
+
+        final QuantileSketch merged = new QuantileSketch();
+        merged.merge(high);
+        merged.merge(low);
+        merged.merge(new QuantileSketch());
+
+        assertEquals(values.length, merged.count());
+        for (double quantile : QUANTILES)
+            assertEquals(all.quantile(quantile), merged.quantile(quantile));
+        assertWithinOnePercent(values, merged);
+    }
+
+    @Test
+    public void testCountsZerosBelowEveryOtherValue() {
+        final QuantileSketch sketch = new QuantileSketch();
+
+        assertEquals(0L, sketch.quantile(0.5));
+
+        sketch.add(0L);
+        sketch.add(-5L);
+        sketch.add(1000L);
+
+        assertEquals(0L, sketch.quantile(0.5));
+        assertTrue(Math.abs(sketch.quantile(1.0) - 1000L) <= 10L);
+    }
+
+    @Test
+    public void testStartsOverAfterClear() {
+        final QuantileSketch sketch = new QuantileSketch();
+        sketch.add(1000000L);
+        sketch.clear();
+
+        assertEquals(0L, sketch.count());
+        assertEquals(0L, sketch.quantile(0.99));
+
+        sketch.add(10L);
+        sketch.add(10L);
+        assertEquals(10L, sketch.quantile(0.99));
+    }
+
+    /**
+     * The exact quantile is the value of rank ceil(q * n), the sketch may round its estimate to the nearest whole value.
+     */
+    private static void assertWithinOnePercent(long[] values, QuantileSketch sketch) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        for (double quantile : QUANTILES) {
+            final long exact = sorted[(int) Math.max(1L, (long) Math.ceil(quantile * sorted.length)) - 1];
+            final long estimate = sketch.quantile(quantile);
+            assertTrue("p" + quantile + " " + estimate + " vs " + exact, Math.abs(estimate - exact) <= exact * 0.01 + 0.5);
+        }
+    }
+}
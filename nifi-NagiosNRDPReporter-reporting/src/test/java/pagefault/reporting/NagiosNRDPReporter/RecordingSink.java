@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the check results reported to it by service name, in the order they were reported.
+ */
+final class RecordingSink implements CheckResultSink {
+
+    private final Map<String, NagiosNRDPReporter.nagiosResult> results = new LinkedHashMap<>();
+
+    @Override
+    public void accept(String servicename, NagiosNRDPReporter.nagiosResult result) {
+        results.put(servicename, result);
+    }
+
+    NagiosNRDPReporter.nagiosResult get(String servicename) {
+        return results.get(servicename);
+    }
+
+    List<String> getServices() {
+        return new ArrayList<>(results.keySet());
+    }
+
+    int size() {
+        return results.size();
+    }
+
+    void clear() {
+        results.clear();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static pagefault.reporting.NagiosNRDPReporter.ProcessGroupTraversalTest.group;
+
+import java.util.Arrays;
+
+import org.apache.nifi.controller.status.ProcessGroupStatus;
+import org.apache.nifi.controller.status.RemoteProcessGroupStatus;
+import org.apache.nifi.controller.status.TransmissionStatus;
+import org.junit.Test;
+
+public class RemoteProcessGroupMonitorTest {
+
+    private static final long KB_PER_SECOND = 1024L * GroupMetric.STATUS_WINDOW_SECONDS;
+
+    private final RecordingSink sink = new RecordingSink();
+    private final RemoteProcessGroupMonitor monitor = new RemoteProcessGroupMonitor(MetricCheck.Mode.ALERTING, 10L * 1024, 1024L);
+
+    @Test
+    public void testReportsEveryLinkWithItsThroughput() {
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getRemoteProcessGroupStatus().add(remote("dc2", TransmissionStatus.Transmitting, 2, 30 * KB_PER_SECOND, 20 * KB_PER_SECOND));
+        ingest.getRemoteProcessGroupStatus().add(remote("dc3", TransmissionStatus.NotTransmitting, 0, 0L, 0L));
+
+        monitor.collect(ingest);
+
+        assertEquals(2, monitor.report(sink));
+        assertEquals(Arrays.asList(service("ingest", "dc2"), service("ingest", "dc3")), sink.getServices());
+        assertEquals(MetricCheck.STATE_OK, sink.get(service("ingest", "dc2")).getState());
+        assertEquals("throughput=51200B bytes_sent=9216000B bytes_received=6144000B flowfiles_sent=10 flowfiles_received=5"
+            + " active_ports=2 inactive_ports=1 transmitting=1", sink.get(service("ingest", "dc2")).getPerformance());
+
+        // a link that never transmitted, e.g. one disabled on purpose, does not alert
+        assertEquals(MetricCheck.STATE_OK, sink.get(service("ingest", "dc3")).getState());
+
+        assertEquals(0, monitor.report(sink));
+    }
+
+    @Test
+    public void testChecksTheThroughputFloorsAndActivePorts() {
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getRemoteProcessGroupStatus().addAll(Arrays.asList(
+            remote("slow", TransmissionStatus.Transmitting, 2, 5 * KB_PER_SECOND, 0L),
+            remote("stalled", TransmissionStatus.Transmitting, 2, 0L, 0L),
+            remote("portless", TransmissionStatus.Transmitting, 0, 50 * KB_PER_SECOND, 0L)));
+
+        monitor.collect(ingest);
+        monitor.report(sink);
+
+        assertEquals(MetricCheck.STATE_WARNING, sink.get(service("ingest", "slow")).getState());
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get(service("ingest", "stalled")).getState());
+        assertEquals(MetricCheck.STATE_WARNING, sink.get(service("ingest", "portless")).getState());
+    }
+
+    @Test
+    public void testAlertsWhenALinkStopsTransmitting() {
+        final RemoteProcessGroupStatus link = remote("dc2", TransmissionStatus.Transmitting, 2, 30 * KB_PER_SECOND, 0L);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getRemoteProcessGroupStatus().add(link);
+
+        monitor.collect(ingest);
+        monitor.report(sink);
+        assertEquals(MetricCheck.STATE_OK, sink.get(service("ingest", "dc2")).getState());
+
+        link.setTransmissionStatus(TransmissionStatus.NotTransmitting);
+        monitor.collect(ingest);
+        monitor.report(sink);
+        assertEquals(MetricCheck.STATE_CRITICAL, sink.get(service("ingest", "dc2")).getState());
+
+        link.setTransmissionStatus(TransmissionStatus.Transmitting);
+        monitor.collect(ingest);
+        monitor.report(sink);
+        assertEquals(MetricCheck.STATE_OK, sink.get(service("ingest", "dc2")).getState());
+    }
+
+    @Test
+    public void testForgetsLinksThatLeftTheFlow() {
+        final RemoteProcessGroupStatus link = remote("dc2", TransmissionStatus.Transmitting, 2, 30 * KB_PER_SECOND, 0L);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getRemoteProcessGroupStatus().add(link);
+
+        monitor.collect(ingest);
+        monitor.report(sink);
+
+        ingest.getRemoteProcessGroupStatus().clear();
+        monitor.collect(ingest);
+        assertEquals(0, monitor.report(sink));
+
+        // added back disabled, it is a new link that has not transmitted yet
+        link.setTransmissionStatus(TransmissionStatus.NotTransmitting);
+        ingest.getRemoteProcessGroupStatus().add(link);
+        sink.clear();
+        monitor.collect(ingest);
+        monitor.report(sink);
+        assertEquals(MetricCheck.STATE_OK, sink.get(service("ingest", "dc2")).getState());
+    }
+
+    @Test
+    public void testOnlyReportsInReportingMode() {
+        final RemoteProcessGroupMonitor reporting = new RemoteProcessGroupMonitor(MetricCheck.Mode.REPORTING, 10L * 1024, 1024L);
+        final ProcessGroupStatus ingest = group("ingest");
+        ingest.getRemoteProcessGroupStatus().add(remote("stalled", TransmissionStatus.Transmitting, 0, 0L, 0L));
+
+        reporting.collect(ingest);
+        reporting.report(sink);
+
+        assertEquals(MetricCheck.STATE_OK, sink.get(service("ingest", "stalled")).getState());
+    }
+
+    private static RemoteProcessGroupStatus remote(String name, TransmissionStatus status, int activePorts, long sentBytes, long receivedBytes) {
+        final RemoteProcessGroupStatus remote = new RemoteProcessGroupStatus();
+        remote.setId(name);
+        remote.setName(name);
+        remote.setTargetUri("https://" + name + ".example.com/nifi");
+        remote.setTransmissionStatus(status);
+        remote.setActiveRemotePortCount(activePorts);
+        remote.setInactiveRemotePortCount(1);
+        remote.setSentContentSize(sentBytes);
+        remote.setReceivedContentSize(receivedBytes);
+        remote.setSentCount(10);
+        remote.setReceivedCount(5);
+        return remote;
+    }
+
+    private static String service(String group, String remote) {
+        return group + " / " + remote + RemoteProcessGroupMonitor.SERVICE_SUFFIX;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class RollingCounterTableTest {
+
+    private static final long WINDOW_MILLIS = 10000L;
+    private static final long SLOT_MILLIS = WINDOW_MILLIS / RollingCounterTable.SLOTS;
+
+    private final long key = SuppressionTable.key(SuppressionTable.hash("group-1"), 0);
+
+    @Test
+    public void testExpiresOneSlotAtATime() {
+        final RollingCounterTable table = new RollingCounterTable(WINDOW_MILLIS);
+
+        for (int slot = 0; slot < RollingCounterTable.SLOTS; slot++)
+            table.add(key, slot * SLOT_MILLIS + 500L, slot * SLOT_MILLIS + 500L);
+
+        assertEquals(10L, table.sum(key, WINDOW_MILLIS - 1L));
+        assertEquals(9L, table.sum(key, WINDOW_MILLIS));
+        assertEquals(1L, table.sum(key, 2 * WINDOW_MILLIS - SLOT_MILLIS - 1L));
+        assertEquals(0L, table.sum(key, 2 * WINDOW_MILLIS - SLOT_MILLIS));
+    }
+
+    @Test
+    public void testForgetsEverythingAfterAWholeWindow() {
+        final RollingCounterTable table = new RollingCounterTable(WINDOW_MILLIS);
+
+        table.add(key, 0L, 0L);
+        table.add(key, 0L, 0L);
+        assertEquals(0L, table.sum(key, 5 * WINDOW_MILLIS));
+
+        // the zeroed slots are counted again once the window gets back to them
+        table.add(key, 5 * WINDOW_MILLIS, 5 * WINDOW_MILLIS);
+        assertEquals(1L, table.sum(key, 5 * WINDOW_MILLIS));
+    }
+
+    @Test
+    public void testCountsLateEventsInTheirOwnSlot() {
+        final RollingCounterTable table = new RollingCounterTable(WINDOW_MILLIS);
+        final long now = 20000L;
+
+        table.add(key, now - WINDOW_MILLIS, now);
+        assertEquals(0, table.size());
+        assertEquals(0L, table.sum(key, now));
+
+        table.add(key, now - 5000L, now);
+        assertEquals(1L, table.sum(key, now));
+        assertEquals(1L, table.sum(key, now + 4999L));
+        assertEquals(0L, table.sum(key, now + 5000L));
+    }
+
+    @Test
+    public void testCountsEventsFromTheFutureNow() {
+        final RollingCounterTable table = new RollingCounterTable(WINDOW_MILLIS);
+
+        table.add(key, 50000L, 20000L);
+        assertEquals(1L, table.sum(key, 20000L));
+        assertEquals(0L, table.sum(key, 30000L));
+    }
+
+    @Test
+    public void testKeepsTheCountsWhenGrowing() {
+        final RollingCounterTable table = new RollingCounterTable(WINDOW_MILLIS, 16);
+
+        for (long series = 1; series <= 1000; series++) {
+            for (long i = 0; i < series % 3 + 1; i++)
+                table.add(series, 0L, 0L);
+        }
+
+        assertEquals(1000, table.size());
+        for (long series = 1; series <= 1000; series++)
+            assertEquals(series % 3 + 1, table.sum(series, 1000L));
+    }
+
+    @Test
+    public void testSweepDropsTheSeriesWithoutEventsInTheWindow() {
+        final RollingCounterTable table = new RollingCounterTable(WINDOW_MILLIS, 16);
+
+        for (long series = 1; series <= 40; series++)
+            table.add(series, 0L, 0L);
+        for (long series = 41; series <= 45; series++)
+            table.add(series, 15000L, 15000L);
+
+        table.sweep(15000L);
+        assertEquals(5, table.size());
+        assertEquals(0L, table.sum(1L, 15000L));
+        assertEquals(1L, table.sum(41L, 15000L));
+
+        // a sweep with every series live keeps them all
+        table.add(1L, 15000L, 15000L);
+        table.sweep(15000L);
+        assertEquals(6, table.size());
+    }
+}
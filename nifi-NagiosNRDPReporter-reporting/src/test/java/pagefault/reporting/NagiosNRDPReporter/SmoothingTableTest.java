@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SmoothingTableTest {
+
+    private static final long WARNING = 100L;
+    private static final long CRITICAL = 200L;
+    private static final double HYSTERESIS = 0.1;
+
+    private static final int OK = MetricCheck.STATE_OK;
+    private static final int WARN = MetricCheck.STATE_WARNING;
+    private static final int CRIT = MetricCheck.STATE_CRITICAL;
+
+    private final long key = SuppressionTable.key(SuppressionTable.hash("group-1"), GroupMetric.FLOWFILES_QUEUED.ordinal());
+
+    private long now = 0L;
+
+    @Test
+    public void testAveragesTheSamples() {
+        final SmoothingTable table = new SmoothingTable(SmoothingTable.Mode.EWMA, 5, 0.5, 0.9, 3, 0.0);
+
+        // averages 50, 125, 62.5, 131.25 and 215.625
+        assertEquals(OK, state(table, 50L));
+        assertEquals(WARN, state(table, 200L));
+        assertEquals(OK, state(table, 0L));
+        assertEquals(WARN, state(table, 200L));
+        assertEquals(CRIT, state(table, 300L));
+    }
+
+    @Test
+    public void testAverageDoesNotFlapAroundTheThreshold() {
+        final SmoothingTable table = new SmoothingTable(SmoothingTable.Mode.EWMA, 5, 0.2, 0.9, 3, HYSTERESIS);
+
+        // the last sample alone would alternate between OK and WARN on every run
+        final int changes = changes(table, 80L, 120L, 100);
+
+        assertTrue(changes <= 1);
+        assertEquals(WARN, state(table, 80L));
+    }
+
+    @Test
+    public void testRecoversOnlyBelowTheThresholdByTheHysteresis() {
+        final SmoothingTable table = new SmoothingTable(SmoothingTable.Mode.EWMA, 5, 1.0, 0.9, 3, HYSTERESIS);
+
+        assertEquals(OK, state(table, 95L));
+        assertEquals(CRIT, state(table, 200L));
+        assertEquals(CRIT, state(table, 185L));
+        assertEquals(CRIT, state(table, 181L));
+        assertEquals(WARN, state(table, 179L));
+        assertEquals(WARN, state(table, 95L));
+        assertEquals(WARN, state(table, 91L));
+        assertEquals(OK, state(table, 89L));
+        assertEquals(OK, state(table, 95L));
+        assertEquals(WARN, state(table, 100L));
+    }
+
+    @Test
+    public void testChecksAPercentileOfTheWindow() {
+        final SmoothingTable table = new SmoothingTable(SmoothingTable.Mode.PERCENTILE, 5, 0.5, 0.8, 3, HYSTERESIS);
+
+        for (int i = 0; i < 4; i++)
+            assertEquals(OK, state(table, 10L));
+
+        // p80 of five samples is the fourth smallest, a single spike is ignored
+        assertEquals(OK, state(table, 500L));
+        assertEquals(CRIT, state(table, 500L));
+        assertEquals(CRIT, state(table, 10L));
+
+        // the window moves on, the spikes age out
+        assertEquals(CRIT, state(table, 10L));
+        assertEquals(CRIT, state(table, 10L));
+        assertEquals(OK, state(table, 10L));
+    }
+
+    @Test
+    public void testAlertsWhenNOfMSamplesAreOverAThreshold() {
+        final SmoothingTable table = new SmoothingTable(SmoothingTable.Mode.N_OF_M, 5, 0.5, 0.9, 3, HYSTERESIS);
+
+        assertEquals(OK, state(table, 150L));
+        assertEquals(OK, state(table, 95L));
+        assertEquals(OK, state(table, 150L));
+        assertEquals(OK, state(table, 95L));
+        assertEquals(WARN, state(table, 150L));
+
+        // once alerting, samples within the hysteresis margin still count as over the threshold
+        assertEquals(0, changes(table, 95L, 150L, 20));
+
+        assertEquals(WARN, state(table, 0L));
+        assertEquals(WARN, state(table, 0L));
+        assertEquals(OK, state(table, 0L));
+    }
+
+    @Test
+    public void testKeepsSeriesApart() {
+        final SmoothingTable table = new SmoothingTable(SmoothingTable.Mode.EWMA, 5, 1.0, 0.9, 3, HYSTERESIS);
+        final long other = SuppressionTable.key(SuppressionTable.hash("group-2"), GroupMetric.FLOWFILES_QUEUED.ordinal());
+
+        assertEquals(CRIT, state(table, 250L));
+        assertEquals(OK, table.state(other, 95L, WARNING, CRITICAL, now));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    public void testSweepDropsTheSeriesNotSampledInTheRun() {
+        final SmoothingTable table = new SmoothingTable(SmoothingTable.Mode.EWMA, 5, 1.0, 0.9, 3, HYSTERESIS);
+
+        for (long series = 1; series <= 40; series++)
+            assertEquals(WARN, table.state(series, 150L, WARNING, CRITICAL, 0L));
+
+        for (long series = 1; series <= 5; series++)
+            table.state(series, 150L, WARNING, CRITICAL, 60000L);
+
+        table.sweep(60000L);
+        assertEquals(5, table.size());
+
+        // a kept series remembers its state, a dropped one starts over without the hysteresis
+        assertEquals(WARN, table.state(1L, 95L, WARNING, CRITICAL, 120000L));
+        assertEquals(OK, table.state(6L, 95L, WARNING, CRITICAL, 120000L));
+    }
+
+    private int state(SmoothingTable table, long value) {
+        now += 60000L;
+        return table.state(key, value, WARNING, CRITICAL, now);
+    }
+
+    /**
+     * Feeds the series alternating values and counts its state changes.
+     */
+    private int changes(SmoothingTable table, long low, long high, int samples) {
+        int changes = 0;
+        int previous = -1;
+
+        for (int i = 0; i < samples; i++) {
+            final int state = state(table, i % 2 == 0 ? low : high);
+            if (previous >= 0 && state != previous)
+                changes++;
+            previous = state;
+        }
+
+        return changes;
+    }
+}
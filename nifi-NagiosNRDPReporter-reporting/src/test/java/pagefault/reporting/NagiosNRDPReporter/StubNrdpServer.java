@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * NRDP endpoint on the loopback interface that records the submissions it accepts and answers with a settable response.
+ */
+final class StubNrdpServer implements AutoCloseable {
+
+    static final String OK = "<?xml version=\"1.0\"?><result><status>0</status><message>OK</message></result>";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final List<String> submissions = new ArrayList<>();
+
+    private volatile int responseCode = 200;
+    private volatile String responseBody = OK;
+
+    StubNrdpServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[8192];
+                try (InputStream in = exchange.getRequestBody()) {
+                    int read;
+                    while ((read = in.read(buffer)) >= 0)
+                        body.write(buffer, 0, read);
+                }
+
+                final int code = responseCode;
+                final byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+
+                if (code / 100 == 2) {
+                    synchronized (submissions) {
+                        submissions.add(URLDecoder.decode(new String(body.toByteArray(), StandardCharsets.UTF_8), "UTF-8"));
+                    }
+                }
+
+                exchange.sendResponseHeaders(code, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/nrdp/";
+    }
+
+    /**
+     * Answers every request with the given status code and body from now on.
+     */
+    void respond(int code, String body) {
+        responseCode = code;
+        responseBody = body;
+    }
+
+    /**
+     * @return the url decoded bodies of the submissions answered with a 2xx status, in the order they arrived
+     */
+    List<String> getSubmissions() {
+        synchronized (submissions) {
+            return new ArrayList<>(submissions);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SubmissionPipelineTest {
+
+    private SubmissionPipeline pipeline;
+
+    @After
+    public void tearDown() {
+        if (pipeline != null)
+            pipeline.shutdown(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSendsInOrder() throws InterruptedException {
+        final BlockingSender sender = new BlockingSender(false);
+        pipeline = new SubmissionPipeline(10, 1, SubmissionPipeline.OverflowPolicy.DROP_OLDEST, sender, "test");
+
+        pipeline.enqueue(submission("a", 1));
+        pipeline.enqueue(submission("b", 1));
+        pipeline.enqueue(submission("c", 2));
+
+        assertEquals("a", sender.nextSent());
+        assertEquals("b", sender.nextSent());
+        assertEquals("c", sender.nextSent());
+        assertEquals(0L, pipeline.getAndResetDropped());
+    }
+
+    @Test
+    public void testDropOldestDiscardsTheOldestQueuedSubmission() throws InterruptedException {
+        final BlockingSender sender = new BlockingSender(true);
+        pipeline = new SubmissionPipeline(2, 1, SubmissionPipeline.OverflowPolicy.DROP_OLDEST, sender, "test");
+
+        pipeline.enqueue(submission("a", 1));
+        sender.awaitSending();
+
+        pipeline.enqueue(submission("b", 1));
+        pipeline.enqueue(submission("c", 2));
+        pipeline.enqueue(submission("d", 3));
+
+        assertEquals(Arrays.asList("b"), sender.getDiscarded());
+        assertEquals(Arrays.asList(Boolean.FALSE), sender.getSuperseded());
+        assertEquals(2, pipeline.size());
+        assertEquals(1L, pipeline.getAndResetDropped());
+        assertEquals(0L, pipeline.getAndResetDropped());
+
+        sender.release();
+        assertEquals("a", sender.nextSent());
+        assertEquals("c", sender.nextSent());
+        assertEquals("d", sender.nextSent());
+    }
+
+    @Test
+    public void testCoalesceLatestDiscardsTheSubmissionsOfOlderRuns() throws InterruptedException {
+        final BlockingSender sender = new BlockingSender(true);
+        pipeline = new SubmissionPipeline(10, 1, SubmissionPipeline.OverflowPolicy.COALESCE_LATEST, sender, "test");
+
+        pipeline.enqueue(submission("a", 1));
+        sender.awaitSending();
+
+        pipeline.enqueue(submission("b", 1));
+        pipeline.enqueue(submission("c", 1));
+        pipeline.enqueue(submission("d", 2));
+        pipeline.enqueue(submission("e", 2));
+
+        assertEquals(Arrays.asList("b", "c"), sender.getDiscarded());
+        assertEquals(Arrays.asList(Boolean.TRUE, Boolean.TRUE), sender.getSuperseded());
+        assertEquals(2, pipeline.size());
+        assertEquals(2L, pipeline.getAndResetDropped());
+
+        sender.release();
+        assertEquals("a", sender.nextSent());
+        assertEquals("d", sender.nextSent());
+        assertEquals("e", sender.nextSent());
+    }
+
+    @Test
+    public void testDiscardsOutsideTheQueueLock() throws Exception {
+        final BlockingSender sender = new BlockingSender(true);
+        pipeline = new SubmissionPipeline(1, 1, SubmissionPipeline.OverflowPolicy.DROP_OLDEST, sender, "test");
+
+        final Field queue = SubmissionPipeline.class.getDeclaredField("queue");
+        queue.setAccessible(true);
+        sender.lock = queue.get(pipeline);
+
+        pipeline.enqueue(submission("a", 1));
+        sender.awaitSending();
+
+        pipeline.enqueue(submission("b", 1));
+        pipeline.enqueue(submission("c", 2));
+
+        assertEquals(Arrays.asList("b"), sender.getDiscarded());
+        assertFalse(sender.discardedHoldingLock);
+    }
+
+    @Test
+    public void testShutdownDiscardsTheQueuedSubmissions() throws InterruptedException {
+        final BlockingSender sender = new BlockingSender(true);
+        pipeline = new SubmissionPipeline(10, 1, SubmissionPipeline.OverflowPolicy.DROP_OLDEST, sender, "test");
+
+        pipeline.enqueue(submission("a", 1));
+        sender.awaitSending();
+
+        pipeline.enqueue(submission("b", 1));
+        pipeline.enqueue(submission("c", 2));
+
+        pipeline.shutdown(1, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("b", "c"), sender.getDiscarded());
+        assertEquals(Arrays.asList(Boolean.FALSE, Boolean.FALSE), sender.getSuperseded());
+        assertEquals(0, pipeline.size());
+        assertEquals(0L, pipeline.getAndResetDropped());
+    }
+
+    @Test
+    public void testTicksIdleSenders() throws InterruptedException {
+        final BlockingSender sender = new BlockingSender(false);
+        pipeline = new SubmissionPipeline(10, 2, SubmissionPipeline.OverflowPolicy.DROP_OLDEST, sender, "test");
+
+        assertTrue(sender.idle.await(5, TimeUnit.SECONDS));
+    }
+
+    private static SubmissionPipeline.Submission submission(String body, long runId) {
+        return new SubmissionPipeline.Submission(body.getBytes(), 1, runId, runId);
+    }
+
+    /**
+     * Records what the pipeline hands over, optionally holding the first submission until released.
+     */
+    private static final class BlockingSender implements SubmissionPipeline.Sender {
+
+        private final LinkedBlockingQueue<String> sent = new LinkedBlockingQueue<>();
+        private final List<String> discarded = new ArrayList<>();
+        private final List<Boolean> superseded = new ArrayList<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch released;
+        private final CountDownLatch idle = new CountDownLatch(2);
+
+        private volatile Object lock;
+        private volatile boolean discardedHoldingLock = false;
+
+        BlockingSender(boolean hold) {
+            released = new CountDownLatch(hold ? 1 : 0);
+        }
+
+        void awaitSending() throws InterruptedException {
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        String nextSent() throws InterruptedException {
+            return sent.poll(5, TimeUnit.SECONDS);
+        }
+
+        synchronized List<String> getDiscarded() {
+            return new ArrayList<>(discarded);
+        }
+
+        synchronized List<Boolean> getSuperseded() {
+            return new ArrayList<>(superseded);
+        }
+
+        @Override
+        public void send(SubmissionPipeline.Submission submission) {
+            sending.countDown();
+
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            sent.add(new String(submission.getBody()));
+        }
+
+        @Override
+        public void idle() {
+            idle.countDown();
+        }
+
+        @Override
+        public synchronized void discard(SubmissionPipeline.Submission submission, boolean superseded) {
+            final Object lock = this.lock;
+            if (lock != null && Thread.holdsLock(lock))
+                discardedHoldingLock = true;
+
+            discarded.add(new String(submission.getBody()));
+            this.superseded.add(superseded);
+        }
+    }
+}
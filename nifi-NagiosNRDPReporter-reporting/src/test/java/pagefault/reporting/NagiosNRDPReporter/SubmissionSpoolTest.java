@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SubmissionSpoolTest {
+
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int HEADER_LENGTH = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplaysInOrder() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+
+        try (SubmissionSpool spool = new SubmissionSpool(directory, 1 << 20, MAX_AGE_MILLIS, 100.0)) {
+            append(spool, "a", now());
+            append(spool, "b", now());
+            append(spool, "c", now());
+
+            assertEquals("a", next(spool));
+            assertEquals("b", next(spool));
+            assertEquals("c", next(spool));
+            assertNull(next(spool));
+            assertTrue(spool.isEmpty());
+        }
+    }
+
+    @Test
+    public void testResumesFromCursorAfterRestart() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+
+        try (SubmissionSpool spool = new SubmissionSpool(directory, 1 << 20, MAX_AGE_MILLIS, 100.0)) {
+            append(spool, "a", now());
+            append(spool, "b", now());
+            append(spool, "c", now());
+            assertEquals("a", next(spool));
+        }
+
+        try (SubmissionSpool spool = new SubmissionSpool(directory, 1 << 20, MAX_AGE_MILLIS, 100.0)) {
+            assertEquals("b", next(spool));
+            assertEquals("c", next(spool));
+            assertNull(next(spool));
+        }
+    }
+
+    @Test
+    public void testSkipsTornRecordAfterCrash() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+
+        try (SubmissionSpool spool = new SubmissionSpool(directory, 1 << 20, MAX_AGE_MILLIS, 100.0)) {
+            append(spool, "first", now());
+            append(spool, "second", now());
+        }
+
+        // a crash in the middle of the second append leaves only part of its body on disk
+        final Path segment = segments(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (SubmissionSpool spool = new SubmissionSpool(directory, 1 << 20, MAX_AGE_MILLIS, 100.0)) {
+            assertEquals("first", next(spool));
+            assertNull(next(spool));
+
+            append(spool, "third", now());
+            assertEquals("third", next(spool));
+            assertNull(next(spool));
+        }
+    }
+
+    @Test
+    public void testSkipsCorruptRecord() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+
+        try (SubmissionSpool spool = new SubmissionSpool(directory, 1 << 20, MAX_AGE_MILLIS, 100.0)) {
+            append(spool, "first", now());
+            append(spool, "second", now());
+        }
+
+        try (FileChannel channel = FileChannel.open(segments(directory).get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), HEADER_LENGTH);
+        }
+
+        try (SubmissionSpool spool = new SubmissionSpool(directory, 1 << 20, MAX_AGE_MILLIS, 100.0)) {
+            assertEquals("second", next(spool));
+            assertNull(next(spool));
+        }
+    }
+
+    @Test
+    public void testSkipsSupersededSubmissions() throws IOException {
+        final long created = now();
+
+        try (SubmissionSpool spool = new SubmissionSpool(folder.getRoot().toPath(), 1 << 20, MAX_AGE_MILLIS, 100.0)) {
+            append(spool, "old", created - 2);
+            append(spool, "older run", created - 1);
+            append(spool, "same run", created);
+
+            spool.supersede(created);
+
+            assertEquals("same run", next(spool));
+            assertNull(next(spool));
+            assertEquals(2L, spool.getAndResetSuperseded());
+            assertEquals(0L, spool.getAndResetSuperseded());
+        }
+    }
+
+    @Test
+    public void testStaysWithinMaxSize() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final long maxBytes = 1024;
+        final String body = new String(new char[80]).replace('\0', 'x');
+
+        try (SubmissionSpool spool = new SubmissionSpool(directory, maxBytes, MAX_AGE_MILLIS, 100.0)) {
+            for (int i = 0; i < 100; i++) {
+                append(spool, body + i, now());
+                assertTrue(spool.getSizeBytes() <= maxBytes);
+                assertTrue(diskBytes(directory) <= maxBytes);
+            }
+
+            String last = null;
+            for (String replayed = next(spool); replayed != null; replayed = next(spool))
+                last = replayed;
+            assertEquals(body + 99, last);
+        }
+    }
+
+    @Test
+    public void testRejectsSubmissionLargerThanSpool() throws IOException {
+        try (SubmissionSpool spool = new SubmissionSpool(folder.getRoot().toPath(), 64, MAX_AGE_MILLIS, 100.0)) {
+            try {
+                append(spool, new String(new char[64]), now());
+                fail("Expected an IOException");
+            } catch (IOException e) {
+                // expected
+            }
+            assertTrue(spool.isEmpty());
+        }
+    }
+
+    @Test
+    public void testReplayIsCappedByPermits() throws Exception {
+        try (SubmissionSpool spool = new SubmissionSpool(folder.getRoot().toPath(), 1 << 20, MAX_AGE_MILLIS, 2.0)) {
+            for (int i = 0; i < 5; i++)
+                append(spool, "submission" + i, now());
+
+            final List<String> replayed = new ArrayList<>();
+            final SubmissionSpool.Replayer replayer = new SubmissionSpool.Replayer() {
+                @Override
+                public boolean replay(SubmissionPipeline.Submission submission) {
+                    replayed.add(new String(submission.getBody(), StandardCharsets.UTF_8));
+                    return true;
+                }
+            };
+
+            Thread.sleep(1500L);
+
+            assertEquals(2, spool.replay(replayer));
+            assertEquals(2, replayed.size());
+            assertEquals("submission0", replayed.get(0));
+            assertEquals("submission1", replayed.get(1));
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+
+    private static void append(SubmissionSpool spool, String body, long createdMillis) throws IOException {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        spool.append(bytes, bytes.length, 1, createdMillis);
+    }
+
+    private static String next(SubmissionSpool spool) throws IOException {
+        final SubmissionPipeline.Submission submission = spool.peek();
+        if (submission == null)
+            return null;
+
+        spool.remove();
+        return new String(submission.getBody(), StandardCharsets.UTF_8);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        final List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.spool")) {
+            for (Path segment : stream)
+                segments.add(segment);
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long diskBytes(Path directory) throws IOException {
+        long total = 0L;
+        for (Path segment : segments(directory))
+            total += Files.size(segment);
+        return total;
+    }
+}
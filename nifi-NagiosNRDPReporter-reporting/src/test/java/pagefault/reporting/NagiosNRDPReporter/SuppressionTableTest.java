@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SuppressionTableTest {
+
+    private static final long HEARTBEAT_MILLIS = 60000L;
+
+    private final long first = SuppressionTable.key(SuppressionTable.hash("group-1"), 0);
+    private final long second = SuppressionTable.key(SuppressionTable.hash("group-2"), 0);
+
+    @Test
+    public void testSuppressesUnchangedResults() {
+        final SuppressionTable table = new SuppressionTable(0.1, HEARTBEAT_MILLIS);
+        table.beginRun(1L);
+
+        assertTrue(table.shouldSend(first, MetricCheck.STATE_OK, 100L, 0L));
+        assertFalse(table.shouldSend(first, MetricCheck.STATE_OK, 100L, 1000L));
+        assertFalse(table.shouldSend(first, MetricCheck.STATE_OK, 109L, 2000L));
+    }
+
+    @Test
+    public void testSendsStateChangesDeltasAndHeartbeats() {
+        final SuppressionTable table = new SuppressionTable(0.1, HEARTBEAT_MILLIS);
+        table.beginRun(1L);
+
+        assertTrue(table.shouldSend(first, MetricCheck.STATE_OK, 100L, 0L));
+        assertTrue(table.shouldSend(first, MetricCheck.STATE_WARNING, 100L, 1000L));
+        assertTrue(table.shouldSend(first, MetricCheck.STATE_WARNING, 120L, 2000L));
+        // heartbeats are jittered by up to a tenth, so series do not all come due in the same run
+        assertFalse(table.shouldSend(first, MetricCheck.STATE_WARNING, 120L, 2000L + HEARTBEAT_MILLIS * 9 / 10 - 1));
+        assertTrue(table.shouldSend(first, MetricCheck.STATE_WARNING, 120L, 2000L + HEARTBEAT_MILLIS));
+    }
+
+    @Test
+    public void testRollbackResendsOnlyTheLostRun() {
+        final SuppressionTable table = new SuppressionTable(0.1, HEARTBEAT_MILLIS);
+
+        table.beginRun(1L);
+        assertTrue(table.shouldSend(first, MetricCheck.STATE_OK, 100L, 0L));
+
+        table.beginRun(2L);
+        assertTrue(table.shouldSend(second, MetricCheck.STATE_OK, 100L, 1000L));
+        table.rollback(2L);
+
+        table.beginRun(3L);
+        assertFalse(table.shouldSend(first, MetricCheck.STATE_OK, 100L, 2000L));
+        assertTrue(table.shouldSend(second, MetricCheck.STATE_OK, 100L, 2000L));
+        assertFalse(table.shouldSend(second, MetricCheck.STATE_OK, 100L, 3000L));
+    }
+
+    @Test
+    public void testRollbackAllResendsEverything() {
+        final SuppressionTable table = new SuppressionTable(0.1, HEARTBEAT_MILLIS);
+
+        table.beginRun(1L);
+        assertTrue(table.shouldSend(first, MetricCheck.STATE_OK, 100L, 0L));
+        table.beginRun(2L);
+        assertTrue(table.shouldSend(second, MetricCheck.STATE_OK, 100L, 1000L));
+
+        table.rollbackAll();
+
+        table.beginRun(3L);
+        assertTrue(table.shouldSend(first, MetricCheck.STATE_OK, 100L, 2000L));
+        assertTrue(table.shouldSend(second, MetricCheck.STATE_OK, 100L, 2000L));
+    }
+
+    @Test
+    public void testSweepDropsSeriesNotSeenInTheRun() {
+        final SuppressionTable table = new SuppressionTable(0.1, HEARTBEAT_MILLIS, 16);
+
+        table.beginRun(1L);
+        for (int i = 0; i < 100; i++)
+            table.shouldSend(SuppressionTable.key(SuppressionTable.hash("group-" + i), 0), MetricCheck.STATE_OK, i, 0L);
+        assertEquals(100, table.size());
+
+        table.beginRun(2L);
+        assertFalse(table.shouldSend(first, MetricCheck.STATE_OK, 1L, 1000L));
+        table.sweep();
+
+        assertTrue(table.size() < 100);
+        assertFalse(table.shouldSend(first, MetricCheck.STATE_OK, 1L, 2000L));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pagefault.reporting.NagiosNRDPReporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TopNTest {
+
+    @Test
+    public void testKeepsTheHighestScoresInDescendingOrder() {
+        final Random random = new Random(42L);
+        final TopN<Long> top = new TopN<>(10);
+        final List<Long> all = new ArrayList<>();
+
+        for (int i = 0; i < 10000; i++) {
+            // a narrow range, so there are plenty of ties
+            final long score = random.nextInt(2000);
+            all.add(score);
+            if (top.accepts(score))
+                top.offer(score, score);
+        }
+
+        Collections.sort(all, Collections.reverseOrder());
+        top.sortDescending();
+
+        assertEquals(10, top.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals((long) all.get(i), top.score(i));
+            assertEquals(all.get(i), top.item(i));
+        }
+    }
+
+    @Test
+    public void testAcceptsOnlyScoresAboveTheLowestKeptOnceFull() {
+        final TopN<String> top = new TopN<>(3);
+
+        top.offer(5L, "five");
+        top.offer(1L, "one");
+        assertTrue(top.accepts(0L));
+
+        top.offer(3L, "three");
+        assertFalse(top.accepts(0L));
+        assertFalse(top.accepts(1L));
+        assertTrue(top.accepts(2L));
+
+        top.offer(4L, "four");
+        top.offer(0L, "zero");
+        top.sortDescending();
+
+        assertEquals(3, top.size());
+        assertEquals("five", top.item(0));
+        assertEquals("four", top.item(1));
+        assertEquals("three", top.item(2));
+    }
+
+    @Test
+    public void testKeepsEveryItemWithoutALimit() {
+        final TopN<Integer> top = new TopN<>(0);
+
+        for (int i = 0; i < 1000; i++)
+            top.offer((i * 7919) % 1000, i);
+
+        top.sortDescending();
+
+        assertEquals(1000, top.size());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(999 - i, top.score(i));
+    }
+
+    @Test
+    public void testStartsOverAfterClear() {
+        final TopN<String> top = new TopN<>(2);
+        top.offer(10L, "a");
+        top.offer(20L, "b");
+        top.sortDescending();
+        top.clear();
+
+        assertEquals(0, top.size());
+        assertTrue(top.accepts(0L));
+
+        top.offer(1L, "c");
+        top.sortDescending();
+        assertEquals("c", top.item(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRefusesToReadUnsortedItems() {
+        final TopN<String> top = new TopN<>(2);
+        top.offer(1L, "a");
+        top.item(0);
+    }
+}